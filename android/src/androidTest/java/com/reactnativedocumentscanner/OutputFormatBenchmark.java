@@ -0,0 +1,143 @@
+package com.reactnativedocumentscanner;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares, on a device, how large and how slow every output format is in every document
+ * mode, using the platform encoders the app really uses. The JVM benchmark under
+ * {@code src/test} can't do this, since Bitmap's codecs only exist on Android.
+ *
+ * The page is drawn once, each document mode filters its own copy, and every format then
+ * encodes that copy a few times into a byte counter, so only the encoders are timed and
+ * nothing is written anywhere. Results go to logcat under this class's name; nothing is
+ * asserted beyond every encode producing bytes.
+ *
+ * Run it with {@code ./gradlew :reactnativedocumentscanner:connectedDebugAndroidTest}.
+ */
+@RunWith(AndroidJUnit4.class)
+public class OutputFormatBenchmark {
+    private static final String TAG = "OutputFormatBenchmark";
+    private static final int PAGE_WIDTH = 1240;
+    private static final int PAGE_HEIGHT = 1754;
+    private static final int QUALITY = 90;
+    private static final int WARMUP_ROUNDS = 1;
+    private static final int ROUNDS = 5;
+
+    @Test
+    public void comparesFormatsInEveryDocumentMode() throws IOException {
+        Bitmap page = drawPage(new Random(42));
+        StringBuilder report = new StringBuilder(String.format(
+            Locale.ROOT, "%dx%d page, quality %d, mean of %d rounds%n%-10s %-13s %10s %10s%n",
+            PAGE_WIDTH, PAGE_HEIGHT, QUALITY, ROUNDS, "mode", "format", "bytes", "encode ms"
+        ));
+        try {
+            for (String documentMode : DocumentFilter.MODES) {
+                Bitmap filtered = DocumentFilter.apply(page.copy(Bitmap.Config.ARGB_8888, true), documentMode);
+                try {
+                    for (String format : PageEncoder.FORMATS) {
+                        String resolved = PageEncoder.resolve(format);
+                        long bytes = 0;
+                        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+                            bytes = encode(filtered, resolved);
+                        }
+                        long start = System.nanoTime();
+                        for (int i = 0; i < ROUNDS; i++) {
+                            bytes = encode(filtered, resolved);
+                        }
+                        double encodeMs = (System.nanoTime() - start) / 1_000_000d / ROUNDS;
+                        assertTrue(format + " in " + documentMode + " produced no bytes", bytes > 0);
+                        // Formats this device can't produce are measured as their fallback
+                        String label = resolved.equals(format) ? format : format + "->" + resolved;
+                        report.append(String.format(Locale.ROOT, "%-10s %-13s %10d %10.1f%n", documentMode, label, bytes, encodeMs));
+                    }
+                } finally {
+                    filtered.recycle();
+                }
+            }
+        } finally {
+            page.recycle();
+        }
+        for (String line : report.toString().split("\n")) {
+            Log.i(TAG, line);
+        }
+    }
+
+    private static long encode(Bitmap bitmap, String format) throws IOException {
+        CountingOutputStream outputStream = new CountingOutputStream();
+        PageEncoder.compress(bitmap, format, QUALITY, outputStream);
+        return outputStream.count;
+    }
+
+    /**
+     * An A4 page at 150 dpi as a camera sees it: an uneven paper tone with sensor noise,
+     * a heading, lines of text and a photo-like block.
+     */
+    private static Bitmap drawPage(Random random) {
+        Bitmap page = Bitmap.createBitmap(PAGE_WIDTH, PAGE_HEIGHT, Bitmap.Config.ARGB_8888);
+        int[] row = new int[PAGE_WIDTH];
+        for (int y = 0; y < PAGE_HEIGHT; y++) {
+            for (int x = 0; x < PAGE_WIDTH; x++) {
+                int tone = 225 + (x + y) * 20 / (PAGE_WIDTH + PAGE_HEIGHT) + random.nextInt(7) - 3;
+                row[x] = Color.rgb(tone, tone, tone - 6);
+            }
+            page.setPixels(row, 0, PAGE_WIDTH, 0, y, PAGE_WIDTH, 1);
+        }
+
+        Canvas canvas = new Canvas(page);
+        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        paint.setColor(Color.rgb(30, 30, 35));
+        paint.setTextSize(48);
+        canvas.drawText("Quarterly statement", 120, 180, paint);
+        paint.setTextSize(22);
+        StringBuilder line = new StringBuilder();
+        for (int y = 260; y < 1100; y += 34) {
+            line.setLength(0);
+            while (line.length() < 90) {
+                int word = 2 + random.nextInt(9);
+                for (int i = 0; i < word; i++) {
+                    line.append((char) ('a' + random.nextInt(26)));
+                }
+                line.append(' ');
+            }
+            canvas.drawText(line.toString(), 120, y, paint);
+        }
+        for (int y = 1160; y < 1600; y++) {
+            for (int x = 0; x < 1000; x++) {
+                int noise = random.nextInt(16);
+                row[x] = Color.rgb((x / 4 + noise) & 0xFF, (y / 2 + noise) & 0xFF, (x + y) / 8 & 0xFF);
+            }
+            page.setPixels(row, 0, PAGE_WIDTH, 120, y, 1000, 1);
+        }
+        return page;
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+        long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
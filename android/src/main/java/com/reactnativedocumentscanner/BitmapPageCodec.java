@@ -0,0 +1,64 @@
+package com.reactnativedocumentscanner;
+
+import android.graphics.Bitmap;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The on-device {@link PageCodec}: decodes with {@link PageDecoder} into pooled bitmaps,
+ * filters with {@link DocumentFilter} and compresses with {@link PageEncoder}, searching
+ * for a quality with {@link QualitySearch} when the page has a byte budget.
+ */
+final class BitmapPageCodec implements PageCodec<Bitmap> {
+    private final PageBufferPool pool;
+    private final QualitySearch qualitySearch;
+
+    BitmapPageCodec(PageBufferPool pool, QualitySearch qualitySearch) {
+        this.pool = pool;
+        this.qualitySearch = qualitySearch;
+    }
+
+    @Override
+    public Bitmap decode(PageSource source, PageProcessingOptions options) throws IOException {
+        return PageDecoder.decode(source, options, pool);
+    }
+
+    @Override
+    public Bitmap transform(Bitmap page, String documentMode) {
+        return DocumentFilter.apply(page, documentMode);
+    }
+
+    /**
+     * With a byte budget and a lossy format the quality is searched for, starting from the
+     * quality the previous page settled on, and the winning trial's bytes are written as
+     * they are. A page that doesn't fit even at the lowest quality is written at that
+     * quality and leaves the hint alone, so it doesn't drag the next page's search down.
+     */
+    @Override
+    public int encode(Bitmap page, PageProcessingOptions options, AtomicInteger qualityHint, OutputStream outputStream) throws IOException {
+        if (!options.hasByteBudget() || !PageEncoder.isLossy(options.outputFormat)) {
+            PageEncoder.compress(page, options.outputFormat, options.quality, outputStream);
+            return PageEncoder.isLossy(options.outputFormat) ? options.quality : 100;
+        }
+
+        QualitySearch.Result result = qualitySearch.search(page, options.outputFormat, options.maxBytesPerPage, options.quality, qualityHint.get());
+        try {
+            if (result.fitsBudget) {
+                qualityHint.set(result.quality);
+                outputStream.write(result.buffer, 0, result.length);
+            } else {
+                PageEncoder.compress(page, options.outputFormat, result.quality, outputStream);
+            }
+            return result.quality;
+        } finally {
+            qualitySearch.release(result);
+        }
+    }
+
+    @Override
+    public void release(Bitmap page) {
+        pool.releaseBitmap(page);
+    }
+}
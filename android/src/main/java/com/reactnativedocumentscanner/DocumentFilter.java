@@ -0,0 +1,137 @@
+package com.reactnativedocumentscanner;
+
+import android.graphics.Bitmap;
+
+/**
+ * The {@code documentMode} pixel pass: converts a page to grayscale, or binarizes it to
+ * pure black and white for text documents, in place.
+ *
+ * Binarization is Wellner's adaptive threshold: each pixel is compared with a running
+ * average of the pixels just before it on its row (about an eighth of the page width),
+ * blended with the average at the same column on the previous row, and becomes black
+ * when it is clearly darker. Rows are walked in alternating directions so the average
+ * doesn't lag in one direction only. This follows uneven lighting across a page, which a
+ * global threshold can't. The pass works one row at a time through two int[] rows that
+ * each worker thread keeps and reuses, so it allocates nothing per page.
+ */
+final class DocumentFilter {
+    static final String MODE_COLOR = "color";
+    static final String MODE_GRAYSCALE = "grayscale";
+    static final String MODE_BILEVEL = "bilevel";
+    static final String[] MODES = { MODE_COLOR, MODE_GRAYSCALE, MODE_BILEVEL };
+
+    // A pixel is black when it is this many percent darker than the local average
+    private static final int THRESHOLD_PERCENT = 15;
+    private static final int BLACK = 0xFF000000;
+    private static final int WHITE = 0xFFFFFFFF;
+
+    private static final ThreadLocal<int[][]> ROWS = new ThreadLocal<>();
+
+    private DocumentFilter() {}
+
+    static boolean isSupported(String mode) {
+        for (String supported : MODES) {
+            if (supported.equals(mode)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Applies {@code mode} to {@code bitmap}. Returns the filtered bitmap, which is
+     * {@code bitmap} itself unless it was immutable and had to be copied (and recycled).
+     */
+    static Bitmap apply(Bitmap bitmap, String mode) {
+        if (MODE_COLOR.equals(mode)) {
+            return bitmap;
+        }
+        if (!bitmap.isMutable()) {
+            Bitmap copy = bitmap.copy(Bitmap.Config.ARGB_8888, true);
+            bitmap.recycle();
+            bitmap = copy;
+        }
+
+        int width = bitmap.getWidth();
+        int height = bitmap.getHeight();
+        int[][] rows = rows(width);
+        int[] row = rows[0];
+        int[] previousAverages = rows[1];
+        boolean bilevel = MODE_BILEVEL.equals(mode);
+        int window = window(width);
+        int sum = initialSum(window);
+
+        for (int y = 0; y < height; y++) {
+            bitmap.getPixels(row, 0, width, 0, y, width, 1);
+            sum = filterRow(row, 0, width, y, bilevel, window, sum, previousAverages);
+            bitmap.setPixels(row, 0, width, 0, y, width, 1);
+        }
+        return bitmap;
+    }
+
+    /**
+     * Applies {@code mode} in place to {@code height} rows of ARGB pixels, {@code width}
+     * apart, for pages that aren't held in a Bitmap.
+     */
+    static void apply(int[] pixels, int width, int height, String mode) {
+        if (MODE_COLOR.equals(mode)) {
+            return;
+        }
+        int[] previousAverages = rows(width)[1];
+        boolean bilevel = MODE_BILEVEL.equals(mode);
+        int window = window(width);
+        int sum = initialSum(window);
+        for (int y = 0; y < height; y++) {
+            sum = filterRow(pixels, y * width, width, y, bilevel, window, sum, previousAverages);
+        }
+    }
+
+    private static int window(int width) {
+        return Math.max(1, width / 8);
+    }
+
+    private static int initialSum(int window) {
+        // Start as if the page were preceded by mid-gray paper
+        return 127 * window;
+    }
+
+    /**
+     * Filters row {@code y}, which starts at {@code offset} in {@code pixels}. Returns the
+     * running sum to pass in with the next row; {@code previousAverages} carries the rest
+     * of the state from row to row.
+     */
+    static int filterRow(int[] pixels, int offset, int width, int y, boolean bilevel, int window, int sum, int[] previousAverages) {
+        if (!bilevel) {
+            for (int x = offset, end = offset + width; x < end; x++) {
+                int gray = luminance(pixels[x]);
+                pixels[x] = BLACK | (gray << 16) | (gray << 8) | gray;
+            }
+            return sum;
+        }
+        boolean leftToRight = (y & 1) == 0;
+        for (int i = 0; i < width; i++) {
+            int x = leftToRight ? i : width - 1 - i;
+            int gray = luminance(pixels[offset + x]);
+            sum += gray - sum / window;
+            int average = sum / window;
+            int blended = y > 0 ? (average + previousAverages[x]) >> 1 : average;
+            previousAverages[x] = average;
+            pixels[offset + x] = gray * 100 < blended * (100 - THRESHOLD_PERCENT) ? BLACK : WHITE;
+        }
+        return sum;
+    }
+
+    /** ITU-R BT.601 luma in integer math. */
+    static int luminance(int pixel) {
+        return (((pixel >> 16) & 0xFF) * 77 + ((pixel >> 8) & 0xFF) * 151 + (pixel & 0xFF) * 28) >> 8;
+    }
+
+    private static int[][] rows(int width) {
+        int[][] rows = ROWS.get();
+        if (rows == null || rows[0].length < width) {
+            rows = new int[][] { new int[width], new int[width] };
+            ROWS.set(rows);
+        }
+        return rows;
+    }
+}
@@ -1,35 +1,28 @@
 package com.reactnativedocumentscanner;
 
 import android.app.Activity;
+import android.content.ComponentCallbacks2;
+import android.content.ContentResolver;
+import android.content.res.Configuration;
+import android.content.res.AssetFileDescriptor;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.net.Uri;
-import android.util.Base64;
-import android.view.View;
-import android.view.ViewGroup;
-import android.widget.Button;
-import android.widget.LinearLayout;
-import android.widget.HorizontalScrollView;
-import android.widget.ImageView;
-import android.widget.FrameLayout;
-import android.graphics.Color;
-import android.view.Gravity;
-import android.widget.TextView;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Base64;
 
 import androidx.activity.ComponentActivity;
-import androidx.activity.result.ActivityResultLauncher;
-import androidx.activity.result.IntentSenderRequest;
-import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.annotation.NonNull;
 
+import com.facebook.react.bridge.LifecycleEventListener;
 import com.facebook.react.bridge.Promise;
 import com.facebook.react.bridge.ReactApplicationContext;
 import com.facebook.react.bridge.ReactContextBaseJavaModule;
 import com.facebook.react.bridge.ReactMethod;
 import com.facebook.react.bridge.ReadableMap;
-import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMapKeySetIterator;
 import com.facebook.react.bridge.WritableArray;
 import com.facebook.react.bridge.WritableMap;
 import com.facebook.react.bridge.WritableNativeArray;
@@ -37,29 +30,125 @@ import com.facebook.react.bridge.WritableNativeMap;
 import com.facebook.react.module.annotations.ReactModule;
 import com.facebook.react.modules.core.DeviceEventManagerModule;
 
-import com.google.mlkit.vision.documentscanner.GmsDocumentScanner;
-import com.google.mlkit.vision.documentscanner.GmsDocumentScannerOptions;
-import com.google.mlkit.vision.documentscanner.GmsDocumentScanning;
 import com.google.mlkit.vision.documentscanner.GmsDocumentScanningResult;
 import com.google.mlkit.vision.documentscanner.GmsDocumentScanningResult.Page;
 
-import java.io.ByteArrayOutputStream;
-import java.io.FileNotFoundException;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Objects;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @ReactModule(name = DocumentScannerModule.NAME)
-public class DocumentScannerModule extends ReactContextBaseJavaModule {
+public class DocumentScannerModule extends ReactContextBaseJavaModule implements LifecycleEventListener {
     public static final String NAME = "DocumentScanner";
 
     // ✅ OVERLAY MANAGEMENT
-    private FrameLayout customOverlayContainer;
-    private Activity currentScannerActivity;
-    private ReadableArray thumbnailsData = null;
     private Handler mainHandler = new Handler(Looper.getMainLooper());
+    private ThumbnailLoader thumbnailLoader;
+    private final OverlayController overlayController;
+    private volatile long lastOverlayLatencyMs = -1;
+
+    // ✅ SCAN METRICS
+    private final ScanMetricsRecorder scanMetricsRecorder = new ScanMetricsRecorder();
+
+    // ✅ SCAN SESSIONS
+    private final ScanSessionScheduler scanSessionScheduler = new ScanSessionScheduler();
+
+    // ✅ PAGE POST-PROCESSING
+    private final PageProcessingPipeline pageProcessingPipeline = new PageProcessingPipeline();
+    private final ScannerSessionManager scannerSessionManager = new ScannerSessionManager();
+    private final PageBufferPool pageBufferPool = new PageBufferPool(PageBufferPool.defaultMaxBytes());
+    private final QualitySearch qualitySearch = new QualitySearch(pageBufferPool);
+    private final PageTranscoder<Bitmap> pageTranscoder = new PageTranscoder<>(new BitmapPageCodec(pageBufferPool, qualitySearch));
+    private final ResultFileCache resultFileCache;
+    private final PageHandleTable pageHandleTable = new PageHandleTable();
+    // Result cache files committed by materializePage runs in flight, one set per run
+    private final List<Set<File>> materializingFiles = new ArrayList<>();
+    // Eviction only deletes files that no scan, handle or materialization refers to
+    private final ResultFileCache.References cacheReferences = files -> {
+        for (ScanSession session : scanSessionScheduler.getSessions()) {
+            synchronized (session.cachedFiles) {
+                files.addAll(session.cachedFiles);
+            }
+        }
+        synchronized (materializingFiles) {
+            for (Set<File> cacheFiles : materializingFiles) {
+                synchronized (cacheFiles) {
+                    files.addAll(cacheFiles);
+                }
+            }
+        }
+        pageHandleTable.collectFiles(files);
+    };
+    // materializePage calls waiting on a run for the same handle and options
+    private final Map<String, List<Promise>> pendingMaterializations = new HashMap<>();
+    private final UploadQueue uploadQueue;
+    private final MemoryGovernor memoryGovernor;
+    private final ComponentCallbacks2 memoryCallbacks = new ComponentCallbacks2() {
+        @Override
+        public void onTrimMemory(int level) {
+            memoryGovernor.onTrimMemory(level);
+        }
+
+        @Override
+        public void onConfigurationChanged(@NonNull Configuration newConfig) {}
+
+        @Override
+        public void onLowMemory() {
+            memoryGovernor.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+        }
+    };
 
     public DocumentScannerModule(ReactApplicationContext reactContext) {
         super(reactContext);
+        resultFileCache = new ResultFileCache(reactContext.getCacheDir());
+        memoryGovernor = new MemoryGovernor(reactContext, pageBufferPool, this::trimThumbnails);
+        overlayController = new OverlayController(reactContext, new OverlayController.Listener() {
+            @Override
+            public void onOverlayEvent(String eventName, WritableMap eventData) {
+                sendEvent(eventName, eventData);
+            }
+
+            @Override
+            public void onOverlayVisible(long latencyMs) {
+                lastOverlayLatencyMs = latencyMs;
+                ScanSession session = scanSessionScheduler.getScanningSession();
+                if (session != null) {
+                    session.metrics.onOverlayVisible(latencyMs);
+                }
+            }
+        }, this::getThumbnailLoader);
+        uploadQueue = new UploadQueue(new File(reactContext.getFilesDir(), UploadQueue.DIRECTORY), new UploadQueue.Listener() {
+            @Override
+            public void onUploadProgress(UploadQueue.Entry entry) {
+                sendEvent("onUploadProgress", toUploadEntryMap(entry));
+            }
+
+            @Override
+            public void onBatchFinished(String batchId, int failed) {
+                WritableMap eventData = new WritableNativeMap();
+                eventData.putString("batchId", batchId);
+                eventData.putInt("failed", failed);
+                sendEvent("onUploadBatchCompleted", eventData);
+            }
+        });
+        // Picks up uploads an earlier process left unfinished
+        uploadQueue.start();
+        reactContext.addLifecycleEventListener(this);
+        reactContext.getApplicationContext().registerComponentCallbacks(memoryCallbacks);
     }
 
     @Override
@@ -68,6 +157,76 @@ public class DocumentScannerModule extends ReactContextBaseJavaModule {
         return NAME;
     }
 
+    @Override
+    public void onHostResume() {}
+
+    @Override
+    public void onHostPause() {}
+
+    @Override
+    public void onHostDestroy() {
+        mainHandler.post(overlayController::release);
+        // The scanner's result can't come back to a destroyed activity's launcher
+        for (ScanSession session : scanSessionScheduler.abandonWaiting()) {
+            if (session.reject("ACTIVITY_NOT_AVAILABLE", "The host activity was destroyed")) {
+                finishScanMetrics(session.metrics, "error", -1, false);
+            }
+        }
+        pageHandleTable.releaseAll();
+        scannerSessionManager.releaseLauncher();
+        pageBufferPool.clear();
+    }
+
+    @Override
+    public void onCatalystInstanceDestroy() {
+        getReactApplicationContext().removeLifecycleEventListener(this);
+        getReactApplicationContext().getApplicationContext().unregisterComponentCallbacks(memoryCallbacks);
+        pageProcessingPipeline.shutdown();
+        qualitySearch.shutdown();
+        uploadQueue.shutdown();
+        pageHandleTable.releaseAll();
+        pageBufferPool.clear();
+        synchronized (this) {
+            if (thumbnailLoader != null) {
+                thumbnailLoader.shutdown();
+                thumbnailLoader = null;
+            }
+        }
+    }
+
+    private synchronized ThumbnailLoader getThumbnailLoader() {
+        if (thumbnailLoader == null) {
+            thumbnailLoader = new ThumbnailLoader(getReactApplicationContext());
+        }
+        return thumbnailLoader;
+    }
+
+    private synchronized void trimThumbnails(boolean clear) {
+        if (thumbnailLoader != null) {
+            thumbnailLoader.trimMemory(clear);
+        }
+    }
+
+    // ✅ BUFFER POOL TUNING
+    @ReactMethod
+    public void getBufferPoolStats(Promise promise) {
+        PageBufferPool.Stats stats = pageBufferPool.getStats();
+        WritableMap response = new WritableNativeMap();
+        response.putDouble("maxBytes", stats.maxBytes);
+        response.putDouble("pooledBytes", stats.pooledBytes);
+        response.putDouble("bitmapHits", stats.bitmapHits);
+        response.putDouble("bitmapMisses", stats.bitmapMisses);
+        response.putDouble("bufferHits", stats.bufferHits);
+        response.putDouble("bufferMisses", stats.bufferMisses);
+        response.putDouble("evictions", stats.evictions);
+        promise.resolve(response);
+    }
+
+    @ReactMethod
+    public void setBufferPoolMaxBytes(double maxBytes) {
+        memoryGovernor.setPoolMaxBytes((long) maxBytes);
+    }
+
     // ✅ EVENT EMISSION TO REACT NATIVE
     private void sendEvent(String eventName, WritableMap params) {
         getReactApplicationContext()
@@ -75,278 +234,1123 @@ public class DocumentScannerModule extends ReactContextBaseJavaModule {
                 .emit(eventName, params);
     }
 
-    public String getImageInBase64(Activity currentActivity, Uri croppedImageUri, int quality) throws FileNotFoundException {
-        Bitmap bitmap = BitmapFactory.decodeStream(
-            currentActivity.getContentResolver().openInputStream(croppedImageUri)
-        );
-        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-        bitmap.compress(Bitmap.CompressFormat.JPEG, quality, byteArrayOutputStream);
-        byte[] byteArray = byteArrayOutputStream.toByteArray();
-        return Base64.encodeToString(byteArray, Base64.DEFAULT);
+    public String getImageInBase64(Activity currentActivity, Uri croppedImageUri, int quality) throws IOException {
+        return getImageInBase64(currentActivity, croppedImageUri, new PageProcessingOptions(quality, 0, 0, 0, PageProcessingOptions.RESPONSE_TYPE_BASE64));
     }
 
-    @ReactMethod
-public void scanDocument(ReadableMap options, Promise promise) {
-    Activity currentActivity = getCurrentActivity();
-    if (currentActivity == null) {
-        promise.reject("ACTIVITY_NOT_AVAILABLE", "Current activity is null");
-        return;
-    }
-
-    this.currentScannerActivity = currentActivity;
-    WritableMap response = new WritableNativeMap();
-
-    GmsDocumentScannerOptions.Builder documentScannerOptionsBuilder = new GmsDocumentScannerOptions.Builder()
-            .setResultFormats(GmsDocumentScannerOptions.RESULT_FORMAT_JPEG)
-            .setScannerMode(GmsDocumentScannerOptions.SCANNER_MODE_FULL);
-
-    if (options.hasKey("maxNumDocuments")) {
-        documentScannerOptionsBuilder.setPageLimit(options.getInt("maxNumDocuments"));
-    }
-
-    // ✅ PARSE CUSTOM OVERLAY OPTIONS
-    boolean showHomeButton = false;
-    boolean showThumbnails = false;
-    boolean showPreviewButton = false;
-
-    if (options.hasKey("customOverlay")) {
-        ReadableMap customOverlay = options.getMap("customOverlay");
-        showHomeButton = customOverlay.hasKey("showHomeButton") && customOverlay.getBoolean("showHomeButton");
-        showThumbnails = customOverlay.hasKey("showThumbnails") && customOverlay.getBoolean("showThumbnails");
-        showPreviewButton = customOverlay.hasKey("showPreviewButton") && customOverlay.getBoolean("showPreviewButton");
-        
-        if (customOverlay.hasKey("thumbnails")) {
-            thumbnailsData = customOverlay.getArray("thumbnails");
-        }
-    }
-
-    // ✅ FIX: Make variables final for lambda usage
-    final boolean finalShowHomeButton = showHomeButton;
-    final boolean finalShowThumbnails = showThumbnails;
-    final boolean finalShowPreviewButton = showPreviewButton;
-    final Activity finalCurrentActivity = currentActivity;
-
-    int croppedImageQuality = options.hasKey("croppedImageQuality") ? options.getInt("croppedImageQuality") : 100;
-
-    GmsDocumentScanner scanner = GmsDocumentScanning.getClient(documentScannerOptionsBuilder.build());
-    ActivityResultLauncher<IntentSenderRequest> scannerLauncher = ((ComponentActivity) currentActivity).getActivityResultRegistry().register(
-            "document-scanner",
-            new ActivityResultContracts.StartIntentSenderForResult(),
-            result -> {
-                // ✅ CLEANUP OVERLAY WHEN SCANNER FINISHES
-                removeCustomOverlay();
-                
-                if (result.getResultCode() == Activity.RESULT_OK) {
-                    GmsDocumentScanningResult documentScanningResult = GmsDocumentScanningResult.fromActivityResultIntent(result.getData());
-                    WritableArray docScanResults = new WritableNativeArray();
-
-                    if (documentScanningResult != null) {
-                        List<Page> pages = documentScanningResult.getPages();
-                        if (pages != null) {
-                            for (Page page : pages) {
-                                Uri croppedImageUri = page.getImageUri();
-                                String croppedImageResults = croppedImageUri.toString();
-
-                                if (options.hasKey("responseType") && Objects.equals(options.getString("responseType"), "base64")) {
-                                    try {
-                                        croppedImageResults = this.getImageInBase64(finalCurrentActivity, croppedImageUri, croppedImageQuality);
-                                    } catch (FileNotFoundException error) {
-                                        promise.reject("document scan error", error.getMessage());
-                                        return;
-                                    }
-                                }
-
-                                docScanResults.pushString(croppedImageResults);
-                            }
+    String getImageInBase64(Activity currentActivity, Uri croppedImageUri, PageProcessingOptions pageOptions) throws IOException {
+        return encodePageInBase64(currentActivity.getContentResolver(), 0, croppedImageUri, pageOptions, new AtomicInteger()).payload;
+    }
+
+    private ProcessedPage encodePageInBase64(ContentResolver contentResolver, int index, Uri croppedImageUri, PageProcessingOptions pageOptions, AtomicInteger qualityHint) throws IOException {
+        PageSource source = PageDecoder.source(contentResolver, croppedImageUri);
+        byte[] chunk = pageBufferPool.acquireBuffer(StreamingBase64.CHUNK_BYTES);
+        try {
+            // ML Kit already hands us a JPEG, so at full quality and size there is nothing to gain
+            // from decoding and re-compressing it. Stream the original bytes straight into base64.
+            if (!needsReencode(contentResolver, croppedImageUri, pageOptions)) {
+                return PageTranscoder.passThroughToBase64(index, source, getContentLength(contentResolver, croppedImageUri), chunk);
+            }
+            return pageTranscoder.toBase64(index, source, pageOptions, qualityHint, chunk);
+        } finally {
+            pageBufferPool.releaseBuffer(chunk);
+        }
+    }
+
+    private static double elapsedMs(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000d;
+    }
+
+    private long getContentLength(ContentResolver contentResolver, Uri uri) {
+        try (AssetFileDescriptor descriptor = contentResolver.openAssetFileDescriptor(uri, "r")) {
+            return descriptor != null ? descriptor.getLength() : -1;
+        } catch (IOException error) {
+            return -1;
+        }
+    }
+
+    private boolean needsReencode(ContentResolver contentResolver, Uri croppedImageUri, PageProcessingOptions pageOptions) throws IOException {
+        boolean needsResize = pageOptions.hasResolutionBounds()
+            && PageDecoder.needsResize(PageDecoder.readBounds(contentResolver, croppedImageUri), pageOptions);
+        boolean overBudget = pageOptions.hasByteBudget()
+            && getContentLength(contentResolver, croppedImageUri) > pageOptions.maxBytesPerPage;
+        return pageOptions.quality < 100 || needsResize || overBudget || !pageOptions.keepsScannerFormat();
+    }
+
+    // ✅ CACHED FILE OUTPUT
+    private ProcessedPage storePageInCache(ContentResolver contentResolver, int index, Uri croppedImageUri, PageProcessingOptions pageOptions, AtomicInteger qualityHint, Set<File> cacheFiles) throws IOException {
+        ResultFileCache.Entry entry;
+        PageTranscoder.Timings timings = new PageTranscoder.Timings();
+        long writeStart;
+        if (needsReencode(contentResolver, croppedImageUri, pageOptions)) {
+            Bitmap bitmap = pageTranscoder.decode(PageDecoder.source(contentResolver, croppedImageUri), pageOptions, timings);
+            writeStart = System.nanoTime();
+            entry = resultFileCache.write(outputStream -> {
+                try (BufferedOutputStream bufferedOutputStream = new BufferedOutputStream(outputStream, StreamingBase64.CHUNK_BYTES)) {
+                    pageTranscoder.encode(bitmap, pageOptions, qualityHint, bufferedOutputStream, timings);
+                }
+            }, PageEncoder.extension(pageOptions.outputFormat), cacheFiles);
+        } else {
+            writeStart = System.nanoTime();
+            entry = resultFileCache.copy(contentResolver, croppedImageUri, "jpg", cacheFiles);
+            timings.quality = 100;
+        }
+
+        ProcessedPage processedPage = new ProcessedPage(index, Uri.fromFile(entry.file).toString(), entry.size);
+        timings.copyTo(processedPage);
+        processedPage.hash = entry.hash;
+        // Writing the file counts as compressing it
+        processedPage.compressMs = elapsedMs(writeStart);
+        return processedPage;
+    }
+
+    // ✅ PDF OUTPUT
+    private ProcessedPage writePdfPage(Activity activity, int index, Uri croppedImageUri, PageProcessingOptions pageOptions, AtomicInteger qualityHint, PdfWriter pdfWriter) throws IOException {
+        ContentResolver contentResolver = activity.getContentResolver();
+        if (!needsReencode(contentResolver, croppedImageUri, pageOptions)) {
+            // ML Kit's JPEG goes into the PDF byte for byte
+            PdfWriter.JpegInfo info;
+            try (InputStream inputStream = PageDecoder.open(contentResolver, croppedImageUri)) {
+                info = PdfWriter.readJpegInfo(inputStream);
+            }
+            long writeStart = System.nanoTime();
+            byte[] chunk = pageBufferPool.acquireBuffer(StreamingBase64.CHUNK_BYTES);
+            try {
+                pdfWriter.writePage(index, info, outputStream -> {
+                    try (InputStream inputStream = PageDecoder.open(contentResolver, croppedImageUri)) {
+                        int read;
+                        while ((read = inputStream.read(chunk)) != -1) {
+                            outputStream.write(chunk, 0, read);
                         }
                     }
+                });
+            } finally {
+                pageBufferPool.releaseBuffer(chunk);
+            }
+            ProcessedPage processedPage = new ProcessedPage(index, "", getContentLength(contentResolver, croppedImageUri));
+            processedPage.quality = 100;
+            processedPage.compressMs = elapsedMs(writeStart);
+            return processedPage;
+        }
+
+        PageTranscoder.Timings timings = new PageTranscoder.Timings();
+        Bitmap bitmap = pageTranscoder.decode(PageDecoder.source(contentResolver, croppedImageUri), pageOptions, timings);
+
+        // Encode outside the writer's lock so pages still compress in parallel
+        long compressStart = System.nanoTime();
+        PdfWriter.JpegBuffer jpegBuffer = new PdfWriter.JpegBuffer(StreamingBase64.CHUNK_BYTES);
+        pageTranscoder.encode(bitmap, pageOptions, qualityHint, jpegBuffer, timings);
+        pdfWriter.writePage(index, jpegBuffer.readInfo(), jpegBuffer::writeTo);
+
+        ProcessedPage processedPage = new ProcessedPage(index, "", jpegBuffer.size());
+        timings.copyTo(processedPage);
+        processedPage.compressMs = elapsedMs(compressStart);
+        return processedPage;
+    }
+
+    // ✅ MEMORY PRESSURE
+    /**
+     * Returns the megapixels a page may be decoded at under the current memory pressure, or
+     * 0 to decode it as asked. Lowering the resolution is reported with an
+     * onProcessingDegraded event; pages that are passed through without a decode never are.
+     */
+    private double limitDecodeUnderPressure(ScanSession session, int index, ContentResolver contentResolver, Uri croppedImageUri) throws IOException {
+        return limitDecodeUnderPressure(session.id, index, session.pageOptions, session.outputs, session.maxConcurrency, contentResolver, croppedImageUri);
+    }
+
+    private double limitDecodeUnderPressure(
+        String sessionId,
+        int index,
+        PageProcessingOptions pageOptions,
+        List<PageRenditions.Spec> outputs,
+        int maxConcurrency,
+        ContentResolver contentResolver,
+        Uri croppedImageUri
+    ) throws IOException {
+        if (outputs == null && pageOptions.isResponseType(PageProcessingOptions.RESPONSE_TYPE_IMAGE_FILE_PATH)) {
+            return 0;
+        }
+        int concurrency = maxConcurrency > 0 ? Math.min(maxConcurrency, PageProcessingPipeline.CORE_COUNT) : PageProcessingPipeline.CORE_COUNT;
+        double maxMegapixels = memoryGovernor.maxDecodeMegapixels(concurrency);
+        if (maxMegapixels <= 0) {
+            return 0;
+        }
+        if (outputs == null && !needsReencode(contentResolver, croppedImageUri, pageOptions)) {
+            return 0;
+        }
+
+        BitmapFactory.Options bounds = PageDecoder.readBounds(contentResolver, croppedImageUri);
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) {
+            return 0;
+        }
+        int[] target = outputs != null
+            ? PageRenditions.largestTarget(bounds.outWidth, bounds.outHeight, outputs)
+            : PageDecoder.computeTargetSize(bounds.outWidth, bounds.outHeight, pageOptions);
+        double requestedMegapixels = (double) target[0] * target[1] / 1_000_000d;
+        if (requestedMegapixels <= maxMegapixels) {
+            return 0;
+        }
+        sendProcessingDegradedEvent(sessionId, index, requestedMegapixels, maxMegapixels);
+        return maxMegapixels;
+    }
+
+    private void sendProcessingDegradedEvent(String sessionId, int index, double requestedMegapixels, double megapixels) {
+        MemoryGovernor.Snapshot snapshot = memoryGovernor.sample();
+        WritableMap eventData = new WritableNativeMap();
+        eventData.putString("sessionId", sessionId);
+        eventData.putInt("index", index);
+        eventData.putString("reason", "resolution");
+        eventData.putString("level", snapshot.level.name().toLowerCase(Locale.US));
+        eventData.putDouble("requestedMegapixels", requestedMegapixels);
+        eventData.putDouble("megapixels", megapixels);
+        eventData.putDouble("heapMaxBytes", snapshot.heapMaxBytes);
+        eventData.putDouble("heapHeadroomBytes", snapshot.heapHeadroomBytes);
+        eventData.putDouble("availableMemoryBytes", snapshot.availableMemoryBytes);
+        eventData.putBoolean("lowMemory", snapshot.lowMemory);
+        eventData.putBoolean("lowRamDevice", memoryGovernor.isLowRamDevice());
+        eventData.putInt("memoryClassMb", memoryGovernor.getMemoryClassMb());
+        sendEvent("onProcessingDegraded", eventData);
+    }
+
+    // ✅ MULTI-RESOLUTION OUTPUTS
+    /**
+     * Produces every rendition of {@code outputs} from one decode of the page. The first
+     * rendition doubles as the page's payload, so handles and streaming work as usual.
+     */
+    private ProcessedPage renderPage(
+        Activity activity,
+        int index,
+        Uri croppedImageUri,
+        PageProcessingOptions pageOptions,
+        List<PageRenditions.Spec> outputs,
+        double maxDecodeMegapixels,
+        Set<File> cacheFiles
+    ) throws IOException {
+        boolean toCache = pageOptions.isResponseType(PageProcessingOptions.RESPONSE_TYPE_CACHED_FILE_PATH);
+        byte[] chunk = pageBufferPool.acquireBuffer(StreamingBase64.CHUNK_BYTES);
+        long renderStart = System.nanoTime();
+        List<PageRenditions.Rendition> renditions;
+        try {
+            renditions = PageRenditions.render(
+                activity.getContentResolver(),
+                croppedImageUri,
+                outputs,
+                pageOptions.documentMode,
+                maxDecodeMegapixels,
+                pageBufferPool,
+                (spec, bitmap) -> toCache ? storeRenditionInCache(spec, bitmap, cacheFiles) : encodeRenditionInBase64(spec, bitmap, chunk)
+            );
+        } finally {
+            pageBufferPool.releaseBuffer(chunk);
+        }
+
+        PageRenditions.Rendition first = renditions.get(0);
+        ProcessedPage processedPage = new ProcessedPage(index, first.payload, first.byteCount);
+        processedPage.hash = first.hash;
+        processedPage.renditions = renditions;
+        processedPage.compressMs = elapsedMs(renderStart);
+        return processedPage;
+    }
+
+    private PageRenditions.Rendition encodeRenditionInBase64(PageRenditions.Spec spec, Bitmap bitmap, byte[] chunk) throws IOException {
+        StreamingBase64.EncodingOutputStream base64OutputStream = new StreamingBase64.EncodingOutputStream(-1, chunk);
+        PageEncoder.compress(bitmap, spec.options.outputFormat, spec.options.quality, base64OutputStream);
+        long byteCount = base64OutputStream.getByteCount();
+        return new PageRenditions.Rendition(spec.name, base64OutputStream.finish(), byteCount, bitmap.getWidth(), bitmap.getHeight(), spec.options.outputFormat);
+    }
+
+    private PageRenditions.Rendition storeRenditionInCache(PageRenditions.Spec spec, Bitmap bitmap, Set<File> cacheFiles) throws IOException {
+        ResultFileCache.Entry entry = resultFileCache.write(outputStream -> {
+            try (BufferedOutputStream bufferedOutputStream = new BufferedOutputStream(outputStream, StreamingBase64.CHUNK_BYTES)) {
+                PageEncoder.compress(bitmap, spec.options.outputFormat, spec.options.quality, bufferedOutputStream);
+            }
+        }, PageEncoder.extension(spec.options.outputFormat), cacheFiles);
+        PageRenditions.Rendition rendition = new PageRenditions.Rendition(spec.name, Uri.fromFile(entry.file).toString(), entry.size, bitmap.getWidth(), bitmap.getHeight(), spec.options.outputFormat);
+        rendition.hash = entry.hash;
+        return rendition;
+    }
+
+    private WritableMap toRenditionsMap(List<PageRenditions.Rendition> renditions) {
+        WritableMap map = new WritableNativeMap();
+        for (PageRenditions.Rendition rendition : renditions) {
+            WritableMap entry = new WritableNativeMap();
+            entry.putString("payload", rendition.payload);
+            entry.putDouble("size", rendition.byteCount);
+            entry.putInt("width", rendition.width);
+            entry.putInt("height", rendition.height);
+            entry.putString("mimeType", PageEncoder.mimeType(rendition.format));
+            if (rendition.hash != null) {
+                entry.putString("hash", rendition.hash);
+            }
+            map.putMap(rendition.name, entry);
+        }
+        return map;
+    }
+
+    /** {@code cacheFiles} collects the result cache files the page is committed to. */
+    private ProcessedPage processPage(ContentResolver contentResolver, int index, Uri croppedImageUri, PageProcessingOptions pageOptions, AtomicInteger qualityHint, Set<File> cacheFiles) throws IOException {
+        if (pageOptions.isResponseType(PageProcessingOptions.RESPONSE_TYPE_BASE64)) {
+            return encodePageInBase64(contentResolver, index, croppedImageUri, pageOptions, qualityHint);
+        }
+        if (pageOptions.isResponseType(PageProcessingOptions.RESPONSE_TYPE_CACHED_FILE_PATH)) {
+            return storePageInCache(contentResolver, index, croppedImageUri, pageOptions, qualityHint, cacheFiles);
+        }
+        return new ProcessedPage(index, croppedImageUri.toString(), getContentLength(contentResolver, croppedImageUri));
+    }
+
+    /** Completes the PDF and moves it into the result cache. */
+    private ResultFileCache.Entry finishPdf(PdfWriter pdfWriter, long resultCacheMaxBytes, Set<File> cacheFiles) throws IOException {
+        try {
+            pdfWriter.finish();
+        } finally {
+            pdfWriter.close();
+        }
+        ResultFileCache.Entry entry = resultFileCache.commit(pdfWriter.getFile(), "pdf", cacheFiles);
+        evictCachedFiles(resultCacheMaxBytes);
+        return entry;
+    }
+
+    private WritableMap toPdfMap(ResultFileCache.Entry entry, int pageCount) {
+        WritableMap pdf = new WritableNativeMap();
+        pdf.putString("path", Uri.fromFile(entry.file).toString());
+        pdf.putInt("pageCount", pageCount);
+        pdf.putDouble("size", entry.size);
+        pdf.putString("hash", entry.hash);
+        return pdf;
+    }
+
+    /** Evicts down to {@code maxBytes} without touching any file a scan, handle or materialization uses. */
+    private void evictCachedFiles(long maxBytes) {
+        resultFileCache.evict(maxBytes, cacheReferences);
+    }
+
+    // ✅ SCAN METRICS
+    private void finishScanMetrics(ScanMetrics scanMetrics, String status, long processingMs, boolean emitMetrics) {
+        scanMetrics.onFinished(status, processingMs);
+        scanMetricsRecorder.record(scanMetrics);
+        if (emitMetrics) {
+            sendEvent("onScanMetrics", scanMetrics.toWritableMap());
+        }
+    }
 
-                    response.putArray("scannedImages", docScanResults);
+    @ReactMethod
+    public void getScanMetrics(Promise promise) {
+        promise.resolve(scanMetricsRecorder.toWritableMap());
+    }
+
+    private WritableArray toCachedFilesArray(List<ProcessedPage> processedPages) {
+        WritableArray files = new WritableNativeArray();
+        for (ProcessedPage processedPage : processedPages) {
+            WritableMap file = new WritableNativeMap();
+            file.putString("path", processedPage.payload);
+            file.putDouble("size", processedPage.byteCount);
+            file.putString("hash", processedPage.hash);
+            files.pushMap(file);
+        }
+        return files;
+    }
+
+    private WritableArray toPageHandlesArray(List<ProcessedPage> processedPages) {
+        WritableArray handles = new WritableNativeArray();
+        for (ProcessedPage processedPage : processedPages) {
+            WritableMap handle = new WritableNativeMap();
+            handle.putString("handle", processedPage.handle);
+            handle.putDouble("size", pageHandleTable.getSize(processedPage.handle));
+            Uri uri = pageHandleTable.getUri(processedPage.handle);
+            if (uri != null) {
+                handle.putString("uri", uri.toString());
+            }
+            // Only lazy scans read the dimensions up front
+            int[] dimensions = pageHandleTable.getDimensions(processedPage.handle);
+            if (dimensions != null) {
+                handle.putInt("width", dimensions[0]);
+                handle.putInt("height", dimensions[1]);
+            }
+            handles.pushMap(handle);
+        }
+        return handles;
+    }
+
+    // ✅ CHUNKED PAGE READS
+    @ReactMethod
+    public void readScannedPage(String handle, double offset, int length, Promise promise) {
+        if (offset < 0 || length <= 0 || length > PageHandleTable.MAX_SLICE_BYTES) {
+            promise.reject("INVALID_RANGE", "length must be between 1 and " + PageHandleTable.MAX_SLICE_BYTES + " bytes and offset must not be negative");
+            return;
+        }
+
+        byte[] buffer = pageBufferPool.acquireBuffer(length);
+        try {
+            PageHandleTable.Slice slice = pageHandleTable.read(getReactApplicationContext().getContentResolver(), handle, (long) offset, length, buffer);
+            WritableMap response = new WritableNativeMap();
+            response.putString("data", Base64.encodeToString(slice.buffer, 0, slice.length, Base64.NO_WRAP));
+            response.putDouble("offset", offset);
+            response.putInt("length", slice.length);
+            response.putDouble("size", slice.size);
+            response.putBoolean("eof", (long) offset + slice.length >= slice.size);
+            promise.resolve(response);
+        } catch (IllegalArgumentException error) {
+            promise.reject("INVALID_HANDLE", error.getMessage());
+        } catch (IOException error) {
+            promise.reject("document scan error", error.getMessage());
+        } finally {
+            pageBufferPool.releaseBuffer(buffer);
+        }
+    }
+
+    @ReactMethod
+    public void releaseScannedPage(String handle, Promise promise) {
+        promise.resolve(pageHandleTable.release(handle));
+    }
+
+    @ReactMethod
+    public void releaseScanSession(String sessionId, Promise promise) {
+        promise.resolve(pageHandleTable.releaseSession(sessionId));
+    }
+
+    // ✅ LAZY PAGES
+    /**
+     * Settles a lazy session as soon as every page has a handle, which only takes reading
+     * each page's image header. Nothing is decoded or encoded until materializePage asks.
+     */
+    private void resolveLazyPages(ScanSession session, List<Page> pages, WritableMap response) {
+        ContentResolver contentResolver = session.getActivity().getContentResolver();
+        long start = SystemClock.elapsedRealtime();
+        session.setProcessing(pageProcessingPipeline.process(
+            pages.size(),
+            session.maxConcurrency,
+            index -> {
+                session.throwIfCancelled();
+                Uri uri = pages.get(index).getImageUri();
+                BitmapFactory.Options bounds = PageDecoder.readBounds(contentResolver, uri);
+                ProcessedPage page = new ProcessedPage(index, uri.toString(), getContentLength(contentResolver, uri));
+                page.handle = pageHandleTable.register(session.id, index, uri, page.byteCount, bounds.outWidth, bounds.outHeight);
+                return page;
+            },
+            new PageProcessingPipeline.Callback<ProcessedPage>() {
+                @Override
+                public void onComplete(List<ProcessedPage> lazyPages) {
+                    WritableArray scannedImages = new WritableNativeArray();
+                    for (ProcessedPage lazyPage : lazyPages) {
+                        scannedImages.pushString(lazyPage.payload);
+                    }
+                    response.putArray("scannedImages", scannedImages);
+                    response.putArray("pageHandles", toPageHandlesArray(lazyPages));
                     response.putString("status", "success");
-                    promise.resolve(response);
-                } else if (result.getResultCode() == Activity.RESULT_CANCELED) {
-                    response.putString("status", "cancel");
-                    promise.resolve(response);
+                    if (session.resolve(response)) {
+                        finishScanMetrics(session.metrics, "success", SystemClock.elapsedRealtime() - start, session.emitMetrics);
+                    }
+                    endScanSession(session);
+                }
+
+                @Override
+                public void onError(Throwable error) {
+                    pageHandleTable.releaseSession(session.id);
+                    if (error instanceof CancellationException) {
+                        resolveCancelled(session, response);
+                    } else if (session.reject("document scan error", error.getMessage())) {
+                        finishScanMetrics(session.metrics, "error", SystemClock.elapsedRealtime() - start, session.emitMetrics);
+                    }
+                    endScanSession(session);
                 }
             }
-    );
-
-    scanner.getStartScanIntent(currentActivity)
-        .addOnSuccessListener(intentSender -> {
-            // ✅ FIXED: Use final variables in lambda
-            if (finalShowHomeButton || finalShowThumbnails || finalShowPreviewButton) {
-                // Delay overlay injection to ensure scanner UI is ready
-                mainHandler.postDelayed(() -> {
-                    addCustomOverlayToActivity(finalCurrentActivity, finalShowHomeButton, finalShowThumbnails, finalShowPreviewButton);
-                }, 1000);
+        ));
+    }
+
+    /**
+     * Produces a page of a lazy scan, or any page handle, the way scanDocument would have
+     * with {@code options}. The result is kept with the handle, so asking again with the
+     * same options resolves right away, and identical requests in flight share one run.
+     */
+    @ReactMethod
+    public void materializePage(String handle, ReadableMap options, Promise promise) {
+        String invalidOption = PageProcessingOptions.validateMaterialization(options);
+        if (invalidOption != null) {
+            promise.reject("INVALID_OPTIONS", invalidOption);
+            return;
+        }
+        Uri uri = pageHandleTable.getUri(handle);
+        if (uri == null) {
+            promise.reject("INVALID_HANDLE", "Unknown or released page handle " + handle);
+            return;
+        }
+
+        PageProcessingOptions pageOptions = PageProcessingOptions.fromReadableMap(options);
+        long resultCacheMaxBytes = options.hasKey("resultCacheMaxBytes") ? (long) options.getDouble("resultCacheMaxBytes") : ResultFileCache.DEFAULT_MAX_BYTES;
+        String key = pageOptions.cacheKey();
+        ProcessedPage materialized = pageHandleTable.getMaterialized(handle, key);
+        if (materialized != null) {
+            // Cached files can be evicted by later scans; produce those again
+            if (materialized.hash == null || new File(Uri.parse(materialized.payload).getPath()).isFile()) {
+                promise.resolve(toMaterializedPageMap(materialized, pageOptions, true));
+                return;
             }
-            scannerLauncher.launch(new IntentSenderRequest.Builder(intentSender).build());
-        })
-        .addOnFailureListener(error -> {
+            pageHandleTable.removeMaterialized(handle, key);
+        }
+
+        String pendingKey = handle + "|" + key;
+        synchronized (pendingMaterializations) {
+            List<Promise> waiting = pendingMaterializations.get(pendingKey);
+            if (waiting != null) {
+                waiting.add(promise);
+                return;
+            }
+            waiting = new ArrayList<>();
+            waiting.add(promise);
+            pendingMaterializations.put(pendingKey, waiting);
+        }
+
+        ContentResolver contentResolver = getReactApplicationContext().getContentResolver();
+        String sessionId = pageHandleTable.getSessionId(handle);
+        int pageIndex = pageHandleTable.getIndex(handle);
+        // Protects the file until it is kept with the handle, or the caller has it
+        Set<File> cacheFiles = Collections.synchronizedSet(new HashSet<File>());
+        synchronized (materializingFiles) {
+            materializingFiles.add(cacheFiles);
+        }
+        pageProcessingPipeline.process(
+            1,
+            1,
+            ignored -> {
+                long pageStart = SystemClock.elapsedRealtime();
+                double maxDecodeMegapixels = limitDecodeUnderPressure(sessionId, pageIndex, pageOptions, null, 0, contentResolver, uri);
+                PageProcessingOptions governedOptions = maxDecodeMegapixels > 0 ? pageOptions.withMaxMegapixels(maxDecodeMegapixels) : pageOptions;
+                ProcessedPage processedPage = processPage(contentResolver, pageIndex, uri, governedOptions, new AtomicInteger(), cacheFiles);
+                processedPage.durationMs = SystemClock.elapsedRealtime() - pageStart;
+                processedPage.overBudget = pageOptions.exceedsByteBudget(processedPage.byteCount);
+                processedPage.handle = handle;
+                // A page shrunk to fit memory isn't what was asked for, so it isn't kept for later
+                if (maxDecodeMegapixels <= 0) {
+                    pageHandleTable.putMaterialized(handle, key, processedPage);
+                }
+                if (processedPage.hash != null) {
+                    evictCachedFiles(resultCacheMaxBytes);
+                }
+                return processedPage;
+            },
+            new PageProcessingPipeline.Callback<ProcessedPage>() {
+                @Override
+                public void onComplete(List<ProcessedPage> processedPages) {
+                    releaseMaterializingFiles(cacheFiles);
+                    for (Promise waiting : takePendingMaterializations(pendingKey)) {
+                        waiting.resolve(toMaterializedPageMap(processedPages.get(0), pageOptions, false));
+                    }
+                }
+
+                @Override
+                public void onError(Throwable error) {
+                    releaseMaterializingFiles(cacheFiles);
+                    for (Promise waiting : takePendingMaterializations(pendingKey)) {
+                        waiting.reject("document scan error", error.getMessage());
+                    }
+                }
+            }
+        );
+    }
+
+    private void releaseMaterializingFiles(Set<File> cacheFiles) {
+        synchronized (materializingFiles) {
+            // By identity: two runs' sets can be equal
+            for (Iterator<Set<File>> iterator = materializingFiles.iterator(); iterator.hasNext();) {
+                if (iterator.next() == cacheFiles) {
+                    iterator.remove();
+                    break;
+                }
+            }
+        }
+    }
+
+    private List<Promise> takePendingMaterializations(String pendingKey) {
+        synchronized (pendingMaterializations) {
+            List<Promise> waiting = pendingMaterializations.remove(pendingKey);
+            return waiting != null ? waiting : Collections.<Promise>emptyList();
+        }
+    }
+
+    private WritableMap toMaterializedPageMap(ProcessedPage processedPage, PageProcessingOptions pageOptions, boolean memoized) {
+        WritableMap page = new WritableNativeMap();
+        page.putString("handle", processedPage.handle);
+        page.putString("payload", processedPage.payload);
+        page.putDouble("size", processedPage.byteCount);
+        page.putString("mimeType", pageOptions.isResponseType(PageProcessingOptions.RESPONSE_TYPE_IMAGE_FILE_PATH) ? "image/jpeg" : PageEncoder.mimeType(pageOptions.outputFormat));
+        if (processedPage.quality >= 0) {
+            page.putInt("quality", processedPage.quality);
+        }
+        if (processedPage.overBudget) {
+            page.putBoolean("overBudget", true);
+        }
+        if (processedPage.hash != null) {
+            page.putString("hash", processedPage.hash);
+        }
+        page.putDouble("durationMs", processedPage.durationMs);
+        page.putBoolean("memoized", memoized);
+        return page;
+    }
+
+    // ✅ BACKGROUND UPLOADS
+    @ReactMethod
+    public void configureUploadQueue(ReadableMap config, Promise promise) {
+        if (!config.hasKey("url") || config.getString("url") == null) {
+            promise.reject("INVALID_OPTIONS", "url is required");
+            return;
+        }
+        Map<String, String> headers = new LinkedHashMap<>();
+        ReadableMap headerMap = config.hasKey("headers") ? config.getMap("headers") : null;
+        if (headerMap != null) {
+            ReadableMapKeySetIterator iterator = headerMap.keySetIterator();
+            while (iterator.hasNextKey()) {
+                String name = iterator.nextKey();
+                headers.put(name, headerMap.getString(name));
+            }
+        }
+        try {
+            uploadQueue.configure(new UploadQueue.Config(
+                config.getString("url"),
+                headers,
+                config.hasKey("parallelism") ? config.getInt("parallelism") : UploadQueue.DEFAULT_PARALLELISM,
+                config.hasKey("chunkBytes") ? config.getInt("chunkBytes") : UploadQueue.DEFAULT_CHUNK_BYTES,
+                config.hasKey("maxRetries") ? config.getInt("maxRetries") : UploadQueue.DEFAULT_MAX_RETRIES
+            ));
+            promise.resolve(null);
+        } catch (IOException error) {
             promise.reject("document scan error", error.getMessage());
-        });
-}
+        }
+    }
 
-    // ✅ INJECT CUSTOM NATIVE OVERLAY
-    private void addCustomOverlayToActivity(Activity activity, boolean showHome, boolean showThumbnails, boolean showPreview) {
-        if (activity == null) return;
+    @ReactMethod
+    public void getUploadQueueStatus(Promise promise) {
+        WritableArray entries = new WritableNativeArray();
+        for (UploadQueue.Entry entry : uploadQueue.getEntries()) {
+            entries.pushMap(toUploadEntryMap(entry));
+        }
+        WritableMap response = new WritableNativeMap();
+        response.putBoolean("configured", uploadQueue.getConfig() != null);
+        response.putArray("entries", entries);
+        promise.resolve(response);
+    }
 
-        mainHandler.post(() -> {
-            try {
-                // Get the root view (DecorView contains all views including status bar)
-                ViewGroup rootView = (ViewGroup) activity.getWindow().getDecorView();
-                
-                // Create overlay container
-                customOverlayContainer = new FrameLayout(activity);
-                FrameLayout.LayoutParams overlayParams = new FrameLayout.LayoutParams(
-                    ViewGroup.LayoutParams.MATCH_PARENT,
-                    ViewGroup.LayoutParams.MATCH_PARENT
-                );
-                
-                // Set overlay to be clickable but allow touches to pass through where there are no views
-                customOverlayContainer.setClickable(false);
-                customOverlayContainer.setFocusable(false);
-
-                // Add UI elements
-                if (showHome) {
-                    Button homeButton = createHomeButton(activity);
-                    customOverlayContainer.addView(homeButton);
+    @ReactMethod
+    public void retryFailedUploads(Promise promise) {
+        try {
+            promise.resolve(uploadQueue.retryFailed());
+        } catch (IOException error) {
+            promise.reject("document scan error", error.getMessage());
+        }
+    }
+
+    /** The pages to upload: the PDF, the cached files, or ML Kit's own pages. */
+    private List<UploadQueue.Source> toUploadSources(ScanSession session, List<Page> pages, List<ProcessedPage> processedPages, ResultFileCache.Entry pdfEntry) {
+        List<UploadQueue.Source> sources = new ArrayList<>();
+        if (pdfEntry != null) {
+            sources.add(new UploadQueue.Source(0, Uri.fromFile(pdfEntry.file), "application/pdf"));
+            return sources;
+        }
+        String outputFormat = session.outputs != null ? session.outputs.get(0).options.outputFormat : session.pageOptions.outputFormat;
+        for (ProcessedPage processedPage : processedPages) {
+            if (processedPage.hash != null) {
+                sources.add(new UploadQueue.Source(processedPage.index, Uri.parse(processedPage.payload), PageEncoder.mimeType(outputFormat)));
+            } else {
+                sources.add(new UploadQueue.Source(processedPage.index, pages.get(processedPage.index).getImageUri(), "image/jpeg"));
+            }
+        }
+        return sources;
+    }
+
+    private WritableMap toUploadEntryMap(UploadQueue.Entry entry) {
+        WritableMap map = new WritableNativeMap();
+        map.putString("id", entry.id);
+        map.putString("batchId", entry.batchId);
+        map.putInt("index", entry.index);
+        map.putString("status", entry.status.name().toLowerCase(Locale.US));
+        map.putDouble("bytesSent", entry.confirmedBytes);
+        map.putDouble("totalBytes", entry.size);
+        if (entry.error != null) {
+            map.putString("error", entry.error);
+        }
+        return map;
+    }
+
+    // ✅ PER-PAGE STREAMING EVENTS
+    private void sendPageProcessedEvent(String sessionId, ProcessedPage processedPage, int total) {
+        WritableMap eventData = new WritableNativeMap();
+        eventData.putString("sessionId", sessionId);
+        eventData.putInt("index", processedPage.index);
+        eventData.putInt("total", total);
+        eventData.putString("payload", processedPage.payload);
+        eventData.putDouble("bytes", processedPage.byteCount);
+        eventData.putDouble("durationMs", processedPage.durationMs);
+        if (processedPage.hash != null) {
+            eventData.putString("hash", processedPage.hash);
+        }
+        if (processedPage.handle != null) {
+            eventData.putString("handle", processedPage.handle);
+        }
+        if (processedPage.quality >= 0) {
+            eventData.putInt("quality", processedPage.quality);
+        }
+        if (processedPage.overBudget) {
+            eventData.putBoolean("overBudget", true);
+        }
+        if (processedPage.renditions != null) {
+            eventData.putMap("renditions", toRenditionsMap(processedPage.renditions));
+        }
+        sendEvent("onPageProcessed", eventData);
+    }
+
+    private void sendScanCompletedEvent(String sessionId, String status, int total, long durationMs, String errorMessage) {
+        WritableMap eventData = new WritableNativeMap();
+        eventData.putString("sessionId", sessionId);
+        eventData.putString("status", status);
+        eventData.putInt("total", total);
+        eventData.putDouble("durationMs", durationMs);
+        if (errorMessage != null) {
+            eventData.putString("error", errorMessage);
+        }
+        sendEvent("onScanCompleted", eventData);
+    }
+
+    // ✅ SCAN SESSIONS
+    @ReactMethod
+    public void scanDocument(ReadableMap options, Promise promise) {
+        String invalidOption = PageProcessingOptions.validate(options);
+        if (invalidOption != null) {
+            promise.reject("INVALID_OPTIONS", invalidOption);
+            return;
+        }
+
+        String sessionId;
+        if (options.hasKey("sessionId")) {
+            sessionId = options.getString("sessionId");
+            // Handles are named after their session, so the new pages would take over the old handles
+            if (pageHandleTable.hasSession(sessionId)) {
+                promise.reject("INVALID_OPTIONS", "Scan session " + sessionId + " still has page handles; release them with releaseScanSession first");
+                return;
+            }
+        } else {
+            do {
+                sessionId = scanSessionScheduler.nextSessionId();
+            } while (pageHandleTable.hasSession(sessionId));
+        }
+        String policy = options.hasKey("concurrentScanPolicy") ? options.getString("concurrentScanPolicy") : ScanSessionScheduler.POLICY_REJECT;
+        ScanSession session = new ScanSession(sessionId, options, promise);
+        switch (scanSessionScheduler.submit(session, policy)) {
+            case START:
+                startScanSession(session);
+                break;
+            case QUEUED:
+                // Started by the scheduler once the scanner is free
+                break;
+            case BUSY:
+                promise.reject("SCAN_IN_PROGRESS", "Another scan session is in progress");
+                break;
+            case DUPLICATE_ID:
+                promise.reject("INVALID_OPTIONS", "Scan session " + sessionId + " already exists");
+                break;
+        }
+    }
+
+    /**
+     * Cancels a scan session. A queued session is dropped, a session whose scanner is open
+     * is discarded when the scanner closes, and a session that is processing pages stops
+     * right away. Each resolves its scanDocument promise with status "cancel".
+     */
+    @ReactMethod
+    public void cancelProcessing(String sessionId, Promise promise) {
+        ScanSession session = scanSessionScheduler.get(sessionId);
+        if (session == null) {
+            promise.resolve(false);
+            return;
+        }
+        if (scanSessionScheduler.dequeue(session)) {
+            resolveCancelled(session, new WritableNativeMap());
+        } else {
+            session.cancel();
+        }
+        promise.resolve(true);
+    }
+
+    private void resolveCancelled(ScanSession session, WritableMap response) {
+        response.putString("sessionId", session.id);
+        response.putString("status", "cancel");
+        if (session.resolve(response)) {
+            finishScanMetrics(session.metrics, "cancel", -1, session.emitMetrics);
+        }
+    }
+
+    /** Unregisters a settled session and starts the next queued one if it was waiting for the scanner. */
+    private void endScanSession(ScanSession session) {
+        ScanSession next = scanSessionScheduler.finish(session);
+        if (next != null) {
+            mainHandler.post(() -> startScanSession(next));
+        }
+    }
+
+    private void startScanSession(ScanSession session) {
+        Activity currentActivity = getCurrentActivity();
+        if (currentActivity == null) {
+            if (session.reject("ACTIVITY_NOT_AVAILABLE", "Current activity is null")) {
+                finishScanMetrics(session.metrics, "error", -1, session.emitMetrics);
+            }
+            endScanSession(session);
+            return;
+        }
+
+        session.setActivity(currentActivity);
+        ReadableMap options = session.options;
+        WritableMap response = new WritableNativeMap();
+        response.putString("sessionId", session.id);
+
+        // ✅ PARSE CUSTOM OVERLAY OPTIONS
+        boolean showHomeButton = false;
+        boolean showThumbnails = false;
+        boolean showPreviewButton = false;
+
+        if (options.hasKey("customOverlay")) {
+            ReadableMap customOverlay = options.getMap("customOverlay");
+            showHomeButton = customOverlay.hasKey("showHomeButton") && customOverlay.getBoolean("showHomeButton");
+            showThumbnails = customOverlay.hasKey("showThumbnails") && customOverlay.getBoolean("showThumbnails");
+            showPreviewButton = customOverlay.hasKey("showPreviewButton") && customOverlay.getBoolean("showPreviewButton");
+        }
+
+        // ✅ FIX: Make variables final for lambda usage
+        final boolean finalShowHomeButton = showHomeButton;
+        final boolean finalShowThumbnails = showThumbnails;
+        final boolean finalShowPreviewButton = showPreviewButton;
+        final Activity finalCurrentActivity = currentActivity;
+
+        boolean emitMetrics = session.emitMetrics;
+        ScanMetrics scanMetrics = session.metrics;
+
+        ScannerSessionManager.ResultListener resultListener = result -> {
+            // ✅ CLEANUP OVERLAY WHEN SCANNER FINISHES
+            removeCustomOverlay();
+            scanMetrics.onScannerResult();
+
+            // The scanner is free again even though this session may still have pages to process
+            ScanSession next = scanSessionScheduler.releaseScanner(session);
+            if (next != null) {
+                mainHandler.post(() -> startScanSession(next));
+            }
+
+            if (session.isCancelled()) {
+                resolveCancelled(session, response);
+                endScanSession(session);
+            } else if (result.getResultCode() == Activity.RESULT_OK) {
+                GmsDocumentScanningResult documentScanningResult = GmsDocumentScanningResult.fromActivityResultIntent(result.getData());
+                List<Page> pages = documentScanningResult != null ? documentScanningResult.getPages() : null;
+                List<Page> scannedPages = pages != null ? pages : Collections.<Page>emptyList();
+                if (session.detectDuplicates) {
+                    detectDuplicatePages(session, scannedPages, response);
+                } else {
+                    processScannedPages(session, scannedPages, response);
+                }
+            } else if (result.getResultCode() == Activity.RESULT_CANCELED) {
+                response.putString("status", "cancel");
+                if (session.resolve(response)) {
+                    finishScanMetrics(scanMetrics, "cancel", -1, emitMetrics);
                 }
+                endScanSession(session);
+            } else {
+                if (session.reject("document scan error", "The scanner finished with unexpected result code " + result.getResultCode())) {
+                    finishScanMetrics(scanMetrics, "error", -1, emitMetrics);
+                }
+                endScanSession(session);
+            }
+        };
+
+        scannerSessionManager.requestStartIntent(
+            currentActivity,
+            options,
+            (intentSender, latencyMs, cold) -> {
+                scanMetrics.onStartIntent(latencyMs);
 
-                if (showThumbnails && thumbnailsData != null) {
-                    HorizontalScrollView thumbnailsStrip = createThumbnailsStrip(activity);
-                    customOverlayContainer.addView(thumbnailsStrip);
+                // ✅ FIXED: Use final variables in lambda
+                if (finalShowHomeButton || finalShowThumbnails || finalShowPreviewButton) {
+                    // The overlay attaches itself once the scanner UI actually shows up
+                    overlayController.show(finalCurrentActivity, finalShowHomeButton, finalShowThumbnails, finalShowPreviewButton, session.thumbnailUris);
                 }
+                scannerSessionManager.launch((ComponentActivity) finalCurrentActivity, intentSender, resultListener);
+            },
+            error -> {
+                if (session.reject("document scan error", error.getMessage())) {
+                    finishScanMetrics(scanMetrics, "error", -1, emitMetrics);
+                }
+                endScanSession(session);
+            }
+        );
+    }
+
+    /** Encodes the scanned pages off the UI thread and settles the session with the result. */
+    private void processScannedPages(ScanSession session, List<Page> finalPages, WritableMap response) {
+        if (session.lazy) {
+            resolveLazyPages(session, finalPages, response);
+            return;
+        }
+        Activity finalCurrentActivity = session.getActivity();
+        String sessionId = session.id;
+        PageProcessingOptions pageOptions = session.pageOptions;
+        boolean returnCachedFiles = pageOptions.isResponseType(PageProcessingOptions.RESPONSE_TYPE_CACHED_FILE_PATH);
+        boolean returnPdf = pageOptions.isResponseType(PageProcessingOptions.RESPONSE_TYPE_PDF);
+        long resultCacheMaxBytes = session.resultCacheMaxBytes;
+        boolean streamPages = session.streamPages;
+        boolean returnHandles = session.returnHandles;
+        ScanMetrics scanMetrics = session.metrics;
+
+        final PdfWriter pdfWriter;
+        try {
+            pdfWriter = returnPdf ? new PdfWriter(resultFileCache.newTemporaryFile(), finalPages.size()) : null;
+        } catch (IOException error) {
+            if (session.reject("document scan error", error.getMessage())) {
+                finishScanMetrics(scanMetrics, "error", -1, session.emitMetrics);
+            }
+            endScanSession(session);
+            return;
+        }
+
+        // ✅ PROCESS PAGES OFF THE UI THREAD, KEEPING PAGE ORDER
+        final long processingStart = SystemClock.elapsedRealtime();
+        final AtomicInteger qualityHint = new AtomicInteger();
+        session.setProcessing(pageProcessingPipeline.process(
+            finalPages.size(),
+            session.maxConcurrency,
+            memoryGovernor::limitConcurrency,
+            index -> {
+                session.throwIfCancelled();
+                long pageStart = SystemClock.elapsedRealtime();
+                Uri croppedImageUri = finalPages.get(index).getImageUri();
+                double maxDecodeMegapixels = limitDecodeUnderPressure(session, index, finalCurrentActivity.getContentResolver(), croppedImageUri);
+                PageProcessingOptions governedOptions = maxDecodeMegapixels > 0 ? pageOptions.withMaxMegapixels(maxDecodeMegapixels) : pageOptions;
+                ProcessedPage processedPage;
+                if (pdfWriter != null) {
+                    processedPage = writePdfPage(finalCurrentActivity, index, croppedImageUri, governedOptions, qualityHint, pdfWriter);
+                } else if (session.outputs != null) {
+                    processedPage = renderPage(finalCurrentActivity, index, croppedImageUri, pageOptions, session.outputs, maxDecodeMegapixels, session.cachedFiles);
+                } else {
+                    processedPage = processPage(finalCurrentActivity.getContentResolver(), index, croppedImageUri, governedOptions, qualityHint, session.cachedFiles);
+                }
+                processedPage.durationMs = SystemClock.elapsedRealtime() - pageStart;
+                processedPage.overBudget = pageOptions.exceedsByteBudget(processedPage.byteCount);
+                session.throwIfCancelled();
+                if (returnHandles) {
+                    // Handles read the file the page ended up in, or ML Kit's own file
+                    Uri pageUri = processedPage.hash != null ? Uri.parse(processedPage.payload) : finalPages.get(index).getImageUri();
+                    long pageSize = processedPage.hash != null ? processedPage.byteCount : getContentLength(finalCurrentActivity.getContentResolver(), pageUri);
+                    processedPage.handle = pageHandleTable.register(sessionId, index, pageUri, pageSize);
+                }
+                scanMetrics.onPageProcessed(processedPage);
+                if (streamPages) {
+                    scanMetrics.onBridgePayload(processedPage.payload);
+                    sendPageProcessedEvent(sessionId, processedPage, finalPages.size());
+                }
+                return processedPage;
+            },
+            new PageProcessingPipeline.Callback<ProcessedPage>() {
+                @Override
+                public void onComplete(List<ProcessedPage> processedPages) {
+                    ResultFileCache.Entry pdfEntry = null;
+                    if (pdfWriter != null) {
+                        try {
+                            pdfEntry = finishPdf(pdfWriter, resultCacheMaxBytes, session.cachedFiles);
+                        } catch (IOException | RuntimeException error) {
+                            onError(error);
+                            return;
+                        }
+                        response.putMap("pdf", toPdfMap(pdfEntry, processedPages.size()));
+                    }
+
+                    if (returnCachedFiles) {
+                        evictCachedFiles(resultCacheMaxBytes);
+                        if (!streamPages) {
+                            response.putArray("files", toCachedFilesArray(processedPages));
+                        }
+                    }
+
+                    if (pageOptions.hasByteBudget() && !streamPages) {
+                        WritableArray qualities = new WritableNativeArray();
+                        WritableArray overBudget = new WritableNativeArray();
+                        for (ProcessedPage processedPage : processedPages) {
+                            qualities.pushInt(processedPage.quality);
+                            overBudget.pushBoolean(processedPage.overBudget);
+                        }
+                        response.putArray("qualities", qualities);
+                        response.putArray("overBudget", overBudget);
+                    }
+
+                    if (returnHandles && !streamPages) {
+                        response.putArray("pageHandles", toPageHandlesArray(processedPages));
+                    }
+
+                    if (session.outputs != null && !streamPages) {
+                        WritableArray renditions = new WritableNativeArray();
+                        for (ProcessedPage processedPage : processedPages) {
+                            renditions.pushMap(toRenditionsMap(processedPage.renditions));
+                        }
+                        response.putArray("renditions", renditions);
+                    }
 
-                if (showPreview) {
-                    Button previewButton = createPreviewButton(activity);
-                    customOverlayContainer.addView(previewButton);
+                    if (session.upload) {
+                        try {
+                            uploadQueue.enqueueBatch(getReactApplicationContext().getContentResolver(), sessionId, toUploadSources(session, finalPages, processedPages, pdfEntry));
+                        } catch (IOException | RuntimeException error) {
+                            onError(error);
+                            return;
+                        }
+                        response.putString("uploadBatchId", sessionId);
+                    }
+
+                    if (streamPages) {
+                        sendScanCompletedEvent(sessionId, "success", processedPages.size(), SystemClock.elapsedRealtime() - processingStart, null);
+                        response.putInt("pageCount", processedPages.size());
+                    } else if (pdfWriter == null) {
+                        WritableArray docScanResults = new WritableNativeArray();
+                        for (ProcessedPage processedPage : processedPages) {
+                            scanMetrics.onBridgePayload(processedPage.payload);
+                            docScanResults.pushString(processedPage.payload);
+                        }
+                        response.putArray("scannedImages", docScanResults);
+                    }
+
+                    if (pdfWriter != null) {
+                        response.putString("mimeType", "application/pdf");
+                    } else if (!pageOptions.isResponseType(PageProcessingOptions.RESPONSE_TYPE_IMAGE_FILE_PATH)) {
+                        String outputFormat = session.outputs != null ? session.outputs.get(0).options.outputFormat : pageOptions.outputFormat;
+                        response.putString("mimeType", PageEncoder.mimeType(outputFormat));
+                    }
+
+                    response.putString("status", "success");
+                    if (session.resolve(response)) {
+                        finishScanMetrics(scanMetrics, "success", SystemClock.elapsedRealtime() - processingStart, session.emitMetrics);
+                    }
+                    endScanSession(session);
                 }
 
-                // Add overlay to root view
-                rootView.addView(customOverlayContainer, overlayParams);
-                
-            } catch (Exception e) {
-                e.printStackTrace();
+                @Override
+                public void onError(Throwable error) {
+                    if (pdfWriter != null) {
+                        pdfWriter.close();
+                    }
+                    boolean cancelled = error instanceof CancellationException;
+                    if (cancelled) {
+                        // Nobody will read the pages of a cancelled session
+                        pageHandleTable.releaseSession(sessionId);
+                    }
+                    if (streamPages) {
+                        sendScanCompletedEvent(sessionId, cancelled ? "cancel" : "error", finalPages.size(), SystemClock.elapsedRealtime() - processingStart, cancelled ? null : error.getMessage());
+                    }
+                    if (cancelled) {
+                        resolveCancelled(session, response);
+                    } else if (session.reject("document scan error", error.getMessage())) {
+                        finishScanMetrics(scanMetrics, "error", SystemClock.elapsedRealtime() - processingStart, session.emitMetrics);
+                    }
+                    endScanSession(session);
+                }
             }
-        });
+        ));
     }
 
-    // ✅ CREATE HOME BUTTON
-    private Button createHomeButton(Activity activity) {
-        Button homeButton = new Button(activity);
-        homeButton.setText("🏠");
-        homeButton.setTextSize(20);
-        homeButton.setBackgroundColor(Color.parseColor("#80000000"));
-        homeButton.setTextColor(Color.WHITE);
-        
-        FrameLayout.LayoutParams params = new FrameLayout.LayoutParams(120, 120);
-        params.leftMargin = 40;
-        params.topMargin = 100;
-        params.gravity = Gravity.TOP | Gravity.LEFT;
-        homeButton.setLayoutParams(params);
-        
-        homeButton.setOnClickListener(v -> {
-            WritableMap eventData = new WritableNativeMap();
-            sendEvent("onHomeButtonPressed", eventData);
-        });
-        
-        return homeButton;
-    }
-
-    // ✅ CREATE THUMBNAILS STRIP
-    private HorizontalScrollView createThumbnailsStrip(Activity activity) {
-        HorizontalScrollView scrollView = new HorizontalScrollView(activity);
-        scrollView.setBackgroundColor(Color.parseColor("#80000000"));
-        
-        LinearLayout container = new LinearLayout(activity);
-        container.setOrientation(LinearLayout.HORIZONTAL);
-        container.setPadding(20, 20, 20, 20);
-        
-        // Add thumbnail images from thumbnailsData
-        if (thumbnailsData != null) {
-            for (int i = 0; i < thumbnailsData.size(); i++) {
-                ReadableMap thumbnail = thumbnailsData.getMap(i);
-                if (thumbnail != null && thumbnail.hasKey("uri")) {
-                    View thumbnailView = createThumbnailView(activity, thumbnail.getString("uri"), i);
-                    container.addView(thumbnailView);
+    /**
+     * Hashes every page from a tiny decode and groups near-identical ones, then processes
+     * either all pages or, when dropping, only the first page of each group. Groups and
+     * dropped pages use the scanner's page indices; when dropping, {@code keptPages} maps
+     * each processed page back to its scanner index.
+     */
+    private void detectDuplicatePages(ScanSession session, List<Page> scannedPages, WritableMap response) {
+        ContentResolver contentResolver = session.getActivity().getContentResolver();
+        session.setProcessing(pageProcessingPipeline.process(
+            scannedPages.size(),
+            session.maxConcurrency,
+            index -> {
+                session.throwIfCancelled();
+                return PageHasher.dHash(contentResolver, scannedPages.get(index).getImageUri());
+            },
+            new PageProcessingPipeline.Callback<Long>() {
+                @Override
+                public void onComplete(List<Long> hashes) {
+                    Set<Integer> duplicates = new TreeSet<>();
+                    WritableArray duplicateGroups = new WritableNativeArray();
+                    for (List<Integer> group : PageHasher.groupDuplicates(hashes, session.duplicateMaxDistance)) {
+                        WritableArray duplicateGroup = new WritableNativeArray();
+                        for (int index : group) {
+                            duplicateGroup.pushInt(index);
+                        }
+                        duplicateGroups.pushArray(duplicateGroup);
+                        duplicates.addAll(group.subList(1, group.size()));
+                    }
+                    response.putArray("duplicateGroups", duplicateGroups);
+
+                    if (!session.dropDuplicates) {
+                        processScannedPages(session, scannedPages, response);
+                        return;
+                    }
+                    List<Page> keptPages = new ArrayList<>();
+                    WritableArray keptIndices = new WritableNativeArray();
+                    WritableArray droppedPages = new WritableNativeArray();
+                    for (int index = 0; index < scannedPages.size(); index++) {
+                        if (duplicates.contains(index)) {
+                            droppedPages.pushInt(index);
+                        } else {
+                            keptPages.add(scannedPages.get(index));
+                            keptIndices.pushInt(index);
+                        }
+                    }
+                    // Everything processed from here on is indexed by position among the kept pages
+                    response.putArray("keptPages", keptIndices);
+                    response.putArray("droppedPages", droppedPages);
+                    processScannedPages(session, keptPages, response);
+                }
+
+                @Override
+                public void onError(Throwable error) {
+                    if (error instanceof CancellationException) {
+                        resolveCancelled(session, response);
+                    } else if (session.reject("document scan error", error.getMessage())) {
+                        finishScanMetrics(session.metrics, "error", -1, session.emitMetrics);
+                    }
+                    endScanSession(session);
                 }
             }
+        ));
+    }
+
+    // ✅ SCANNER PRE-WARMING
+    @ReactMethod
+    public void prewarm(ReadableMap options, Promise promise) {
+        Activity currentActivity = getCurrentActivity();
+        if (currentActivity == null) {
+            promise.reject("ACTIVITY_NOT_AVAILABLE", "Current activity is null");
+            return;
         }
-        
-        FrameLayout.LayoutParams params = new FrameLayout.LayoutParams(
-            ViewGroup.LayoutParams.MATCH_PARENT,
-            160
-        );
-        params.bottomMargin = 200;
-        params.gravity = Gravity.BOTTOM;
-        scrollView.setLayoutParams(params);
-        scrollView.addView(container);
-        
-        return scrollView;
-    }
-
-    // ✅ CREATE INDIVIDUAL THUMBNAIL
-    private View createThumbnailView(Activity activity, String uri, int index) {
-        FrameLayout container = new FrameLayout(activity);
-        
-        LinearLayout.LayoutParams params = new LinearLayout.LayoutParams(120, 120);
-        params.rightMargin = 16;
-        container.setLayoutParams(params);
-        container.setBackgroundColor(Color.parseColor("#80FFFFFF"));
-        
-        // Create a simple placeholder button (in production, you'd load the actual image)
-        Button thumbnailButton = new Button(activity);
-        thumbnailButton.setText("📷");
-        thumbnailButton.setTextSize(16);
-        thumbnailButton.setBackgroundColor(Color.TRANSPARENT);
-        
-        FrameLayout.LayoutParams buttonParams = new FrameLayout.LayoutParams(
-            ViewGroup.LayoutParams.MATCH_PARENT,
-            ViewGroup.LayoutParams.MATCH_PARENT
+
+        scannerSessionManager.requestStartIntent(
+            currentActivity,
+            options,
+            (intentSender, latencyMs, cold) -> {
+                WritableMap response = new WritableNativeMap();
+                response.putDouble("latencyMs", latencyMs);
+                response.putBoolean("cold", cold);
+                promise.resolve(response);
+            },
+            error -> {
+                promise.reject("document scan error", error.getMessage());
+            }
         );
-        thumbnailButton.setLayoutParams(buttonParams);
-        
-        thumbnailButton.setOnClickListener(v -> {
-            WritableMap eventData = new WritableNativeMap();
-            eventData.putInt("index", index);
-            eventData.putString("uri", uri);
-            sendEvent("onThumbnailPressed", eventData);
-        });
-        
-        container.addView(thumbnailButton);
-        return container;
-    }
-
-    // ✅ CREATE PREVIEW BUTTON
-    private Button createPreviewButton(Activity activity) {
-        Button previewButton = new Button(activity);
-        previewButton.setText("📄");
-        previewButton.setTextSize(20);
-        previewButton.setBackgroundColor(Color.parseColor("#CC0066CC"));
-        previewButton.setTextColor(Color.WHITE);
-        
-        FrameLayout.LayoutParams params = new FrameLayout.LayoutParams(120, 120);
-        params.rightMargin = 40;
-        params.bottomMargin = 240;
-        params.gravity = Gravity.BOTTOM | Gravity.RIGHT;
-        previewButton.setLayoutParams(params);
-        
-        previewButton.setOnClickListener(v -> {
-            WritableMap eventData = new WritableNativeMap();
-            sendEvent("onPreviewButtonPressed", eventData);
-        });
-        
-        return previewButton;
+    }
+
+    @ReactMethod
+    public void getScannerLaunchStats(Promise promise) {
+        ScannerSessionManager.LaunchStats stats = scannerSessionManager.getLaunchStats();
+        WritableMap response = new WritableNativeMap();
+        response.putInt("cachedClients", stats.cachedClients);
+        response.putDouble("lastColdLatencyMs", stats.lastColdLatencyMs);
+        response.putDouble("lastWarmLatencyMs", stats.lastWarmLatencyMs);
+        response.putDouble("averageWarmLatencyMs", stats.averageWarmLatencyMs);
+        response.putInt("warmLaunchCount", stats.warmLaunchCount);
+        response.putDouble("lastOverlayLatencyMs", lastOverlayLatencyMs);
+        promise.resolve(response);
     }
 
     // ✅ CLEANUP OVERLAY
     private void removeCustomOverlay() {
-        mainHandler.post(() -> {
-            if (customOverlayContainer != null && customOverlayContainer.getParent() != null) {
-                ((ViewGroup) customOverlayContainer.getParent()).removeView(customOverlayContainer);
-                customOverlayContainer = null;
-            }
-        });
+        mainHandler.post(overlayController::hide);
     }
 }
@@ -0,0 +1,219 @@
+package com.reactnativedocumentscanner;
+
+import android.app.ActivityManager;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.os.Build;
+import android.os.SystemClock;
+
+/**
+ * Keeps page processing within the memory the device has left, instead of letting a
+ * full-resolution decode tip the process into an OutOfMemoryError or a low-memory kill.
+ *
+ * The pressure level comes from how much of the Java heap is still free, from how close
+ * the system is to killing processes ({@link ActivityManager.MemoryInfo}) and from recent
+ * {@code onTrimMemory} signals, whichever is worst. Bitmap pixels live on the Java heap
+ * before Android 8 and in native memory from then on, so the room a decode may take is
+ * measured against the matching one. Under pressure the governor lowers how many pages
+ * are processed at once, caps the resolution pages are decoded at so one decode fits the
+ * free heap, and shrinks the buffer pool. Everything goes back to what the app asked for
+ * once pressure subsides.
+ */
+class MemoryGovernor {
+    enum Level { NORMAL, MODERATE, CRITICAL }
+
+    /** Memory held outside the pool that can be given back, such as cached thumbnails. */
+    interface Trimmable {
+        void trimMemory(boolean clear);
+    }
+
+    // Shares of the heap left free below which processing backs off
+    private static final double MODERATE_HEADROOM = 0.35;
+    private static final double CRITICAL_HEADROOM = 0.15;
+    // Share of the free heap one decode may take, split between the concurrent decodes
+    private static final double MODERATE_DECODE_SHARE = 0.5;
+    private static final double CRITICAL_DECODE_SHARE = 0.25;
+    private static final long SAMPLE_INTERVAL_MS = 250;
+    // How long an onTrimMemory signal keeps counting after it arrived
+    private static final long TRIM_SIGNAL_MS = 10_000;
+    private static final int BYTES_PER_PIXEL = 4;
+
+    /** The memory figures a decision was based on. */
+    static final class Snapshot {
+        final Level level;
+        final long heapMaxBytes;
+        final long heapHeadroomBytes;
+        final long availableMemoryBytes;
+        final boolean lowMemory;
+        // What bitmaps can still be allocated from before the level gets worse
+        final long bitmapHeadroomBytes;
+
+        Snapshot(Level level, long heapMaxBytes, long heapHeadroomBytes, long availableMemoryBytes, boolean lowMemory, long bitmapHeadroomBytes) {
+            this.level = level;
+            this.heapMaxBytes = heapMaxBytes;
+            this.heapHeadroomBytes = heapHeadroomBytes;
+            this.availableMemoryBytes = availableMemoryBytes;
+            this.lowMemory = lowMemory;
+            this.bitmapHeadroomBytes = bitmapHeadroomBytes;
+        }
+    }
+
+    private final ActivityManager activityManager;
+    private final PageBufferPool pool;
+    private final Trimmable trimmable;
+    private long poolMaxBytes;
+    private Snapshot snapshot;
+    private long sampledAt;
+    private Level trimLevel = Level.NORMAL;
+    private long trimmedAt;
+
+    MemoryGovernor(Context context, PageBufferPool pool, Trimmable trimmable) {
+        this.activityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        this.pool = pool;
+        this.trimmable = trimmable;
+        this.poolMaxBytes = pool.getMaxBytes();
+    }
+
+    /** Returns the current figures, re-reading them at most every {@value #SAMPLE_INTERVAL_MS} ms. */
+    synchronized Snapshot sample() {
+        long now = SystemClock.elapsedRealtime();
+        if (snapshot != null && now - sampledAt < SAMPLE_INTERVAL_MS) {
+            return snapshot;
+        }
+
+        Runtime runtime = Runtime.getRuntime();
+        long heapMaxBytes = runtime.maxMemory();
+        long heapHeadroomBytes = heapMaxBytes - (runtime.totalMemory() - runtime.freeMemory());
+        long availableMemoryBytes = -1;
+        long systemHeadroomBytes = Long.MAX_VALUE;
+        boolean lowMemory = false;
+        if (activityManager != null) {
+            ActivityManager.MemoryInfo memoryInfo = new ActivityManager.MemoryInfo();
+            activityManager.getMemoryInfo(memoryInfo);
+            availableMemoryBytes = memoryInfo.availMem;
+            // Below the threshold the system starts killing processes
+            systemHeadroomBytes = Math.max(0, memoryInfo.availMem - memoryInfo.threshold);
+            lowMemory = memoryInfo.lowMemory || memoryInfo.availMem < memoryInfo.threshold * 2;
+        }
+        boolean nativeBitmaps = Build.VERSION.SDK_INT >= Build.VERSION_CODES.O;
+        long bitmapHeadroomBytes = nativeBitmaps ? systemHeadroomBytes : heapHeadroomBytes;
+
+        double headroom = (double) heapHeadroomBytes / heapMaxBytes;
+        Level level = Level.NORMAL;
+        if (headroom < CRITICAL_HEADROOM || (lowMemory && systemHeadroomBytes == 0)) {
+            level = Level.CRITICAL;
+        } else if (headroom < MODERATE_HEADROOM || lowMemory) {
+            level = Level.MODERATE;
+        }
+        if (now - trimmedAt < TRIM_SIGNAL_MS && trimLevel.compareTo(level) > 0) {
+            level = trimLevel;
+        }
+
+        Level previous = snapshot != null ? snapshot.level : Level.NORMAL;
+        snapshot = new Snapshot(level, heapMaxBytes, heapHeadroomBytes, availableMemoryBytes, lowMemory, bitmapHeadroomBytes);
+        sampledAt = now;
+        if (level != previous) {
+            applyPoolLimit();
+        }
+        return snapshot;
+    }
+
+    Level getLevel() {
+        return sample().level;
+    }
+
+    /**
+     * Frees pooled buffers and thumbnails in proportion to {@code level} and makes processing
+     * back off for a while. UI_HIDDEN and RUNNING_MODERATE are ignored: the first fires
+     * whenever the scanner's own activity covers the app, which is no reason to drop the
+     * buffers the scan is about to use.
+     */
+    void onTrimMemory(int level) {
+        boolean clear;
+        switch (level) {
+            case ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL:
+            case ComponentCallbacks2.TRIM_MEMORY_MODERATE:
+            case ComponentCallbacks2.TRIM_MEMORY_COMPLETE:
+                clear = true;
+                break;
+            case ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW:
+            case ComponentCallbacks2.TRIM_MEMORY_BACKGROUND:
+                clear = false;
+                break;
+            default:
+                return;
+        }
+
+        synchronized (this) {
+            trimLevel = clear ? Level.CRITICAL : Level.MODERATE;
+            trimmedAt = SystemClock.elapsedRealtime();
+            // Act on the signal now rather than at the next sample
+            snapshot = null;
+            sample();
+        }
+        if (clear) {
+            pool.clear();
+        } else {
+            pool.trimTo(pool.getMaxBytes() / 2);
+        }
+        if (trimmable != null) {
+            trimmable.trimMemory(clear);
+        }
+    }
+
+    /** Sets the pool size the app asked for; it applies in full whenever there is no pressure. */
+    synchronized void setPoolMaxBytes(long maxBytes) {
+        poolMaxBytes = Math.max(0, maxBytes);
+        applyPoolLimit();
+    }
+
+    private void applyPoolLimit() {
+        Level level = snapshot != null ? snapshot.level : Level.NORMAL;
+        switch (level) {
+            case CRITICAL:
+                pool.setMaxBytes(0);
+                break;
+            case MODERATE:
+                pool.setMaxBytes(poolMaxBytes / 4);
+                break;
+            default:
+                pool.setMaxBytes(poolMaxBytes);
+                break;
+        }
+    }
+
+    /** How many of {@code concurrency} pages may be processed at once right now. */
+    int limitConcurrency(int concurrency) {
+        switch (getLevel()) {
+            case CRITICAL:
+                return 1;
+            case MODERATE:
+                return Math.max(1, concurrency / 2);
+            default:
+                return concurrency;
+        }
+    }
+
+    /**
+     * The most megapixels one page may be decoded at while {@code concurrency} pages decode
+     * at once, or 0 when there is no pressure and pages decode at the size asked for.
+     */
+    double maxDecodeMegapixels(int concurrency) {
+        Snapshot current = sample();
+        if (current.level == Level.NORMAL) {
+            return 0;
+        }
+        double share = current.level == Level.CRITICAL ? CRITICAL_DECODE_SHARE : MODERATE_DECODE_SHARE;
+        double bytes = Math.max(0, Math.min(current.bitmapHeadroomBytes, Long.MAX_VALUE / 2)) * share / Math.max(1, limitConcurrency(concurrency));
+        // Never return 0, which would mean "no limit"
+        return Math.max(0.1, bytes / BYTES_PER_PIXEL / 1_000_000d);
+    }
+
+    boolean isLowRamDevice() {
+        return activityManager != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT && activityManager.isLowRamDevice();
+    }
+
+    int getMemoryClassMb() {
+        return activityManager != null ? activityManager.getMemoryClass() : -1;
+    }
+}
@@ -0,0 +1,356 @@
+package com.reactnativedocumentscanner;
+
+import android.app.Activity;
+import android.app.Application;
+import android.content.Context;
+import android.graphics.Color;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.view.Gravity;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
+import android.widget.Button;
+import android.widget.FrameLayout;
+import android.widget.HorizontalScrollView;
+import android.widget.ImageView;
+import android.widget.LinearLayout;
+
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeMap;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Owns the custom overlay (home button, thumbnails strip, preview button) shown on top of
+ * the scanner.
+ *
+ * The view hierarchy is built once and reused by every scan; a new scan only toggles which
+ * parts are visible and refreshes the thumbnails when they changed. Instead of waiting a
+ * fixed delay, the overlay attaches as soon as the scanner activity resumes in this
+ * process, or to the host activity's window once it loses focus to an out-of-process
+ * scanner. A window in another process can't be drawn over, so in the second case the
+ * overlay sits behind the scanner until it closes and is never reported as visible. All
+ * methods must be called on the main thread.
+ */
+class OverlayController implements Application.ActivityLifecycleCallbacks {
+    static final int THUMBNAIL_SIZE_PX = 120;
+    private static final int THUMBNAIL_PREFETCH_PX = 2 * THUMBNAIL_SIZE_PX;
+
+    interface Listener {
+        void onOverlayEvent(String eventName, WritableMap eventData);
+
+        void onOverlayVisible(long latencyMs);
+    }
+
+    interface ThumbnailLoaderProvider {
+        ThumbnailLoader get();
+    }
+
+    private final Context context;
+    private final Listener listener;
+    private final ThumbnailLoaderProvider thumbnailLoaderProvider;
+
+    private FrameLayout overlayContainer;
+    private Button homeButton;
+    private HorizontalScrollView thumbnailsStrip;
+    private LinearLayout thumbnailsContainer;
+    private Button previewButton;
+    private List<String> thumbnailUris = Collections.emptyList();
+
+    private Activity hostActivity;
+    private Application application;
+    private Activity attachedActivity;
+    private long showRequestedAt;
+    private boolean visibilityReported;
+    private ViewTreeObserver.OnWindowFocusChangeListener hostFocusListener;
+
+    OverlayController(Context context, Listener listener, ThumbnailLoaderProvider thumbnailLoaderProvider) {
+        this.context = context;
+        this.listener = listener;
+        this.thumbnailLoaderProvider = thumbnailLoaderProvider;
+    }
+
+    /** Prepares the overlay for a scan that is about to be launched from {@code host}. */
+    void show(Activity host, boolean showHome, boolean showThumbnails, boolean showPreview, List<String> thumbnails) {
+        hide();
+        ensureBuilt();
+
+        homeButton.setVisibility(showHome ? View.VISIBLE : View.GONE);
+        previewButton.setVisibility(showPreview ? View.VISIBLE : View.GONE);
+        boolean hasThumbnails = showThumbnails && !thumbnails.isEmpty();
+        thumbnailsStrip.setVisibility(hasThumbnails ? View.VISIBLE : View.GONE);
+        if (hasThumbnails && !thumbnails.equals(thumbnailUris)) {
+            setThumbnails(thumbnails);
+        }
+
+        hostActivity = host;
+        showRequestedAt = SystemClock.uptimeMillis();
+        visibilityReported = false;
+        application = host.getApplication();
+        application.registerActivityLifecycleCallbacks(this);
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            // The scanner may run out of process; then the first sign of it is the host losing focus
+            hostFocusListener = hasFocus -> {
+                if (!hasFocus && attachedActivity == null) {
+                    attachTo(hostActivity);
+                }
+            };
+            host.getWindow().getDecorView().getViewTreeObserver().addOnWindowFocusChangeListener(hostFocusListener);
+        } else {
+            attachTo(host);
+        }
+    }
+
+    /** Detaches the overlay but keeps it built for the next scan. */
+    void hide() {
+        if (application != null) {
+            application.unregisterActivityLifecycleCallbacks(this);
+            application = null;
+        }
+        if (hostFocusListener != null && hostActivity != null) {
+            ViewTreeObserver observer = hostActivity.getWindow().getDecorView().getViewTreeObserver();
+            if (observer.isAlive()) {
+                observer.removeOnWindowFocusChangeListener(hostFocusListener);
+            }
+        }
+        hostFocusListener = null;
+        detach();
+        hostActivity = null;
+    }
+
+    /** Drops the built hierarchy, e.g. when the host is destroyed. */
+    void release() {
+        hide();
+        overlayContainer = null;
+        homeButton = null;
+        thumbnailsStrip = null;
+        thumbnailsContainer = null;
+        previewButton = null;
+        thumbnailUris = Collections.emptyList();
+    }
+
+    private void attachTo(Activity activity) {
+        if (activity == null || overlayContainer == null || activity == attachedActivity) {
+            return;
+        }
+        detach();
+
+        // DecorView contains all views including status bar
+        ViewGroup rootView = (ViewGroup) activity.getWindow().getDecorView();
+        FrameLayout.LayoutParams overlayParams = new FrameLayout.LayoutParams(
+            ViewGroup.LayoutParams.MATCH_PARENT,
+            ViewGroup.LayoutParams.MATCH_PARENT
+        );
+        rootView.addView(overlayContainer, overlayParams);
+        attachedActivity = activity;
+
+        // The host's window is behind an out-of-process scanner, so the user can't see it there
+        if (!visibilityReported && activity != hostActivity) {
+            ViewTreeObserver observer = overlayContainer.getViewTreeObserver();
+            observer.addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+                @Override
+                public boolean onPreDraw() {
+                    ViewTreeObserver currentObserver = overlayContainer != null ? overlayContainer.getViewTreeObserver() : null;
+                    if (currentObserver != null && currentObserver.isAlive()) {
+                        currentObserver.removeOnPreDrawListener(this);
+                    }
+                    if (!visibilityReported) {
+                        visibilityReported = true;
+                        listener.onOverlayVisible(SystemClock.uptimeMillis() - showRequestedAt);
+                    }
+                    return true;
+                }
+            });
+        }
+    }
+
+    private void detach() {
+        if (overlayContainer != null && overlayContainer.getParent() != null) {
+            ((ViewGroup) overlayContainer.getParent()).removeView(overlayContainer);
+        }
+        attachedActivity = null;
+    }
+
+    // ✅ ACTIVITY LIFECYCLE DRIVEN ATTACHMENT
+    @Override
+    public void onActivityResumed(Activity activity) {
+        if (activity != hostActivity) {
+            attachTo(activity);
+        }
+    }
+
+    @Override
+    public void onActivityDestroyed(Activity activity) {
+        if (activity == attachedActivity) {
+            detach();
+        }
+    }
+
+    @Override
+    public void onActivityCreated(Activity activity, Bundle savedInstanceState) {}
+
+    @Override
+    public void onActivityStarted(Activity activity) {}
+
+    @Override
+    public void onActivityPaused(Activity activity) {}
+
+    @Override
+    public void onActivityStopped(Activity activity) {}
+
+    @Override
+    public void onActivitySaveInstanceState(Activity activity, Bundle outState) {}
+
+    private void ensureBuilt() {
+        if (overlayContainer != null) {
+            return;
+        }
+        overlayContainer = new FrameLayout(context);
+
+        // Set overlay to be clickable but allow touches to pass through where there are no views
+        overlayContainer.setClickable(false);
+        overlayContainer.setFocusable(false);
+
+        homeButton = createHomeButton();
+        thumbnailsStrip = createThumbnailsStrip();
+        previewButton = createPreviewButton();
+        overlayContainer.addView(homeButton);
+        overlayContainer.addView(thumbnailsStrip);
+        overlayContainer.addView(previewButton);
+    }
+
+    // ✅ CREATE HOME BUTTON
+    private Button createHomeButton() {
+        Button homeButton = new Button(context);
+        homeButton.setText("🏠");
+        homeButton.setTextSize(20);
+        homeButton.setBackgroundColor(Color.parseColor("#80000000"));
+        homeButton.setTextColor(Color.WHITE);
+
+        FrameLayout.LayoutParams params = new FrameLayout.LayoutParams(120, 120);
+        params.leftMargin = 40;
+        params.topMargin = 100;
+        params.gravity = Gravity.TOP | Gravity.LEFT;
+        homeButton.setLayoutParams(params);
+
+        homeButton.setOnClickListener(v -> {
+            WritableMap eventData = new WritableNativeMap();
+            listener.onOverlayEvent("onHomeButtonPressed", eventData);
+        });
+
+        return homeButton;
+    }
+
+    // ✅ CREATE THUMBNAILS STRIP
+    private HorizontalScrollView createThumbnailsStrip() {
+        LinearLayout container = new LinearLayout(context);
+        container.setOrientation(LinearLayout.HORIZONTAL);
+        container.setPadding(20, 20, 20, 20);
+        thumbnailsContainer = container;
+
+        // Only thumbnails inside (or just outside) the visible part of the strip get decoded
+        HorizontalScrollView scrollView = new HorizontalScrollView(context) {
+            @Override
+            protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+                super.onLayout(changed, left, top, right, bottom);
+                bindVisibleThumbnails(this, container);
+            }
+
+            @Override
+            protected void onScrollChanged(int left, int top, int oldLeft, int oldTop) {
+                super.onScrollChanged(left, top, oldLeft, oldTop);
+                bindVisibleThumbnails(this, container);
+            }
+        };
+        scrollView.setBackgroundColor(Color.parseColor("#80000000"));
+
+        FrameLayout.LayoutParams params = new FrameLayout.LayoutParams(
+            ViewGroup.LayoutParams.MATCH_PARENT,
+            160
+        );
+        params.bottomMargin = 200;
+        params.gravity = Gravity.BOTTOM;
+        scrollView.setLayoutParams(params);
+        scrollView.addView(container);
+
+        return scrollView;
+    }
+
+    private void setThumbnails(List<String> uris) {
+        thumbnailsContainer.removeAllViews();
+        for (int i = 0; i < uris.size(); i++) {
+            thumbnailsContainer.addView(createThumbnailView(uris.get(i), i));
+        }
+        thumbnailUris = new ArrayList<>(uris);
+    }
+
+    private void bindVisibleThumbnails(HorizontalScrollView scrollView, LinearLayout container) {
+        int visibleLeft = scrollView.getScrollX() - THUMBNAIL_PREFETCH_PX;
+        int visibleRight = scrollView.getScrollX() + scrollView.getWidth() + THUMBNAIL_PREFETCH_PX;
+        for (int i = 0; i < container.getChildCount(); i++) {
+            View thumbnailView = container.getChildAt(i);
+            if (thumbnailView.getRight() >= visibleLeft && thumbnailView.getLeft() <= visibleRight) {
+                ImageView imageView = (ImageView) ((ViewGroup) thumbnailView).getChildAt(0);
+                thumbnailLoaderProvider.get().bind(imageView, (String) thumbnailView.getTag(), THUMBNAIL_SIZE_PX);
+            }
+        }
+    }
+
+    // ✅ CREATE INDIVIDUAL THUMBNAIL
+    private View createThumbnailView(String uri, int index) {
+        FrameLayout container = new FrameLayout(context);
+        container.setTag(uri);
+
+        LinearLayout.LayoutParams params = new LinearLayout.LayoutParams(THUMBNAIL_SIZE_PX, THUMBNAIL_SIZE_PX);
+        params.rightMargin = 16;
+        container.setLayoutParams(params);
+        container.setBackgroundColor(Color.parseColor("#80FFFFFF"));
+
+        // The image is bound by bindVisibleThumbnails once the thumbnail scrolls into view
+        ImageView thumbnailImage = new ImageView(context);
+        thumbnailImage.setScaleType(ImageView.ScaleType.CENTER_CROP);
+
+        FrameLayout.LayoutParams imageParams = new FrameLayout.LayoutParams(
+            ViewGroup.LayoutParams.MATCH_PARENT,
+            ViewGroup.LayoutParams.MATCH_PARENT
+        );
+        thumbnailImage.setLayoutParams(imageParams);
+
+        container.setOnClickListener(v -> {
+            WritableMap eventData = new WritableNativeMap();
+            eventData.putInt("index", index);
+            eventData.putString("uri", uri);
+            listener.onOverlayEvent("onThumbnailPressed", eventData);
+        });
+
+        container.addView(thumbnailImage);
+        return container;
+    }
+
+    // ✅ CREATE PREVIEW BUTTON
+    private Button createPreviewButton() {
+        Button previewButton = new Button(context);
+        previewButton.setText("📄");
+        previewButton.setTextSize(20);
+        previewButton.setBackgroundColor(Color.parseColor("#CC0066CC"));
+        previewButton.setTextColor(Color.WHITE);
+
+        FrameLayout.LayoutParams params = new FrameLayout.LayoutParams(120, 120);
+        params.rightMargin = 40;
+        params.bottomMargin = 240;
+        params.gravity = Gravity.BOTTOM | Gravity.RIGHT;
+        previewButton.setLayoutParams(params);
+
+        previewButton.setOnClickListener(v -> {
+            WritableMap eventData = new WritableNativeMap();
+            listener.onOverlayEvent("onPreviewButtonPressed", eventData);
+        });
+
+        return previewButton;
+    }
+}
@@ -0,0 +1,201 @@
+package com.reactnativedocumentscanner;
+
+import android.graphics.Bitmap;
+import android.os.Build;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A byte-capped pool of page-sized bitmaps and encode buffers that are reused across pages
+ * and scan sessions instead of being reallocated for every page.
+ *
+ * Bitmaps are bucketed by allocation size and handed out for {@code inBitmap} decoding, so
+ * they are only pooled on KitKat and up where a larger bitmap can back a smaller decode.
+ * Byte buffers are bucketed by exact length. Everything is thread-safe.
+ */
+class PageBufferPool {
+    // Don't hand out a pooled bitmap more than twice as large as what was asked for
+    private static final int MAX_SIZE_MULTIPLE = 2;
+
+    private final TreeMap<Integer, ArrayDeque<Bitmap>> bitmaps = new TreeMap<>();
+    private final TreeMap<Integer, ArrayDeque<byte[]>> buffers = new TreeMap<>();
+    private final ArrayDeque<Object> lruOrder = new ArrayDeque<>();
+
+    private long maxBytes;
+    private long pooledBytes;
+    private long bitmapHits;
+    private long bitmapMisses;
+    private long bufferHits;
+    private long bufferMisses;
+    private long evictions;
+
+    PageBufferPool(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    static long defaultMaxBytes() {
+        return Math.min(Runtime.getRuntime().maxMemory() / 8, 64L * 1024 * 1024);
+    }
+
+    static boolean supportsBitmapReuse() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT;
+    }
+
+    /** Returns a mutable ARGB_8888 bitmap with room for at least {@code byteCount} bytes, or null. */
+    synchronized Bitmap acquireBitmap(int byteCount) {
+        if (!supportsBitmapReuse()) {
+            return null;
+        }
+        Map.Entry<Integer, ArrayDeque<Bitmap>> entry = bitmaps.ceilingEntry(byteCount);
+        while (entry != null && entry.getKey() <= (long) byteCount * MAX_SIZE_MULTIPLE) {
+            Bitmap bitmap = entry.getValue().pollLast();
+            if (bitmap != null) {
+                onRemoved(bitmap, bitmap.getAllocationByteCount());
+                if (!bitmap.isRecycled()) {
+                    bitmapHits++;
+                    return bitmap;
+                }
+            } else {
+                bitmaps.remove(entry.getKey());
+            }
+            entry = bitmaps.ceilingEntry(byteCount);
+        }
+        bitmapMisses++;
+        return null;
+    }
+
+    /** Hands a bitmap back for reuse. Bitmaps that can't be reused are recycled. */
+    synchronized void releaseBitmap(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled()) {
+            return;
+        }
+        if (!supportsBitmapReuse() || !bitmap.isMutable() || bitmap.getConfig() != Bitmap.Config.ARGB_8888) {
+            bitmap.recycle();
+            return;
+        }
+        int size = bitmap.getAllocationByteCount();
+        if (size > maxBytes) {
+            bitmap.recycle();
+            return;
+        }
+        evictTo(maxBytes - size);
+        bucket(bitmaps, size).addLast(bitmap);
+        onAdded(bitmap, size);
+    }
+
+    /** Returns a buffer of exactly {@code length} bytes, pooled if one is available. */
+    synchronized byte[] acquireBuffer(int length) {
+        ArrayDeque<byte[]> bucket = buffers.get(length);
+        byte[] buffer = bucket != null ? bucket.pollLast() : null;
+        if (buffer != null) {
+            onRemoved(buffer, length);
+            bufferHits++;
+            return buffer;
+        }
+        bufferMisses++;
+        return new byte[length];
+    }
+
+    synchronized void releaseBuffer(byte[] buffer) {
+        if (buffer == null || buffer.length > maxBytes) {
+            return;
+        }
+        evictTo(maxBytes - buffer.length);
+        bucket(buffers, buffer.length).addLast(buffer);
+        onAdded(buffer, buffer.length);
+    }
+
+    synchronized void setMaxBytes(long maxBytes) {
+        this.maxBytes = Math.max(0, maxBytes);
+        evictTo(this.maxBytes);
+    }
+
+    synchronized long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /** Drops pooled memory until at most {@code targetBytes} remain. */
+    synchronized void trimTo(long targetBytes) {
+        evictTo(Math.max(0, targetBytes));
+    }
+
+    synchronized void clear() {
+        evictTo(0);
+    }
+
+    synchronized Stats getStats() {
+        return new Stats(maxBytes, pooledBytes, bitmapHits, bitmapMisses, bufferHits, bufferMisses, evictions);
+    }
+
+    private void evictTo(long targetBytes) {
+        Iterator<Object> oldestFirst = lruOrder.iterator();
+        while (pooledBytes > targetBytes && oldestFirst.hasNext()) {
+            Object entry = oldestFirst.next();
+            oldestFirst.remove();
+            evictions++;
+            if (entry instanceof Bitmap) {
+                Bitmap bitmap = (Bitmap) entry;
+                int size = bitmap.getAllocationByteCount();
+                removeFromBucket(bitmaps, size, bitmap);
+                pooledBytes -= size;
+                bitmap.recycle();
+            } else {
+                byte[] buffer = (byte[]) entry;
+                removeFromBucket(buffers, buffer.length, buffer);
+                pooledBytes -= buffer.length;
+            }
+        }
+    }
+
+    private void onAdded(Object entry, int size) {
+        lruOrder.addLast(entry);
+        pooledBytes += size;
+    }
+
+    private void onRemoved(Object entry, int size) {
+        lruOrder.removeLastOccurrence(entry);
+        pooledBytes -= size;
+    }
+
+    private static <T> ArrayDeque<T> bucket(TreeMap<Integer, ArrayDeque<T>> buckets, int size) {
+        ArrayDeque<T> bucket = buckets.get(size);
+        if (bucket == null) {
+            bucket = new ArrayDeque<>();
+            buckets.put(size, bucket);
+        }
+        return bucket;
+    }
+
+    private static <T> void removeFromBucket(TreeMap<Integer, ArrayDeque<T>> buckets, int size, T entry) {
+        ArrayDeque<T> bucket = buckets.get(size);
+        if (bucket != null) {
+            bucket.removeFirstOccurrence(entry);
+            if (bucket.isEmpty()) {
+                buckets.remove(size);
+            }
+        }
+    }
+
+    static final class Stats {
+        final long maxBytes;
+        final long pooledBytes;
+        final long bitmapHits;
+        final long bitmapMisses;
+        final long bufferHits;
+        final long bufferMisses;
+        final long evictions;
+
+        Stats(long maxBytes, long pooledBytes, long bitmapHits, long bitmapMisses, long bufferHits, long bufferMisses, long evictions) {
+            this.maxBytes = maxBytes;
+            this.pooledBytes = pooledBytes;
+            this.bitmapHits = bitmapHits;
+            this.bitmapMisses = bitmapMisses;
+            this.bufferHits = bufferHits;
+            this.bufferMisses = bufferMisses;
+            this.evictions = evictions;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.reactnativedocumentscanner;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The image operations page processing is built from, over whatever type {@code P} holds
+ * a decoded page. On the device that is a {@link android.graphics.Bitmap} (see
+ * {@link BitmapPageCodec}); anything that can decode, filter and encode pages can stand in
+ * for it, which is how the pipeline is measured off-device.
+ */
+interface PageCodec<P> {
+    /** Decodes the page, downscaled to fit the bounds of {@code options}. Never returns null. */
+    P decode(PageSource source, PageProcessingOptions options) throws IOException;
+
+    /**
+     * Applies a {@link DocumentFilter} mode. Returns the filtered page, which may be
+     * {@code page} itself; when it isn't, {@code page} has already been released.
+     */
+    P transform(P page, String documentMode);
+
+    /**
+     * Encodes the page in the output format of {@code options} into {@code outputStream}
+     * and returns the quality used. With a byte budget the quality may be searched for,
+     * starting from {@code qualityHint}, which is updated with the result.
+     */
+    int encode(P page, PageProcessingOptions options, AtomicInteger qualityHint, OutputStream outputStream) throws IOException;
+
+    /** Hands a page back once it is no longer needed. */
+    void release(P page);
+}
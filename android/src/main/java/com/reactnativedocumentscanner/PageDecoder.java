@@ -0,0 +1,202 @@
+package com.reactnativedocumentscanner;
+
+import android.content.ContentResolver;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.net.Uri;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Decodes scanned pages no larger than the requested output bounds.
+ *
+ * The image header is read first, the page is then decoded with the largest power-of-two
+ * {@code inSampleSize} that still stays at or above the target size, and only the final,
+ * already much smaller bitmap is scaled precisely to the target.
+ */
+final class PageDecoder {
+    private PageDecoder() {}
+
+    /** Reads only the image header. {@code outWidth}/{@code outHeight} are -1 if it can't be parsed. */
+    static BitmapFactory.Options readBounds(ContentResolver contentResolver, Uri uri) throws IOException {
+        return readBounds(source(contentResolver, uri));
+    }
+
+    static BitmapFactory.Options readBounds(PageSource source) throws IOException {
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        try (InputStream inputStream = source.open()) {
+            BitmapFactory.decodeStream(inputStream, null, bounds);
+        }
+        return bounds;
+    }
+
+    /**
+     * Returns the {width, height} the page should be output at, which is the source size
+     * when no bound applies or the source is already small enough. Aspect ratio is kept.
+     */
+    static int[] computeTargetSize(int width, int height, PageProcessingOptions options) {
+        double scale = 1;
+        if (options.maxWidth > 0) {
+            scale = Math.min(scale, (double) options.maxWidth / width);
+        }
+        if (options.maxHeight > 0) {
+            scale = Math.min(scale, (double) options.maxHeight / height);
+        }
+        if (options.targetMegapixels > 0) {
+            scale = Math.min(scale, Math.sqrt(options.targetMegapixels * 1_000_000d / ((double) width * height)));
+        }
+        if (scale >= 1) {
+            return new int[] { width, height };
+        }
+        return new int[] {
+            Math.max(1, (int) Math.round(width * scale)),
+            Math.max(1, (int) Math.round(height * scale))
+        };
+    }
+
+    /** The largest power of two that keeps the sampled decode at least as big as the target. */
+    static int calculateInSampleSize(int width, int height, int targetWidth, int targetHeight) {
+        int inSampleSize = 1;
+        while (width / (inSampleSize * 2) >= targetWidth && height / (inSampleSize * 2) >= targetHeight) {
+            inSampleSize *= 2;
+        }
+        return inSampleSize;
+    }
+
+    static boolean needsResize(BitmapFactory.Options bounds, PageProcessingOptions options) {
+        if (!options.hasResolutionBounds() || bounds.outWidth <= 0 || bounds.outHeight <= 0) {
+            return false;
+        }
+        int[] target = computeTargetSize(bounds.outWidth, bounds.outHeight, options);
+        return target[0] != bounds.outWidth || target[1] != bounds.outHeight;
+    }
+
+    /**
+     * Decodes the page, downscaled to fit {@code options}. Never returns null. When a pool is
+     * given, the decode and the final scale reuse pooled bitmaps; callers should hand the
+     * result back with {@link PageBufferPool#releaseBitmap} once it has been encoded.
+     */
+    static Bitmap decode(ContentResolver contentResolver, Uri uri, PageProcessingOptions options, PageBufferPool pool) throws IOException {
+        return decode(source(contentResolver, uri), options, pool);
+    }
+
+    static Bitmap decode(PageSource source, PageProcessingOptions options, PageBufferPool pool) throws IOException {
+        BitmapFactory.Options bounds = readBounds(source);
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) {
+            throw new IOException("Unable to read image bounds of " + source);
+        }
+
+        int[] target = computeTargetSize(bounds.outWidth, bounds.outHeight, options);
+        int inSampleSize = calculateInSampleSize(bounds.outWidth, bounds.outHeight, target[0], target[1]);
+        Bitmap sampled = decodeSampled(source, bounds, inSampleSize, pool);
+        if (sampled.getWidth() == target[0] && sampled.getHeight() == target[1]) {
+            return sampled;
+        }
+
+        Bitmap scaled = scale(sampled, target[0], target[1], pool);
+        release(sampled, pool);
+        return scaled;
+    }
+
+    private static Bitmap decodeSampled(
+        PageSource source,
+        BitmapFactory.Options bounds,
+        int inSampleSize,
+        PageBufferPool pool
+    ) throws IOException {
+        BitmapFactory.Options decodeOptions = new BitmapFactory.Options();
+        decodeOptions.inSampleSize = inSampleSize;
+        decodeOptions.inMutable = true;
+        if (pool != null) {
+            // JPEG sampling rounds up, so size the reused bitmap for the rounded-up dimensions
+            int sampledWidth = (bounds.outWidth + inSampleSize - 1) / inSampleSize;
+            int sampledHeight = (bounds.outHeight + inSampleSize - 1) / inSampleSize;
+            decodeOptions.inBitmap = pool.acquireBitmap(sampledWidth * sampledHeight * 4);
+        }
+
+        Bitmap bitmap;
+        try {
+            bitmap = decodeStream(source, decodeOptions);
+        } catch (IllegalArgumentException error) {
+            if (decodeOptions.inBitmap == null) {
+                throw error;
+            }
+            // The pooled bitmap didn't fit this image after all; fall back to a fresh allocation
+            pool.releaseBitmap(decodeOptions.inBitmap);
+            decodeOptions.inBitmap = null;
+            bitmap = decodeStream(source, decodeOptions);
+        }
+
+        if (bitmap == null) {
+            release(decodeOptions.inBitmap, pool);
+            throw new IOException("Unable to decode image " + source);
+        }
+        return bitmap;
+    }
+
+    private static Bitmap decodeStream(PageSource source, BitmapFactory.Options decodeOptions) throws IOException {
+        try (InputStream inputStream = source.open()) {
+            return BitmapFactory.decodeStream(inputStream, null, decodeOptions);
+        }
+    }
+
+    static Bitmap scale(Bitmap source, int width, int height, PageBufferPool pool) {
+        Bitmap scaled = pool != null ? pool.acquireBitmap(width * height * 4) : null;
+        if (scaled == null) {
+            return Bitmap.createScaledBitmap(source, width, height, true);
+        }
+        scaled.reconfigure(width, height, Bitmap.Config.ARGB_8888);
+        new Canvas(scaled).drawBitmap(source, null, new Rect(0, 0, width, height), new Paint(Paint.FILTER_BITMAP_FLAG));
+        return scaled;
+    }
+
+    private static void release(Bitmap bitmap, PageBufferPool pool) {
+        if (bitmap == null) {
+            return;
+        }
+        if (pool != null) {
+            pool.releaseBitmap(bitmap);
+        } else {
+            bitmap.recycle();
+        }
+    }
+
+    static InputStream open(ContentResolver contentResolver, Uri uri) throws IOException {
+        InputStream inputStream = contentResolver.openInputStream(uri);
+        if (inputStream == null) {
+            throw new FileNotFoundException("Unable to open " + uri);
+        }
+        return inputStream;
+    }
+
+    /** A source reading {@code uri} through {@code contentResolver}. */
+    static PageSource source(ContentResolver contentResolver, Uri uri) {
+        return new UriSource(contentResolver, uri);
+    }
+
+    private static final class UriSource implements PageSource {
+        private final ContentResolver contentResolver;
+        private final Uri uri;
+
+        UriSource(ContentResolver contentResolver, Uri uri) {
+            this.contentResolver = contentResolver;
+            this.uri = uri;
+        }
+
+        @Override
+        public InputStream open() throws IOException {
+            return PageDecoder.open(contentResolver, uri);
+        }
+
+        @Override
+        public String toString() {
+            return uri.toString();
+        }
+    }
+}
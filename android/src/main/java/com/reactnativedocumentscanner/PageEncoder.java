@@ -0,0 +1,103 @@
+package com.reactnativedocumentscanner;
+
+import android.graphics.Bitmap;
+import android.os.Build;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Maps the {@code outputFormat} option onto {@link Bitmap.CompressFormat}, taking care of
+ * what each Android version can actually encode.
+ *
+ * Lossless WebP only exists from Android 10 (as {@code WEBP} at quality 100) and has its
+ * own format from Android 11; older devices get PNG instead, which is resolved once when
+ * the options are parsed so the file extension and MIME type always match the bytes.
+ */
+final class PageEncoder {
+    static final String FORMAT_JPEG = "jpeg";
+    static final String FORMAT_WEBP = "webp";
+    static final String FORMAT_WEBP_LOSSLESS = "webpLossless";
+    static final String FORMAT_PNG = "png";
+    static final String[] FORMATS = { FORMAT_JPEG, FORMAT_WEBP, FORMAT_WEBP_LOSSLESS, FORMAT_PNG };
+
+    private PageEncoder() {}
+
+    static boolean isSupported(String format) {
+        for (String supported : FORMATS) {
+            if (supported.equals(format)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** The format this device will really produce for {@code format}. */
+    static String resolve(String format) {
+        if (FORMAT_WEBP_LOSSLESS.equals(format) && Build.VERSION.SDK_INT < Build.VERSION_CODES.Q) {
+            return FORMAT_PNG;
+        }
+        return format;
+    }
+
+    /** Whether the format has a quality knob worth searching over. */
+    static boolean isLossy(String format) {
+        return FORMAT_JPEG.equals(format) || FORMAT_WEBP.equals(format);
+    }
+
+    static String extension(String format) {
+        switch (format) {
+            case FORMAT_WEBP:
+            case FORMAT_WEBP_LOSSLESS:
+                return "webp";
+            case FORMAT_PNG:
+                return "png";
+            default:
+                return "jpg";
+        }
+    }
+
+    static String mimeType(String format) {
+        switch (format) {
+            case FORMAT_WEBP:
+            case FORMAT_WEBP_LOSSLESS:
+                return "image/webp";
+            case FORMAT_PNG:
+                return "image/png";
+            default:
+                return "image/jpeg";
+        }
+    }
+
+    /** Encodes {@code bitmap}. {@code quality} is ignored by the lossless formats. */
+    static void compress(Bitmap bitmap, String format, int quality, OutputStream outputStream) throws IOException {
+        Bitmap.CompressFormat compressFormat;
+        switch (format) {
+            case FORMAT_WEBP:
+                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+                    compressFormat = Bitmap.CompressFormat.WEBP_LOSSY;
+                } else {
+                    compressFormat = Bitmap.CompressFormat.WEBP;
+                    // On Android 10, WEBP at 100 silently switches to lossless
+                    quality = Math.min(quality, 99);
+                }
+                break;
+            case FORMAT_WEBP_LOSSLESS:
+                // For lossless WebP the quality is the compression effort
+                compressFormat = Build.VERSION.SDK_INT >= Build.VERSION_CODES.R
+                    ? Bitmap.CompressFormat.WEBP_LOSSLESS
+                    : Bitmap.CompressFormat.WEBP;
+                quality = 100;
+                break;
+            case FORMAT_PNG:
+                compressFormat = Bitmap.CompressFormat.PNG;
+                break;
+            default:
+                compressFormat = Bitmap.CompressFormat.JPEG;
+                break;
+        }
+        if (!bitmap.compress(compressFormat, quality, outputStream)) {
+            throw new IOException("Unable to encode page as " + format);
+        }
+    }
+}
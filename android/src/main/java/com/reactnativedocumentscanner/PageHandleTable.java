@@ -0,0 +1,242 @@
+package com.reactnativedocumentscanner;
+
+import android.content.ContentResolver;
+import android.net.Uri;
+import android.os.ParcelFileDescriptor;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Maps opaque page handles to the scanned page files of each scan session, so JS can read
+ * a page in fixed-size slices instead of receiving it as one huge bridge string.
+ *
+ * A handle's file is opened on first read and kept open until the handle, or its whole
+ * session, is released. Slices are read with positional reads, so concurrent reads of the
+ * same page are safe.
+ *
+ * Lazy scans also keep what {@code materializePage} produced for a handle here, per set of
+ * options, so asking again for the same output is free. It goes away with the handle.
+ */
+class PageHandleTable {
+    static final int MAX_SLICE_BYTES = 4 * 1024 * 1024;
+
+    static final class Slice {
+        final byte[] buffer;
+        final int length;
+        final long size;
+
+        Slice(byte[] buffer, int length, long size) {
+            this.buffer = buffer;
+            this.length = length;
+            this.size = size;
+        }
+    }
+
+    private static final class Entry {
+        final String sessionId;
+        final int index;
+        final Uri uri;
+        long size;
+        // From the image header, or -1 when not read
+        int width = -1;
+        int height = -1;
+        FileInputStream inputStream;
+        Map<String, ProcessedPage> materialized;
+
+        Entry(String sessionId, int index, Uri uri, long size) {
+            this.sessionId = sessionId;
+            this.index = index;
+            this.uri = uri;
+            this.size = size;
+        }
+
+        void close() {
+            if (inputStream != null) {
+                try {
+                    inputStream.close();
+                } catch (IOException ignored) {
+                    // Nothing left to do with a handle that is going away
+                }
+                inputStream = null;
+            }
+        }
+    }
+
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    static String handleFor(String sessionId, int index) {
+        return sessionId + ":" + index;
+    }
+
+    synchronized String register(String sessionId, int index, Uri uri, long size) {
+        return register(sessionId, index, uri, size, -1, -1);
+    }
+
+    synchronized String register(String sessionId, int index, Uri uri, long size, int width, int height) {
+        String handle = handleFor(sessionId, index);
+        Entry entry = new Entry(sessionId, index, uri, size);
+        entry.width = width;
+        entry.height = height;
+        Entry previous = entries.put(handle, entry);
+        if (previous != null) {
+            previous.close();
+        }
+        return handle;
+    }
+
+    /** Whether any handle of the session is still registered. */
+    synchronized boolean hasSession(String sessionId) {
+        for (Entry entry : entries.values()) {
+            if (entry.sessionId.equals(sessionId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    synchronized Uri getUri(String handle) {
+        Entry entry = entries.get(handle);
+        return entry != null ? entry.uri : null;
+    }
+
+    /** The session the handle belongs to, or null when it is unknown. */
+    synchronized String getSessionId(String handle) {
+        Entry entry = entries.get(handle);
+        return entry != null ? entry.sessionId : null;
+    }
+
+    /** The page's index within its session, or -1 when the handle is unknown. */
+    synchronized int getIndex(String handle) {
+        Entry entry = entries.get(handle);
+        return entry != null ? entry.index : -1;
+    }
+
+    /** {width, height} from the image header, or null when unknown. */
+    synchronized int[] getDimensions(String handle) {
+        Entry entry = entries.get(handle);
+        return entry != null && entry.width > 0 && entry.height > 0 ? new int[] { entry.width, entry.height } : null;
+    }
+
+    /** What was materialized for the handle with the options identified by {@code key}, or null. */
+    synchronized ProcessedPage getMaterialized(String handle, String key) {
+        Entry entry = entries.get(handle);
+        return entry != null && entry.materialized != null ? entry.materialized.get(key) : null;
+    }
+
+    /** Keeps a materialized page. Returns false, keeping nothing, if the handle was released meanwhile. */
+    synchronized boolean putMaterialized(String handle, String key, ProcessedPage processedPage) {
+        Entry entry = entries.get(handle);
+        if (entry == null) {
+            return false;
+        }
+        if (entry.materialized == null) {
+            entry.materialized = new HashMap<>();
+        }
+        entry.materialized.put(key, processedPage);
+        return true;
+    }
+
+    synchronized void removeMaterialized(String handle, String key) {
+        Entry entry = entries.get(handle);
+        if (entry != null && entry.materialized != null) {
+            entry.materialized.remove(key);
+        }
+    }
+
+    /** Adds the files that handles and their materialized pages point at to {@code files}. */
+    synchronized void collectFiles(Set<File> files) {
+        for (Entry entry : entries.values()) {
+            if ("file".equals(entry.uri.getScheme())) {
+                files.add(new File(entry.uri.getPath()));
+            }
+            if (entry.materialized != null) {
+                for (ProcessedPage processedPage : entry.materialized.values()) {
+                    if (processedPage.hash != null) {
+                        files.add(new File(Uri.parse(processedPage.payload).getPath()));
+                    }
+                }
+            }
+        }
+    }
+
+    /** The page size in bytes, or -1 when the handle is unknown or its size wasn't known yet. */
+    synchronized long getSize(String handle) {
+        Entry entry = entries.get(handle);
+        return entry != null ? entry.size : -1;
+    }
+
+    /**
+     * Reads up to {@code length} bytes at {@code offset} into {@code buffer}, which must hold
+     * at least {@code length} bytes. A slice past the end of the page has length 0.
+     */
+    Slice read(ContentResolver contentResolver, String handle, long offset, int length, byte[] buffer) throws IOException {
+        FileChannel channel;
+        long size;
+        synchronized (this) {
+            Entry entry = entries.get(handle);
+            if (entry == null) {
+                throw new IllegalArgumentException("Unknown or released page handle " + handle);
+            }
+            if (entry.inputStream == null) {
+                ParcelFileDescriptor descriptor = contentResolver.openFileDescriptor(entry.uri, "r");
+                if (descriptor == null) {
+                    throw new FileNotFoundException("Unable to open " + entry.uri);
+                }
+                entry.inputStream = new ParcelFileDescriptor.AutoCloseInputStream(descriptor);
+                entry.size = entry.inputStream.getChannel().size();
+            }
+            channel = entry.inputStream.getChannel();
+            size = entry.size;
+        }
+
+        ByteBuffer target = ByteBuffer.wrap(buffer, 0, length);
+        long position = offset;
+        while (target.hasRemaining() && position < size) {
+            int read = channel.read(target, position);
+            if (read < 0) {
+                break;
+            }
+            position += read;
+        }
+        return new Slice(buffer, (int) (position - offset), size);
+    }
+
+    synchronized boolean release(String handle) {
+        Entry entry = entries.remove(handle);
+        if (entry == null) {
+            return false;
+        }
+        entry.close();
+        return true;
+    }
+
+    synchronized int releaseSession(String sessionId) {
+        int released = 0;
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.sessionId.equals(sessionId)) {
+                entry.close();
+                iterator.remove();
+                released++;
+            }
+        }
+        return released;
+    }
+
+    synchronized void releaseAll() {
+        for (Entry entry : entries.values()) {
+            entry.close();
+        }
+        entries.clear();
+    }
+}
@@ -0,0 +1,109 @@
+package com.reactnativedocumentscanner;
+
+import android.content.ContentResolver;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.net.Uri;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Perceptual hashing for spotting pages that were captured twice.
+ *
+ * The hash is a 64-bit dHash: the page is shrunk to 9x8 grayscale pixels and each bit
+ * records whether a pixel is brighter than its right-hand neighbour. That captures the
+ * page's layout (margins, blocks of text, pictures) while ignoring exposure and JPEG
+ * noise, and two captures of one page land a few bits apart. The page is decoded with
+ * the largest {@code inSampleSize} that keeps it above 9x8, which lets the JPEG decoder
+ * skip almost all of the work, so hashing costs a few milliseconds per page.
+ */
+final class PageHasher {
+    static final int DEFAULT_MAX_DISTANCE = 5;
+
+    private static final int HASH_WIDTH = 9;
+    private static final int HASH_HEIGHT = 8;
+    // Decode somewhat above the hash size so the final downscale can still average pixels
+    private static final int DECODE_SIZE = 64;
+
+    private PageHasher() {}
+
+    static long dHash(ContentResolver contentResolver, Uri uri) throws IOException {
+        BitmapFactory.Options bounds = PageDecoder.readBounds(contentResolver, uri);
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) {
+            throw new IOException("Unable to read image bounds of " + uri);
+        }
+
+        BitmapFactory.Options decodeOptions = new BitmapFactory.Options();
+        decodeOptions.inSampleSize = PageDecoder.calculateInSampleSize(bounds.outWidth, bounds.outHeight, DECODE_SIZE, DECODE_SIZE);
+        Bitmap sampled;
+        try (InputStream inputStream = PageDecoder.open(contentResolver, uri)) {
+            sampled = BitmapFactory.decodeStream(inputStream, null, decodeOptions);
+        }
+        if (sampled == null) {
+            throw new IOException("Unable to decode image " + uri);
+        }
+
+        Bitmap tiny = Bitmap.createScaledBitmap(sampled, HASH_WIDTH, HASH_HEIGHT, true);
+        int[] pixels = new int[HASH_WIDTH * HASH_HEIGHT];
+        tiny.getPixels(pixels, 0, HASH_WIDTH, 0, 0, HASH_WIDTH, HASH_HEIGHT);
+        if (tiny != sampled) {
+            tiny.recycle();
+        }
+        sampled.recycle();
+
+        long hash = 0;
+        for (int y = 0; y < HASH_HEIGHT; y++) {
+            for (int x = 0; x < HASH_WIDTH - 1; x++) {
+                hash <<= 1;
+                if (DocumentFilter.luminance(pixels[y * HASH_WIDTH + x]) > DocumentFilter.luminance(pixels[y * HASH_WIDTH + x + 1])) {
+                    hash |= 1;
+                }
+            }
+        }
+        return hash;
+    }
+
+    static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+
+    /**
+     * Groups pages whose hash is within {@code maxDistance} bits of an earlier page's. Each
+     * group starts with the earliest page; pages with no duplicate form no group.
+     */
+    static List<List<Integer>> groupDuplicates(List<Long> hashes, int maxDistance) {
+        List<List<Integer>> groups = new ArrayList<>();
+        List<Long> representatives = new ArrayList<>();
+        for (int index = 0; index < hashes.size(); index++) {
+            long hash = hashes.get(index);
+            int match = -1;
+            int bestDistance = Integer.MAX_VALUE;
+            for (int group = 0; group < representatives.size(); group++) {
+                int distance = distance(hash, representatives.get(group));
+                if (distance <= maxDistance && distance < bestDistance) {
+                    match = group;
+                    bestDistance = distance;
+                }
+            }
+            if (match >= 0) {
+                groups.get(match).add(index);
+            } else {
+                List<Integer> group = new ArrayList<>();
+                group.add(index);
+                groups.add(group);
+                representatives.add(hash);
+            }
+        }
+
+        List<List<Integer>> duplicates = new ArrayList<>();
+        for (List<Integer> group : groups) {
+            if (group.size() > 1) {
+                duplicates.add(group);
+            }
+        }
+        return duplicates;
+    }
+}
@@ -0,0 +1,156 @@
+package com.reactnativedocumentscanner;
+
+import com.facebook.react.bridge.ReadableMap;
+
+/**
+ * The subset of {@code scanDocument} options that controls how each scanned page is
+ * decoded and re-encoded. Parsed once per scan and shared by every page worker.
+ */
+final class PageProcessingOptions {
+    static final String RESPONSE_TYPE_BASE64 = "base64";
+    static final String RESPONSE_TYPE_IMAGE_FILE_PATH = "imageFilePath";
+    static final String RESPONSE_TYPE_CACHED_FILE_PATH = "cachedFilePath";
+    static final String RESPONSE_TYPE_PDF = "pdf";
+
+    final int quality;
+    final int maxWidth;
+    final int maxHeight;
+    final double targetMegapixels;
+    final String responseType;
+    final int maxBytesPerPage;
+    final String outputFormat;
+    final String documentMode;
+
+    PageProcessingOptions(int quality, int maxWidth, int maxHeight, double targetMegapixels, String responseType) {
+        this(quality, maxWidth, maxHeight, targetMegapixels, responseType, 0, PageEncoder.FORMAT_JPEG, DocumentFilter.MODE_COLOR);
+    }
+
+    PageProcessingOptions(
+        int quality,
+        int maxWidth,
+        int maxHeight,
+        double targetMegapixels,
+        String responseType,
+        int maxBytesPerPage,
+        String outputFormat,
+        String documentMode
+    ) {
+        this.quality = quality;
+        this.maxWidth = maxWidth;
+        this.maxHeight = maxHeight;
+        this.targetMegapixels = targetMegapixels;
+        this.responseType = responseType;
+        this.maxBytesPerPage = maxBytesPerPage;
+        this.outputFormat = PageEncoder.resolve(outputFormat);
+        this.documentMode = documentMode;
+    }
+
+    static PageProcessingOptions fromReadableMap(ReadableMap options) {
+        return new PageProcessingOptions(
+            options.hasKey("croppedImageQuality") ? options.getInt("croppedImageQuality") : 100,
+            options.hasKey("maxWidth") ? options.getInt("maxWidth") : 0,
+            options.hasKey("maxHeight") ? options.getInt("maxHeight") : 0,
+            options.hasKey("targetMegapixels") ? options.getDouble("targetMegapixels") : 0,
+            options.hasKey("responseType") ? options.getString("responseType") : RESPONSE_TYPE_IMAGE_FILE_PATH,
+            options.hasKey("maxBytesPerPage") ? options.getInt("maxBytesPerPage") : 0,
+            options.hasKey("outputFormat") ? options.getString("outputFormat") : PageEncoder.FORMAT_JPEG,
+            options.hasKey("documentMode") ? options.getString("documentMode") : DocumentFilter.MODE_COLOR
+        );
+    }
+
+    /** Describes the first unsupported option value, or returns null when all are fine. */
+    static String validate(ReadableMap options) {
+        if (options.hasKey("outputFormat") && !PageEncoder.isSupported(options.getString("outputFormat"))) {
+            return "Unsupported outputFormat " + options.getString("outputFormat");
+        }
+        boolean pdf = options.hasKey("responseType") && RESPONSE_TYPE_PDF.equals(options.getString("responseType"));
+        if (pdf && options.hasKey("outputFormat") && !PageEncoder.FORMAT_JPEG.equals(options.getString("outputFormat"))) {
+            return "PDF pages can only be JPEG";
+        }
+        if (options.hasKey("documentMode") && !DocumentFilter.isSupported(options.getString("documentMode"))) {
+            return "Unsupported documentMode " + options.getString("documentMode");
+        }
+        if (options.hasKey("upload") && options.getBoolean("upload")
+            && options.hasKey("responseType") && RESPONSE_TYPE_BASE64.equals(options.getString("responseType"))) {
+            return "upload needs pages on disk, so it can't be combined with responseType base64";
+        }
+        if (options.hasKey("lazy") && options.getBoolean("lazy")) {
+            // Lazy scans resolve before any page is processed, so nothing may depend on processing
+            if (pdf) {
+                return "lazy can't be combined with responseType pdf";
+            }
+            if (options.hasKey("streamPages") && options.getBoolean("streamPages")) {
+                return "lazy can't be combined with streamPages";
+            }
+            if (options.hasKey("upload") && options.getBoolean("upload")) {
+                return "lazy can't be combined with upload";
+            }
+            if (options.hasKey("outputs")) {
+                return "lazy can't be combined with outputs; pass each output's options to materializePage";
+            }
+        }
+        if (options.hasKey("outputs")) {
+            String responseType = options.hasKey("responseType") ? options.getString("responseType") : RESPONSE_TYPE_IMAGE_FILE_PATH;
+            if (!RESPONSE_TYPE_BASE64.equals(responseType) && !RESPONSE_TYPE_CACHED_FILE_PATH.equals(responseType)) {
+                return "outputs need responseType base64 or cachedFilePath";
+            }
+            if (options.hasKey("maxBytesPerPage")) {
+                return "maxBytesPerPage can't be combined with outputs";
+            }
+            return PageRenditions.validate(options.getArray("outputs"));
+        }
+        return null;
+    }
+
+    /** Describes the first option {@code materializePage} can't honor, or returns null when all are fine. */
+    static String validateMaterialization(ReadableMap options) {
+        if (options.hasKey("responseType") && RESPONSE_TYPE_PDF.equals(options.getString("responseType"))) {
+            return "materializePage can't produce a PDF";
+        }
+        if (options.hasKey("outputs")) {
+            return "materializePage produces one output per call; call it once per output instead";
+        }
+        return validate(options);
+    }
+
+    /** Identifies the output these options produce, so it can be reused for the same page. */
+    String cacheKey() {
+        return responseType + "|" + quality + "|" + maxWidth + "|" + maxHeight + "|" + targetMegapixels
+            + "|" + maxBytesPerPage + "|" + outputFormat + "|" + documentMode;
+    }
+
+    /** A copy that decodes at no more than {@code maxMegapixels}, on top of the bounds already set. */
+    PageProcessingOptions withMaxMegapixels(double maxMegapixels) {
+        return new PageProcessingOptions(
+            quality,
+            maxWidth,
+            maxHeight,
+            targetMegapixels > 0 ? Math.min(targetMegapixels, maxMegapixels) : maxMegapixels,
+            responseType,
+            maxBytesPerPage,
+            outputFormat,
+            documentMode
+        );
+    }
+
+    boolean isResponseType(String type) {
+        return type.equals(responseType);
+    }
+
+    /** Whether pages come out as the color JPEGs ML Kit produces, just maybe smaller. */
+    boolean keepsScannerFormat() {
+        return PageEncoder.FORMAT_JPEG.equals(outputFormat) && DocumentFilter.MODE_COLOR.equals(documentMode);
+    }
+
+    boolean hasByteBudget() {
+        return maxBytesPerPage > 0;
+    }
+
+    boolean exceedsByteBudget(long byteCount) {
+        return hasByteBudget() && byteCount > maxBytesPerPage;
+    }
+
+    boolean hasResolutionBounds() {
+        return maxWidth > 0 || maxHeight > 0 || targetMegapixels > 0;
+    }
+}
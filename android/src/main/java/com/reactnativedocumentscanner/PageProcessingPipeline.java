@@ -0,0 +1,227 @@
+package com.reactnativedocumentscanner;
+
+import android.os.Process;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs per-page post-processing (decode, compress, base64) on a bounded worker pool
+ * so the ActivityResult callback never blocks the UI thread.
+ *
+ * The pool is shared by every scan and sized to the device's cores. Each call to
+ * {@link #process} additionally caps how many of its pages are in flight at once, which
+ * keeps the number of full-size bitmaps alive at the same time predictable on low-RAM
+ * devices. That cap can also follow a {@link ConcurrencyLimit} while the pages run: workers
+ * retire between pages when the limit drops and are added back when it recovers. Results
+ * are delivered in page order, once, after every page has finished.
+ */
+class PageProcessingPipeline {
+    static final int CORE_COUNT = Math.max(1, Runtime.getRuntime().availableProcessors());
+
+    interface PageTask<T> {
+        T process(int index) throws Exception;
+    }
+
+    interface Callback<T> {
+        void onComplete(List<T> results);
+
+        void onError(Throwable error);
+    }
+
+    /** Lowers a run's concurrency on the fly. Returns how many of {@code concurrency} workers may run now. */
+    interface ConcurrencyLimit {
+        int limit(int concurrency);
+    }
+
+    interface Cancellable {
+        /**
+         * Stops handing out pages, drops finished results and reports a
+         * {@link CancellationException} right away. Pages already in flight finish on their
+         * own but their results are discarded. Returns false if the run had already ended.
+         */
+        boolean cancel();
+    }
+
+    private final ExecutorService executor;
+
+    PageProcessingPipeline() {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(
+            CORE_COUNT,
+            CORE_COUNT,
+            30,
+            TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(),
+            new WorkerThreadFactory()
+        );
+        pool.allowCoreThreadTimeOut(true);
+        this.executor = pool;
+    }
+
+    /**
+     * Processes {@code pageCount} pages with at most {@code maxConcurrency} of them running
+     * at the same time. A value of 0 or less means "one per core".
+     */
+    <T> Cancellable process(int pageCount, int maxConcurrency, PageTask<T> task, Callback<T> callback) {
+        return process(pageCount, maxConcurrency, null, task, callback);
+    }
+
+    /** Like {@link #process(int, int, PageTask, Callback)}, with {@code limit} consulted between pages. */
+    <T> Cancellable process(int pageCount, int maxConcurrency, ConcurrencyLimit limit, PageTask<T> task, Callback<T> callback) {
+        int concurrency = maxConcurrency > 0 ? Math.min(maxConcurrency, CORE_COUNT) : CORE_COUNT;
+        Run<T> run = new Run<>(Math.max(0, pageCount), concurrency, limit, executor, task, callback);
+        if (pageCount <= 0) {
+            run.finished.set(true);
+            callback.onComplete(new ArrayList<>());
+            return run;
+        }
+        run.addWorkers();
+        return run;
+    }
+
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * One scan's worth of pages. Each worker pulls the next unclaimed page index until
+     * none remain, so the concurrency cap is simply the number of workers started.
+     */
+    private static final class Run<T> implements Cancellable {
+        private final int concurrency;
+        private final ConcurrencyLimit limit;
+        private final ExecutorService executor;
+        private final PageTask<T> task;
+        private final Callback<T> callback;
+        private final Object[] results;
+        private final AtomicInteger nextIndex = new AtomicInteger();
+        private final AtomicInteger remaining;
+        private final AtomicInteger workers = new AtomicInteger();
+        private final AtomicBoolean finished = new AtomicBoolean();
+
+        Run(int pageCount, int concurrency, ConcurrencyLimit limit, ExecutorService executor, PageTask<T> task, Callback<T> callback) {
+            this.concurrency = concurrency;
+            this.limit = limit;
+            this.executor = executor;
+            this.task = task;
+            this.callback = callback;
+            this.results = new Object[pageCount];
+            this.remaining = new AtomicInteger(pageCount);
+        }
+
+        private int allowedWorkers() {
+            int allowed = limit != null ? limit.limit(concurrency) : concurrency;
+            return Math.max(1, Math.min(concurrency, allowed));
+        }
+
+        /** Starts workers up to the current limit while unclaimed pages remain. */
+        void addWorkers() {
+            while (!finished.get() && nextIndex.get() < results.length) {
+                int current = workers.get();
+                if (current >= Math.min(allowedWorkers(), results.length - nextIndex.get())) {
+                    return;
+                }
+                if (workers.compareAndSet(current, current + 1)) {
+                    executor.execute(this::drain);
+                }
+            }
+        }
+
+        /** Lets this worker stop if the limit dropped below the number running. The last one always stays. */
+        private boolean retire() {
+            while (true) {
+                int current = workers.get();
+                if (current <= allowedWorkers()) {
+                    return false;
+                }
+                if (workers.compareAndSet(current, current - 1)) {
+                    return true;
+                }
+            }
+        }
+
+        void drain() {
+            if (!drainPages()) {
+                workers.decrementAndGet();
+            }
+        }
+
+        /** Returns true if the worker retired, which already gave up its slot. */
+        private boolean drainPages() {
+            int index;
+            while (!finished.get() && (index = nextIndex.getAndIncrement()) < results.length) {
+                try {
+                    T result = task.process(index);
+                    synchronized (results) {
+                        if (finished.get()) {
+                            return false;
+                        }
+                        results[index] = result;
+                    }
+                } catch (Throwable error) {
+                    if (finished.compareAndSet(false, true)) {
+                        callback.onError(error);
+                    }
+                    return false;
+                }
+
+                if (remaining.decrementAndGet() == 0 && finished.compareAndSet(false, true)) {
+                    complete();
+                    return false;
+                }
+                if (limit != null) {
+                    if (retire()) {
+                        return true;
+                    }
+                    addWorkers();
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public boolean cancel() {
+            if (!finished.compareAndSet(false, true)) {
+                return false;
+            }
+            synchronized (results) {
+                Arrays.fill(results, null);
+            }
+            callback.onError(new CancellationException("Page processing was cancelled"));
+            return true;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void complete() {
+            List<T> ordered = new ArrayList<>(results.length);
+            for (Object result : results) {
+                ordered.add((T) result);
+            }
+            Arrays.fill(results, null);
+            callback.onComplete(ordered);
+        }
+    }
+
+    private static final class WorkerThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(() -> {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                runnable.run();
+            }, "DocumentScanner-page-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
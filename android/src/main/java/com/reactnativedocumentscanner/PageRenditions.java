@@ -0,0 +1,165 @@
+package com.reactnativedocumentscanner;
+
+import android.content.ContentResolver;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.net.Uri;
+
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The renditions the {@code outputs} option asks for, such as a full page, a preview and a
+ * thumbnail, and how all of them are made from a single decode of the page.
+ *
+ * The page is decoded once, at the size of the largest rendition, and the document mode is
+ * applied once. Renditions are then produced from largest to smallest, each one scaled
+ * down from the one before, so every downscale starts from the smallest bitmap that still
+ * has enough pixels and the full-size page is never decoded twice.
+ */
+final class PageRenditions {
+    /** One entry of {@code outputs}: its name plus the bounds, format and quality it is encoded with. */
+    static final class Spec {
+        final String name;
+        final PageProcessingOptions options;
+
+        Spec(String name, PageProcessingOptions options) {
+            this.name = name;
+            this.options = options;
+        }
+    }
+
+    static final class Rendition {
+        final String name;
+        final String payload;
+        final long byteCount;
+        final int width;
+        final int height;
+        final String format;
+        String hash;
+
+        Rendition(String name, String payload, long byteCount, int width, int height, String format) {
+            this.name = name;
+            this.payload = payload;
+            this.byteCount = byteCount;
+            this.width = width;
+            this.height = height;
+            this.format = format;
+        }
+    }
+
+    /** Encodes one rendition and returns where it ended up. */
+    interface Encoder {
+        Rendition encode(Spec spec, Bitmap bitmap) throws IOException;
+    }
+
+    private PageRenditions() {}
+
+    /** Renditions inherit the scan's format, quality and document mode unless they set their own. */
+    static List<Spec> fromReadableArray(ReadableArray outputs, PageProcessingOptions pageOptions) {
+        List<Spec> specs = new ArrayList<>();
+        for (int i = 0; outputs != null && i < outputs.size(); i++) {
+            ReadableMap output = outputs.getMap(i);
+            specs.add(new Spec(output.getString("name"), new PageProcessingOptions(
+                output.hasKey("quality") ? output.getInt("quality") : pageOptions.quality,
+                output.hasKey("maxWidth") ? output.getInt("maxWidth") : 0,
+                output.hasKey("maxHeight") ? output.getInt("maxHeight") : 0,
+                output.hasKey("targetMegapixels") ? output.getDouble("targetMegapixels") : 0,
+                pageOptions.responseType,
+                0,
+                output.hasKey("outputFormat") ? output.getString("outputFormat") : pageOptions.outputFormat,
+                pageOptions.documentMode
+            )));
+        }
+        return specs;
+    }
+
+    /** Describes the first invalid rendition, or returns null when all are fine. */
+    static String validate(ReadableArray outputs) {
+        if (outputs == null || outputs.size() == 0) {
+            return "outputs must list at least one rendition";
+        }
+        Set<String> names = new HashSet<>();
+        for (int i = 0; i < outputs.size(); i++) {
+            ReadableMap output = outputs.getMap(i);
+            String name = output != null && output.hasKey("name") ? output.getString("name") : null;
+            if (name == null || name.isEmpty()) {
+                return "Every output needs a name";
+            }
+            if (!names.add(name)) {
+                return "Duplicate output name " + name;
+            }
+            if (output.hasKey("outputFormat") && !PageEncoder.isSupported(output.getString("outputFormat"))) {
+                return "Unsupported outputFormat " + output.getString("outputFormat") + " for output " + name;
+            }
+        }
+        return null;
+    }
+
+    /** The {width, height} of the largest rendition of a {@code width} x {@code height} page. */
+    static int[] largestTarget(int width, int height, List<Spec> specs) {
+        int[] largest = null;
+        for (Spec spec : specs) {
+            int[] target = PageDecoder.computeTargetSize(width, height, spec.options);
+            if (largest == null || (long) target[0] * target[1] > (long) largest[0] * largest[1]) {
+                largest = target;
+            }
+        }
+        return largest;
+    }
+
+    /**
+     * Decodes the page once and returns its renditions in the order of {@code specs}. A
+     * positive {@code maxDecodeMegapixels} caps the decode, and with it every rendition.
+     */
+    static List<Rendition> render(
+        ContentResolver contentResolver,
+        Uri uri,
+        List<Spec> specs,
+        String documentMode,
+        double maxDecodeMegapixels,
+        PageBufferPool pool,
+        Encoder encoder
+    ) throws IOException {
+        BitmapFactory.Options bounds = PageDecoder.readBounds(contentResolver, uri);
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) {
+            throw new IOException("Unable to read image bounds of " + uri);
+        }
+
+        int[][] targets = new int[specs.size()][];
+        Integer[] order = new Integer[specs.size()];
+        for (int i = 0; i < specs.size(); i++) {
+            targets[i] = PageDecoder.computeTargetSize(bounds.outWidth, bounds.outHeight, specs.get(i).options);
+            order[i] = i;
+        }
+        // Largest first, so each rendition can be scaled down from the previous one
+        Arrays.sort(order, (a, b) -> Long.compare((long) targets[b][0] * targets[b][1], (long) targets[a][0] * targets[a][1]));
+
+        int[] largest = targets[order[0]];
+        PageProcessingOptions decodeOptions = new PageProcessingOptions(100, largest[0], largest[1], maxDecodeMegapixels, PageProcessingOptions.RESPONSE_TYPE_BASE64);
+        Bitmap current = DocumentFilter.apply(PageDecoder.decode(contentResolver, uri, decodeOptions, pool), documentMode);
+        Rendition[] renditions = new Rendition[specs.size()];
+        try {
+            for (int i : order) {
+                int width = Math.min(targets[i][0], current.getWidth());
+                int height = Math.min(targets[i][1], current.getHeight());
+                if (width != current.getWidth() || height != current.getHeight()) {
+                    Bitmap scaled = PageDecoder.scale(current, width, height, pool);
+                    pool.releaseBitmap(current);
+                    current = scaled;
+                }
+                renditions[i] = encoder.encode(specs.get(i), current);
+            }
+        } finally {
+            pool.releaseBitmap(current);
+        }
+        return Arrays.asList(renditions);
+    }
+}
@@ -0,0 +1,12 @@
+package com.reactnativedocumentscanner;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Where a page's encoded bytes come from. The bytes may be read more than once, e.g. once
+ * for the header and once for the decode, so every call opens a fresh stream.
+ */
+interface PageSource {
+    InputStream open() throws IOException;
+}
@@ -0,0 +1,107 @@
+package com.reactnativedocumentscanner;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the decode, transform, encode and Base64 stages of page processing on top of a
+ * {@link PageCodec}, timing each stage. Keeping the stages here rather than next to the
+ * React Native glue means the same code path can be benchmarked on a plain JVM.
+ */
+final class PageTranscoder<P> {
+    /** How long each stage of one page took, plus the quality it was encoded at. */
+    static final class Timings {
+        double decodeMs;
+        double transformMs;
+        double compressMs;
+        double encodeMs;
+        int quality = -1;
+
+        void copyTo(ProcessedPage processedPage) {
+            // Metrics count the document mode pass as part of decoding
+            processedPage.decodeMs = decodeMs + transformMs;
+            processedPage.compressMs = compressMs;
+            processedPage.encodeMs = encodeMs;
+            processedPage.quality = quality;
+        }
+    }
+
+    private final PageCodec<P> codec;
+
+    PageTranscoder(PageCodec<P> codec) {
+        this.codec = codec;
+    }
+
+    /** Decodes a page at its output size and applies the document mode to it. */
+    P decode(PageSource source, PageProcessingOptions options, Timings timings) throws IOException {
+        long decodeStart = System.nanoTime();
+        P page = codec.decode(source, options);
+        timings.decodeMs = elapsedMs(decodeStart);
+
+        long transformStart = System.nanoTime();
+        try {
+            page = codec.transform(page, options.documentMode);
+        } catch (RuntimeException error) {
+            codec.release(page);
+            throw error;
+        }
+        timings.transformMs = elapsedMs(transformStart);
+        return page;
+    }
+
+    /** Encodes a decoded page into {@code outputStream} and releases it. */
+    void encode(P page, PageProcessingOptions options, AtomicInteger qualityHint, OutputStream outputStream, Timings timings) throws IOException {
+        long compressStart = System.nanoTime();
+        try {
+            timings.quality = codec.encode(page, options, qualityHint, outputStream);
+        } finally {
+            codec.release(page);
+        }
+        timings.compressMs = elapsedMs(compressStart);
+    }
+
+    void release(P page) {
+        codec.release(page);
+    }
+
+    /**
+     * Decodes, transforms and encodes the page straight into Base64. {@code chunk} is
+     * scratch space of {@link StreamingBase64#CHUNK_BYTES} bytes.
+     */
+    ProcessedPage toBase64(int index, PageSource source, PageProcessingOptions options, AtomicInteger qualityHint, byte[] chunk) throws IOException {
+        return toBase64(index, source, options, qualityHint, chunk, new Timings());
+    }
+
+    /** Like {@link #toBase64(int, PageSource, PageProcessingOptions, AtomicInteger, byte[])}, filling in {@code timings}. */
+    ProcessedPage toBase64(int index, PageSource source, PageProcessingOptions options, AtomicInteger qualityHint, byte[] chunk, Timings timings) throws IOException {
+        P page = decode(source, options, timings);
+        StreamingBase64.EncodingOutputStream base64OutputStream = new StreamingBase64.EncodingOutputStream(-1, chunk);
+        encode(page, options, qualityHint, base64OutputStream, timings);
+        // Compression and base64 are interleaved; the encoder tracks its own share
+        timings.compressMs -= base64OutputStream.getEncodeMs();
+        String payload = base64OutputStream.finish();
+        timings.encodeMs = base64OutputStream.getEncodeMs();
+
+        ProcessedPage processedPage = new ProcessedPage(index, payload, base64OutputStream.getByteCount());
+        timings.copyTo(processedPage);
+        return processedPage;
+    }
+
+    /** Streams the source's bytes into Base64 as they are, for pages that need no re-encode. */
+    static ProcessedPage passThroughToBase64(int index, PageSource source, long contentLength, byte[] chunk) throws IOException {
+        long encodeStart = System.nanoTime();
+        try (InputStream inputStream = source.open()) {
+            String payload = StreamingBase64.encode(inputStream, contentLength, chunk);
+            ProcessedPage processedPage = new ProcessedPage(index, payload, contentLength);
+            processedPage.quality = 100;
+            processedPage.encodeMs = elapsedMs(encodeStart);
+            return processedPage;
+        }
+    }
+
+    private static double elapsedMs(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000d;
+    }
+}
@@ -0,0 +1,266 @@
+package com.reactnativedocumentscanner;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.Locale;
+
+/**
+ * Assembles a PDF of JPEG pages straight into a file, one page at a time, so memory use
+ * doesn't grow with the page count.
+ *
+ * Every page is an image XObject whose JPEG bytes are embedded unchanged with
+ * {@code /DCTDecode}, so ML Kit's pages need neither decoding nor re-encoding. Object
+ * numbers are fixed up front (the catalog and page tree first, then four objects per
+ * page), which lets pages be appended in whatever order the workers finish them; the
+ * page tree lists them in scan order and the cross-reference table is written last.
+ * Image lengths are separate objects written after the data, so pages can be streamed in
+ * without knowing their size first.
+ */
+class PdfWriter implements Closeable {
+    // Pages are laid out A4 wide, with their height following the image's aspect ratio
+    static final double PAGE_WIDTH_POINTS = 595.28;
+
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+    private static final int CATALOG = 1;
+    private static final int PAGE_TREE = 2;
+    private static final int OBJECTS_PER_PAGE = 4;
+
+    interface ImageSource {
+        void writeTo(OutputStream outputStream) throws IOException;
+    }
+
+    /** The parts of a JPEG's frame header a PDF image needs. */
+    static final class JpegInfo {
+        final int width;
+        final int height;
+        final int components;
+
+        JpegInfo(int width, int height, int components) {
+            this.width = width;
+            this.height = height;
+            this.components = components;
+        }
+    }
+
+    private final File file;
+    private final int pageCount;
+    private final long[] offsets;
+    private final CountingOutputStream outputStream;
+    private int pagesWritten;
+    private boolean finished;
+
+    PdfWriter(File file, int pageCount) throws IOException {
+        this.file = file;
+        this.pageCount = pageCount;
+        this.offsets = new long[PAGE_TREE + pageCount * OBJECTS_PER_PAGE + 1];
+        this.outputStream = new CountingOutputStream(new BufferedOutputStream(new FileOutputStream(file), StreamingBase64.CHUNK_BYTES));
+        write("%PDF-1.4\n%");
+        // A comment of high bytes tells transfer tools the file isn't plain text
+        outputStream.write(new byte[] { (byte) 0xE2, (byte) 0xE3, (byte) 0xCF, (byte) 0xD3, '\n' });
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    /** Appends page {@code index}, whose JPEG bytes {@code source} writes. */
+    synchronized void writePage(int index, JpegInfo info, ImageSource source) throws IOException {
+        if (index < 0 || index >= pageCount || offsets[pageObject(index)] != 0) {
+            throw new IllegalArgumentException("Page " + index + " is out of range or already written");
+        }
+        int page = pageObject(index);
+        int contents = page + 1;
+        int image = page + 2;
+        int imageLength = page + 3;
+        double pageHeight = PAGE_WIDTH_POINTS * info.height / info.width;
+
+        beginObject(image);
+        write(String.format(
+            Locale.US,
+            "<< /Type /XObject /Subtype /Image /Width %d /Height %d /ColorSpace %s /BitsPerComponent 8 /Filter /DCTDecode /Length %d 0 R >>\nstream\n",
+            info.width,
+            info.height,
+            colorSpace(info.components),
+            imageLength
+        ));
+        long dataStart = outputStream.count;
+        source.writeTo(outputStream);
+        long dataLength = outputStream.count - dataStart;
+        write("\nendstream\nendobj\n");
+
+        beginObject(imageLength);
+        write(dataLength + "\nendobj\n");
+
+        String drawing = String.format(Locale.US, "q %.2f 0 0 %.2f 0 0 cm /Im0 Do Q", PAGE_WIDTH_POINTS, pageHeight);
+        beginObject(contents);
+        write("<< /Length " + drawing.length() + " >>\nstream\n" + drawing + "\nendstream\nendobj\n");
+
+        beginObject(page);
+        write(String.format(
+            Locale.US,
+            "<< /Type /Page /Parent %d 0 R /MediaBox [0 0 %.2f %.2f] /Resources << /XObject << /Im0 %d 0 R >> >> /Contents %d 0 R >>\nendobj\n",
+            PAGE_TREE,
+            PAGE_WIDTH_POINTS,
+            pageHeight,
+            image,
+            contents
+        ));
+        pagesWritten++;
+    }
+
+    /** Writes the page tree, catalog and cross-reference table, closes the file and returns its size. */
+    synchronized long finish() throws IOException {
+        if (pagesWritten != pageCount) {
+            throw new IllegalStateException("Only " + pagesWritten + " of " + pageCount + " pages were written");
+        }
+
+        StringBuilder kids = new StringBuilder();
+        for (int index = 0; index < pageCount; index++) {
+            kids.append(pageObject(index)).append(" 0 R ");
+        }
+        beginObject(PAGE_TREE);
+        write("<< /Type /Pages /Kids [ " + kids + "] /Count " + pageCount + " >>\nendobj\n");
+        beginObject(CATALOG);
+        write("<< /Type /Catalog /Pages " + PAGE_TREE + " 0 R >>\nendobj\n");
+
+        long xrefOffset = outputStream.count;
+        StringBuilder xref = new StringBuilder("xref\n0 ").append(offsets.length).append("\n0000000000 65535 f \n");
+        for (int object = 1; object < offsets.length; object++) {
+            xref.append(String.format(Locale.US, "%010d 00000 n \n", offsets[object]));
+        }
+        xref.append("trailer\n<< /Size ").append(offsets.length).append(" /Root ").append(CATALOG).append(" 0 R >>\n")
+            .append("startxref\n").append(xrefOffset).append("\n%%EOF\n");
+        write(xref.toString());
+
+        finished = true;
+        outputStream.close();
+        return file.length();
+    }
+
+    /** Abandons an unfinished PDF: closes and deletes the file. Does nothing after {@link #finish}. */
+    @Override
+    public synchronized void close() {
+        if (finished) {
+            return;
+        }
+        try {
+            outputStream.close();
+        } catch (IOException ignored) {
+            // The file is deleted below anyway
+        }
+        file.delete();
+    }
+
+    private static int pageObject(int index) {
+        return PAGE_TREE + 1 + index * OBJECTS_PER_PAGE;
+    }
+
+    private void beginObject(int object) throws IOException {
+        offsets[object] = outputStream.count;
+        write(object + " 0 obj\n");
+    }
+
+    private void write(String text) throws IOException {
+        outputStream.write(text.getBytes(ASCII));
+    }
+
+    private static String colorSpace(int components) {
+        switch (components) {
+            case 1:
+                return "/DeviceGray";
+            case 4:
+                return "/DeviceCMYK";
+            default:
+                return "/DeviceRGB";
+        }
+    }
+
+    /**
+     * Reads a JPEG's markers up to its frame header. The stream is buffered here, so a
+     * content provider's stream isn't read one byte per call while segments are skipped.
+     */
+    static JpegInfo readJpegInfo(InputStream inputStream) throws IOException {
+        DataInputStream input = new DataInputStream(new BufferedInputStream(inputStream));
+        if (input.readUnsignedShort() != 0xFFD8) {
+            throw new IOException("Not a JPEG image");
+        }
+        while (true) {
+            int marker = input.readUnsignedByte();
+            if (marker != 0xFF) {
+                throw new IOException("Malformed JPEG marker");
+            }
+            while (marker == 0xFF) {
+                marker = input.readUnsignedByte();
+            }
+            if (marker == 0xD9 || marker == 0xDA) {
+                throw new EOFException("JPEG image has no frame header");
+            }
+            if ((marker >= 0xD0 && marker <= 0xD7) || marker == 0x01) {
+                continue;
+            }
+            int segmentLength = input.readUnsignedShort();
+            boolean frameHeader = marker >= 0xC0 && marker <= 0xCF && marker != 0xC4 && marker != 0xC8 && marker != 0xCC;
+            if (frameHeader) {
+                input.readUnsignedByte();
+                int height = input.readUnsignedShort();
+                int width = input.readUnsignedShort();
+                int components = input.readUnsignedByte();
+                // A height of 0 defers it to a DNL marker after the scan, which a PDF page can't wait for
+                if (width == 0 || height == 0) {
+                    throw new IOException("JPEG image doesn't declare its size in the frame header");
+                }
+                return new JpegInfo(width, height, components);
+            }
+            for (int remaining = segmentLength - 2; remaining > 0;) {
+                int skipped = input.skipBytes(remaining);
+                if (skipped <= 0) {
+                    throw new EOFException("Truncated JPEG segment");
+                }
+                remaining -= skipped;
+            }
+        }
+    }
+
+    /** Collects a JPEG encoded in memory so its header can be read before it is written out. */
+    static final class JpegBuffer extends ByteArrayOutputStream {
+        JpegBuffer(int initialSize) {
+            super(initialSize);
+        }
+
+        synchronized JpegInfo readInfo() throws IOException {
+            return readJpegInfo(new ByteArrayInputStream(buf, 0, count));
+        }
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+        long count;
+
+        CountingOutputStream(OutputStream outputStream) {
+            super(outputStream);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            out.write(bytes, offset, length);
+            count += length;
+        }
+    }
+}
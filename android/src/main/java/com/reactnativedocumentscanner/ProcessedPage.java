@@ -0,0 +1,31 @@
+package com.reactnativedocumentscanner;
+
+import java.util.List;
+
+/**
+ * The outcome of post-processing one scanned page: what goes back to JS for it, plus the
+ * size of the encoded image and how long processing and each of its stages took.
+ */
+final class ProcessedPage {
+    final int index;
+    final String payload;
+    final long byteCount;
+    long durationMs;
+    String hash;
+    String handle;
+    // Every rendition when the scan asked for several outputs; the first is also the payload
+    List<PageRenditions.Rendition> renditions;
+    // The quality the page was encoded at, or -1 if it was passed through untouched
+    int quality = -1;
+    // Whether the page came out larger than maxBytesPerPage even at the lowest quality
+    boolean overBudget;
+    double decodeMs;
+    double compressMs;
+    double encodeMs;
+
+    ProcessedPage(int index, String payload, long byteCount) {
+        this.index = index;
+        this.payload = payload;
+        this.byteCount = byteCount;
+    }
+}
@@ -0,0 +1,266 @@
+package com.reactnativedocumentscanner;
+
+import android.graphics.Bitmap;
+import android.os.Process;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finds the highest quality at which a page fits a byte budget in a lossy output format.
+ *
+ * Each round encodes a few candidate qualities at once, one on the calling page worker and
+ * the rest on an executor of its own (so page workers waiting on trials can never starve
+ * it), and narrows the range between the best quality that fit and the lowest one that
+ * didn't. The executor has enough threads for every page worker to search at once; a
+ * trial that still finds no free thread runs on the page worker instead of queueing. The
+ * first round is centred on a hint, normally the quality the previous page ended up with,
+ * since pages of one scan tend to compress alike. Trials write into budget-sized buffers
+ * from the {@link PageBufferPool}, and the winning trial's bytes are the page, so the page
+ * is never encoded a final time.
+ */
+class QualitySearch {
+    static final int MIN_QUALITY = 5;
+    private static final int TRIALS_PER_ROUND = 3;
+    private static final int MAX_ROUNDS = 5;
+    private static final int HINT_STEP = 5;
+
+    /** The chosen quality and its encoded bytes, whose buffer goes back to the pool on release. */
+    static final class Result {
+        final int quality;
+        final byte[] buffer;
+        final int length;
+        final boolean fitsBudget;
+        final int trials;
+
+        Result(int quality, byte[] buffer, int length, boolean fitsBudget, int trials) {
+            this.quality = quality;
+            this.buffer = buffer;
+            this.length = length;
+            this.fitsBudget = fitsBudget;
+            this.trials = trials;
+        }
+    }
+
+    private final PageBufferPool pageBufferPool;
+    private final ThreadPoolExecutor executor;
+
+    QualitySearch(PageBufferPool pageBufferPool) {
+        this(pageBufferPool, PageProcessingPipeline.CORE_COUNT);
+    }
+
+    /** {@code concurrency} is how many pages may search for a quality at the same time. */
+    QualitySearch(PageBufferPool pageBufferPool, int concurrency) {
+        this.pageBufferPool = pageBufferPool;
+        // No queue: a trial either gets a thread right away or runs on the caller
+        this.executor = new ThreadPoolExecutor(
+            0,
+            (TRIALS_PER_ROUND - 1) * Math.max(1, concurrency),
+            30,
+            TimeUnit.SECONDS,
+            new SynchronousQueue<>(),
+            runnable -> {
+                Thread thread = new Thread(() -> {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    runnable.run();
+                }, "DocumentScanner-quality");
+                thread.setDaemon(true);
+                return thread;
+            }
+        );
+    }
+
+    /**
+     * Searches qualities between {@link #MIN_QUALITY} and {@code maxQuality} for the highest
+     * one at which {@code format} encodes the page into at most {@code maxBytes}. If not
+     * even the lowest quality fits, the result has no bytes and {@code fitsBudget} is
+     * false. Release the result with {@link #release} once its bytes have been written out.
+     */
+    Result search(Bitmap bitmap, String format, int maxBytes, int maxQuality, int hintQuality) throws IOException {
+        maxQuality = Math.max(MIN_QUALITY, Math.min(100, maxQuality));
+        int hint = hintQuality > 0 ? Math.max(MIN_QUALITY, Math.min(maxQuality, hintQuality)) : maxQuality;
+
+        Trial bestFit = null;
+        int lowestMiss = maxQuality + 1;
+        int trials = 0;
+        try {
+            List<Integer> candidates = new ArrayList<>();
+            addCandidate(candidates, hint);
+            addCandidate(candidates, Math.min(maxQuality, hint + HINT_STEP));
+            addCandidate(candidates, Math.max(MIN_QUALITY, hint - HINT_STEP));
+
+            for (int round = 0; round < MAX_ROUNDS && !candidates.isEmpty(); round++) {
+                List<Trial> results = runTrials(bitmap, format, maxBytes, candidates);
+                trials += results.size();
+                for (Trial trial : results) {
+                    if (trial.fits && (bestFit == null || trial.quality > bestFit.quality)) {
+                        release(bestFit);
+                        bestFit = trial;
+                    } else {
+                        if (!trial.fits) {
+                            lowestMiss = Math.min(lowestMiss, trial.quality);
+                        }
+                        release(trial);
+                    }
+                }
+
+                int low = bestFit != null ? bestFit.quality : MIN_QUALITY - 1;
+                candidates = spread(low, lowestMiss);
+            }
+
+            if (bestFit != null) {
+                Trial winner = bestFit;
+                bestFit = null;
+                return new Result(winner.quality, winner.buffer, winner.count, true, trials);
+            }
+        } finally {
+            release(bestFit);
+        }
+
+        // Nothing fits; the caller encodes at the lowest quality and the page goes over budget
+        return new Result(MIN_QUALITY, null, 0, false, trials);
+    }
+
+    void release(Result result) {
+        if (result != null) {
+            pageBufferPool.releaseBuffer(result.buffer);
+        }
+    }
+
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private List<Trial> runTrials(Bitmap bitmap, String format, int maxBytes, List<Integer> qualities) throws IOException {
+        List<Future<Trial>> futures = new ArrayList<>();
+        List<Integer> onCaller = new ArrayList<>();
+        onCaller.add(qualities.get(0));
+        for (int i = 1; i < qualities.size(); i++) {
+            int quality = qualities.get(i);
+            try {
+                futures.add(executor.submit(() -> runTrial(bitmap, format, maxBytes, quality)));
+            } catch (RejectedExecutionException error) {
+                onCaller.add(quality);
+            }
+        }
+
+        List<Trial> results = new ArrayList<>();
+        IOException failure = null;
+        for (int quality : onCaller) {
+            if (failure != null) {
+                break;
+            }
+            try {
+                results.add(runTrial(bitmap, format, maxBytes, quality));
+            } catch (IOException error) {
+                failure = error;
+            }
+        }
+        for (Future<Trial> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (ExecutionException error) {
+                failure = error.getCause() instanceof IOException ? (IOException) error.getCause() : new IOException(error.getCause());
+            } catch (InterruptedException error) {
+                Thread.currentThread().interrupt();
+                failure = new IOException(error);
+            }
+        }
+        if (failure != null) {
+            for (Trial trial : results) {
+                release(trial);
+            }
+            throw failure;
+        }
+        return results;
+    }
+
+    private Trial runTrial(Bitmap bitmap, String format, int maxBytes, int quality) throws IOException {
+        Trial trial = new Trial(quality, pageBufferPool.acquireBuffer(maxBytes));
+        BudgetOutputStream outputStream = new BudgetOutputStream(trial.buffer);
+        try {
+            PageEncoder.compress(bitmap, format, quality, outputStream);
+        } catch (IOException | RuntimeException error) {
+            release(trial);
+            throw error;
+        }
+        trial.count = (int) Math.min(outputStream.total, trial.buffer.length);
+        trial.fits = outputStream.total <= trial.buffer.length;
+        return trial;
+    }
+
+    private void release(Trial trial) {
+        if (trial != null) {
+            pageBufferPool.releaseBuffer(trial.buffer);
+        }
+    }
+
+    /** Up to {@link #TRIALS_PER_ROUND} qualities evenly spread strictly between the bounds. */
+    static List<Integer> spread(int low, int high) {
+        List<Integer> candidates = new ArrayList<>();
+        int untested = high - low - 1;
+        if (untested <= 0) {
+            return candidates;
+        }
+        int count = Math.min(TRIALS_PER_ROUND, untested);
+        for (int i = count; i >= 1; i--) {
+            addCandidate(candidates, low + (int) Math.round((double) i * (high - low) / (count + 1)));
+        }
+        return candidates;
+    }
+
+    private static void addCandidate(List<Integer> candidates, int quality) {
+        if (!candidates.contains(quality)) {
+            candidates.add(quality);
+        }
+    }
+
+    private static final class Trial {
+        final int quality;
+        final byte[] buffer;
+        int count;
+        boolean fits;
+
+        Trial(int quality, byte[] buffer) {
+            this.quality = quality;
+            this.buffer = buffer;
+        }
+    }
+
+    /**
+     * Collects an encode into a fixed buffer and keeps counting past its end, so a trial
+     * that overshoots the budget still learns by how much without growing anything.
+     */
+    private static final class BudgetOutputStream extends OutputStream {
+        private final byte[] buffer;
+        long total;
+
+        BudgetOutputStream(byte[] buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public void write(int b) {
+            if (total < buffer.length) {
+                buffer[(int) total] = (byte) b;
+            }
+            total++;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            if (total < buffer.length) {
+                System.arraycopy(bytes, offset, buffer, (int) total, (int) Math.min(length, buffer.length - total));
+            }
+            total += length;
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.reactnativedocumentscanner;
+
+import android.content.ContentResolver;
+import android.net.Uri;
+import android.os.ParcelFileDescriptor;
+import android.os.Process;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An app-owned, content-addressed cache for scanned pages returned as files.
+ *
+ * Pages are copied with NIO channel transfers (or written directly by an encoder) into a
+ * temporary file, hashed through a memory-mapped view of that file and then renamed to
+ * {@code <sha256>.<extension>}, so re-scanning the same page reuses the existing file. The
+ * directory is kept under a byte budget by evicting the least recently used files that
+ * nothing refers to any more.
+ *
+ * A committed file is added to its owner's set (a scan session's, say) while the cache's
+ * lock is held, and eviction asks for the referenced files under the same lock, so a page
+ * can't be evicted between being committed and its owner recording it.
+ */
+class ResultFileCache {
+    static final String CACHE_DIRECTORY = "document-scanner-results";
+    static final long DEFAULT_MAX_BYTES = 200L * 1024 * 1024;
+    private static final long TRANSFER_CHUNK_BYTES = 8L * 1024 * 1024;
+
+    interface Writer {
+        void writeTo(FileOutputStream outputStream) throws IOException;
+    }
+
+    /** Whatever still points at cache files: scans in progress, page handles and the like. */
+    interface References {
+        /** Adds every file that must not be evicted to {@code files}. Called with the cache locked. */
+        void collectReferencedFiles(Set<File> files);
+    }
+
+    static final class Entry {
+        final File file;
+        final long size;
+        final String hash;
+
+        Entry(File file, long size, String hash) {
+            this.file = file;
+            this.size = size;
+            this.hash = hash;
+        }
+    }
+
+    private final File directory;
+    private final AtomicLong temporaryCounter = new AtomicLong();
+
+    ResultFileCache(File cacheDir) {
+        this.directory = new File(cacheDir, CACHE_DIRECTORY);
+    }
+
+    File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Copies the page at {@code uri} into the cache without decoding it. The file is added
+     * to {@code owner}, if there is one.
+     */
+    Entry copy(ContentResolver contentResolver, Uri uri, String extension, Set<File> owner) throws IOException {
+        File temporaryFile = newTemporaryFile();
+        try (FileOutputStream outputStream = new FileOutputStream(temporaryFile)) {
+            FileChannel target = outputStream.getChannel();
+            ParcelFileDescriptor descriptor = openDescriptor(contentResolver, uri);
+            if (descriptor != null) {
+                // Both ends are files, so the kernel can move the bytes without touching the heap
+                try (FileInputStream inputStream = new ParcelFileDescriptor.AutoCloseInputStream(descriptor)) {
+                    FileChannel source = inputStream.getChannel();
+                    long size = source.size();
+                    long position = 0;
+                    while (position < size) {
+                        position += source.transferTo(position, Math.min(TRANSFER_CHUNK_BYTES, size - position), target);
+                    }
+                }
+            } else {
+                try (InputStream inputStream = PageDecoder.open(contentResolver, uri);
+                     ReadableByteChannel source = Channels.newChannel(inputStream)) {
+                    long position = 0;
+                    long transferred;
+                    while ((transferred = target.transferFrom(source, position, TRANSFER_CHUNK_BYTES)) > 0) {
+                        position += transferred;
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException error) {
+            temporaryFile.delete();
+            throw error;
+        }
+        return commit(temporaryFile, extension, owner);
+    }
+
+    Entry write(Writer writer, String extension) throws IOException {
+        return write(writer, extension, null);
+    }
+
+    /** Lets {@code writer} encode a page straight into the cache, adding the file to {@code owner}. */
+    Entry write(Writer writer, String extension, Set<File> owner) throws IOException {
+        File temporaryFile = newTemporaryFile();
+        try (FileOutputStream outputStream = new FileOutputStream(temporaryFile)) {
+            writer.writeTo(outputStream);
+        } catch (IOException | RuntimeException error) {
+            temporaryFile.delete();
+            throw error;
+        }
+        return commit(temporaryFile, extension, owner);
+    }
+
+    void evict(long maxBytes, Set<File> keep) {
+        evict(maxBytes, files -> files.addAll(keep));
+    }
+
+    /**
+     * Deletes the least recently used files until the directory holds at most
+     * {@code maxBytes}. Files {@code references} reports are never evicted.
+     */
+    synchronized void evict(long maxBytes, References references) {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        long totalBytes = 0;
+        for (File file : files) {
+            totalBytes += file.length();
+        }
+        if (totalBytes <= maxBytes) {
+            return;
+        }
+        Set<File> keep = new HashSet<>();
+        references.collectReferencedFiles(keep);
+        Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (File file : files) {
+            if (totalBytes <= maxBytes) {
+                break;
+            }
+            // Temporary files belong to pages that are being written right now
+            if (keep.contains(file) || file.getName().startsWith(".")) {
+                continue;
+            }
+            long length = file.length();
+            if (file.delete()) {
+                totalBytes -= length;
+            }
+        }
+    }
+
+    Entry commit(File temporaryFile, String extension) throws IOException {
+        return commit(temporaryFile, extension, null);
+    }
+
+    /** Moves a finished temporary file to its content-addressed name and adds it to {@code owner}. */
+    Entry commit(File temporaryFile, String extension, Set<File> owner) throws IOException {
+        String hash;
+        try {
+            hash = Digests.sha256(temporaryFile);
+        } catch (IOException error) {
+            temporaryFile.delete();
+            throw error;
+        }
+
+        File file = new File(directory, hash + "." + extension);
+        long size = temporaryFile.length();
+        synchronized (this) {
+            if (file.isFile() && file.length() == size) {
+                // Same page as an earlier scan: keep the existing file, just mark it as recently used
+                temporaryFile.delete();
+                file.setLastModified(System.currentTimeMillis());
+            } else if (!temporaryFile.renameTo(file)) {
+                temporaryFile.delete();
+                throw new IOException("Unable to move page into " + file);
+            }
+            if (owner != null) {
+                owner.add(file);
+            }
+        }
+        return new Entry(file, size, hash);
+    }
+
+    /** A new file in the cache directory that eviction leaves alone until it is committed. */
+    File newTemporaryFile() throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create " + directory);
+        }
+        return new File(directory, ".page-" + Process.myPid() + "-" + temporaryCounter.incrementAndGet() + ".tmp");
+    }
+
+    private static ParcelFileDescriptor openDescriptor(ContentResolver contentResolver, Uri uri) {
+        try {
+            return contentResolver.openFileDescriptor(uri, "r");
+        } catch (FileNotFoundException | SecurityException error) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.reactnativedocumentscanner;
+
+import android.os.SystemClock;
+
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeMap;
+
+/**
+ * Stage-level timings and memory figures of a single scan session. Page workers report into
+ * it concurrently, so every mutator is synchronized.
+ */
+class ScanMetrics {
+    final long startedAt = SystemClock.elapsedRealtime();
+    private final long heapAtStart = usedHeapBytes();
+    private long peakHeap = heapAtStart;
+
+    private String status = "pending";
+    private double startIntentLatencyMs = -1;
+    private double overlayLatencyMs = -1;
+    private long scannerLaunchedAt = -1;
+    private double scannerUiMs = -1;
+    private double processingMs = -1;
+    private int pageCount;
+    private long outputBytes;
+    private long bridgePayloadBytes;
+    private double decodeMs;
+    private double compressMs;
+    private double encodeMs;
+    private double maxPageMs;
+
+    static long usedHeapBytes() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    synchronized void onStartIntent(long latencyMs) {
+        startIntentLatencyMs = latencyMs;
+        scannerLaunchedAt = SystemClock.elapsedRealtime();
+    }
+
+    synchronized void onOverlayVisible(long latencyMs) {
+        overlayLatencyMs = latencyMs;
+    }
+
+    synchronized void onScannerResult() {
+        if (scannerLaunchedAt >= 0) {
+            scannerUiMs = SystemClock.elapsedRealtime() - scannerLaunchedAt;
+        }
+        sampleHeap();
+    }
+
+    synchronized void onPageProcessed(ProcessedPage page) {
+        pageCount++;
+        outputBytes += Math.max(0, page.byteCount);
+        decodeMs += page.decodeMs;
+        compressMs += page.compressMs;
+        encodeMs += page.encodeMs;
+        maxPageMs = Math.max(maxPageMs, page.durationMs);
+        sampleHeap();
+    }
+
+    /** Counts characters handed to the bridge, which is what JS will have to hold. */
+    synchronized void onBridgePayload(String payload) {
+        if (payload != null) {
+            bridgePayloadBytes += payload.length();
+        }
+    }
+
+    synchronized void onFinished(String status, long processingMs) {
+        this.status = status;
+        this.processingMs = processingMs;
+        sampleHeap();
+    }
+
+    synchronized void sampleHeap() {
+        peakHeap = Math.max(peakHeap, usedHeapBytes());
+    }
+
+    synchronized double get(String metric) {
+        switch (metric) {
+            case "startIntentLatencyMs": return startIntentLatencyMs;
+            case "overlayLatencyMs": return overlayLatencyMs;
+            case "scannerUiMs": return scannerUiMs;
+            case "processingMs": return processingMs;
+            case "pageCount": return pageCount;
+            case "outputBytes": return outputBytes;
+            case "bridgePayloadBytes": return bridgePayloadBytes;
+            case "decodeMsPerPage": return pageCount > 0 ? decodeMs / pageCount : -1;
+            case "compressMsPerPage": return pageCount > 0 ? compressMs / pageCount : -1;
+            case "encodeMsPerPage": return pageCount > 0 ? encodeMs / pageCount : -1;
+            case "maxPageMs": return pageCount > 0 ? maxPageMs : -1;
+            case "peakHeapDeltaBytes": return peakHeap - heapAtStart;
+            default: return -1;
+        }
+    }
+
+    synchronized WritableMap toWritableMap() {
+        WritableMap map = new WritableNativeMap();
+        map.putString("status", status);
+        map.putDouble("startedAt", startedAt);
+        for (String metric : ScanMetricsRecorder.METRICS) {
+            map.putDouble(metric, get(metric));
+        }
+        return map;
+    }
+}
@@ -0,0 +1,95 @@
+package com.reactnativedocumentscanner;
+
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeArray;
+import com.facebook.react.bridge.WritableNativeMap;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * Keeps the metrics of the last {@link #MAX_SESSIONS} finished scan sessions and summarizes
+ * them as histogram-style aggregates (count, min, mean, percentiles, max) per metric.
+ */
+class ScanMetricsRecorder {
+    static final int MAX_SESSIONS = 50;
+    static final String[] METRICS = {
+        "startIntentLatencyMs",
+        "overlayLatencyMs",
+        "scannerUiMs",
+        "processingMs",
+        "pageCount",
+        "outputBytes",
+        "bridgePayloadBytes",
+        "decodeMsPerPage",
+        "compressMsPerPage",
+        "encodeMsPerPage",
+        "maxPageMs",
+        "peakHeapDeltaBytes",
+    };
+
+    private final ArrayDeque<ScanMetrics> sessions = new ArrayDeque<>();
+
+    synchronized void record(ScanMetrics metrics) {
+        if (sessions.size() == MAX_SESSIONS) {
+            sessions.removeFirst();
+        }
+        sessions.addLast(metrics);
+    }
+
+    synchronized void clear() {
+        sessions.clear();
+    }
+
+    synchronized WritableMap toWritableMap() {
+        WritableMap response = new WritableNativeMap();
+        WritableArray recent = new WritableNativeArray();
+        for (ScanMetrics metrics : sessions) {
+            recent.pushMap(metrics.toWritableMap());
+        }
+        response.putArray("sessions", recent);
+
+        WritableMap aggregates = new WritableNativeMap();
+        for (String metric : METRICS) {
+            aggregates.putMap(metric, aggregate(metric));
+        }
+        response.putMap("aggregates", aggregates);
+        return response;
+    }
+
+    /** Summarizes one metric, ignoring sessions that never reached the stage (value -1). */
+    private WritableMap aggregate(String metric) {
+        double[] values = new double[sessions.size()];
+        int count = 0;
+        for (ScanMetrics metrics : sessions) {
+            double value = metrics.get(metric);
+            if (value >= 0) {
+                values[count++] = value;
+            }
+        }
+        Arrays.sort(values, 0, count);
+
+        WritableMap aggregate = new WritableNativeMap();
+        aggregate.putInt("count", count);
+        if (count == 0) {
+            return aggregate;
+        }
+        double sum = 0;
+        for (int i = 0; i < count; i++) {
+            sum += values[i];
+        }
+        aggregate.putDouble("min", values[0]);
+        aggregate.putDouble("mean", sum / count);
+        aggregate.putDouble("p50", percentile(values, count, 0.50));
+        aggregate.putDouble("p90", percentile(values, count, 0.90));
+        aggregate.putDouble("p99", percentile(values, count, 0.99));
+        aggregate.putDouble("max", values[count - 1]);
+        return aggregate;
+    }
+
+    static double percentile(double[] sorted, int count, double fraction) {
+        int index = (int) Math.ceil(fraction * count) - 1;
+        return sorted[Math.max(0, Math.min(count - 1, index))];
+    }
+}
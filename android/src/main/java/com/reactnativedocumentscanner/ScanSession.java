@@ -0,0 +1,160 @@
+package com.reactnativedocumentscanner;
+
+import android.app.Activity;
+
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Everything that belongs to one {@code scanDocument} call, from the moment it is queued
+ * until its promise settles, so overlapping calls never share mutable state.
+ *
+ * The promise settles exactly once, whichever of completion, failure or cancellation
+ * gets there first.
+ */
+final class ScanSession {
+    enum State { QUEUED, SCANNING, PROCESSING, FINISHED }
+
+    final String id;
+    final ReadableMap options;
+    final List<String> thumbnailUris;
+    final ScanMetrics metrics = new ScanMetrics();
+    // Result cache files this session committed, which eviction leaves alone while it runs
+    final Set<File> cachedFiles = Collections.synchronizedSet(new HashSet<File>());
+
+    // Parsed once, then read by the scanner callback and every page worker
+    final PageProcessingOptions pageOptions;
+    // The renditions to produce per page, or null for one page per scanned page
+    final List<PageRenditions.Spec> outputs;
+    final int maxConcurrency;
+    final long resultCacheMaxBytes;
+    final boolean streamPages;
+    final boolean returnHandles;
+    final boolean emitMetrics;
+    final boolean upload;
+    final boolean lazy;
+    final boolean detectDuplicates;
+    final int duplicateMaxDistance;
+    final boolean dropDuplicates;
+
+    private final Promise promise;
+    private final AtomicBoolean settled = new AtomicBoolean();
+    private volatile boolean cancelled;
+    private volatile State state = State.QUEUED;
+    private volatile Activity activity;
+    private PageProcessingPipeline.Cancellable processing;
+
+    ScanSession(String id, ReadableMap options, Promise promise) {
+        this.id = id;
+        this.options = options;
+        this.promise = promise;
+        this.thumbnailUris = readThumbnailUris(options);
+        this.pageOptions = PageProcessingOptions.fromReadableMap(options);
+        this.outputs = options.hasKey("outputs") ? PageRenditions.fromReadableArray(options.getArray("outputs"), pageOptions) : null;
+        this.maxConcurrency = options.hasKey("maxConcurrency") ? options.getInt("maxConcurrency") : 0;
+        this.resultCacheMaxBytes = options.hasKey("resultCacheMaxBytes") ? (long) options.getDouble("resultCacheMaxBytes") : ResultFileCache.DEFAULT_MAX_BYTES;
+        this.streamPages = options.hasKey("streamPages") && options.getBoolean("streamPages");
+        this.returnHandles = options.hasKey("returnHandles") && options.getBoolean("returnHandles");
+        this.emitMetrics = options.hasKey("emitMetrics") && options.getBoolean("emitMetrics");
+        this.upload = options.hasKey("upload") && options.getBoolean("upload");
+        this.lazy = options.hasKey("lazy") && options.getBoolean("lazy");
+
+        ReadableMap duplicateDetection = options.hasKey("duplicateDetection") ? options.getMap("duplicateDetection") : null;
+        this.detectDuplicates = duplicateDetection != null;
+        this.duplicateMaxDistance = duplicateDetection != null && duplicateDetection.hasKey("maxDistance")
+            ? duplicateDetection.getInt("maxDistance")
+            : PageHasher.DEFAULT_MAX_DISTANCE;
+        this.dropDuplicates = duplicateDetection != null && duplicateDetection.hasKey("drop") && duplicateDetection.getBoolean("drop");
+    }
+
+    State getState() {
+        return state;
+    }
+
+    void setState(State state) {
+        this.state = state;
+    }
+
+    Activity getActivity() {
+        return activity;
+    }
+
+    void setActivity(Activity activity) {
+        this.activity = activity;
+    }
+
+    boolean isCancelled() {
+        return cancelled;
+    }
+
+    /** Lets page workers stop at the next stage boundary once the session was cancelled. */
+    void throwIfCancelled() {
+        if (cancelled) {
+            throw new CancellationException("Scan session " + id + " was cancelled");
+        }
+    }
+
+    synchronized void setProcessing(PageProcessingPipeline.Cancellable processing) {
+        this.processing = processing;
+        if (cancelled) {
+            processing.cancel();
+        }
+    }
+
+    /** Marks the session cancelled and aborts its page processing, if that has started. */
+    void cancel() {
+        PageProcessingPipeline.Cancellable current;
+        synchronized (this) {
+            cancelled = true;
+            current = processing;
+        }
+        if (current != null) {
+            current.cancel();
+        }
+    }
+
+    boolean resolve(Object value) {
+        if (!settled.compareAndSet(false, true)) {
+            return false;
+        }
+        promise.resolve(value);
+        return true;
+    }
+
+    boolean reject(String code, String message) {
+        if (!settled.compareAndSet(false, true)) {
+            return false;
+        }
+        promise.reject(code, message);
+        return true;
+    }
+
+    private static List<String> readThumbnailUris(ReadableMap options) {
+        if (!options.hasKey("customOverlay")) {
+            return Collections.emptyList();
+        }
+        ReadableMap customOverlay = options.getMap("customOverlay");
+        if (customOverlay == null || !customOverlay.hasKey("thumbnails")) {
+            return Collections.emptyList();
+        }
+        ReadableArray thumbnails = customOverlay.getArray("thumbnails");
+        List<String> uris = new ArrayList<>();
+        for (int i = 0; thumbnails != null && i < thumbnails.size(); i++) {
+            ReadableMap thumbnail = thumbnails.getMap(i);
+            if (thumbnail != null && thumbnail.hasKey("uri")) {
+                uris.add(thumbnail.getString("uri"));
+            }
+        }
+        return uris;
+    }
+}
@@ -0,0 +1,124 @@
+package com.reactnativedocumentscanner;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decides which scan session owns the scanner UI.
+ *
+ * Only one session at a time can have the scanner open, because there is one launcher and
+ * one overlay per host activity. A session that arrives while another is scanning is
+ * either queued behind it or rejected, depending on its policy. Page processing doesn't
+ * hold the scanner, so the next session can start scanning while the previous one is
+ * still encoding its pages. Sessions stay registered until they finish, so they can be
+ * looked up and cancelled by id.
+ */
+class ScanSessionScheduler {
+    static final String POLICY_REJECT = "reject";
+    static final String POLICY_QUEUE = "queue";
+
+    enum Admission { START, QUEUED, BUSY, DUPLICATE_ID }
+
+    private final Map<String, ScanSession> sessions = new HashMap<>();
+    private final ArrayDeque<ScanSession> queue = new ArrayDeque<>();
+    private ScanSession scanningSession;
+    private int sessionCounter;
+
+    synchronized String nextSessionId() {
+        String id;
+        do {
+            id = "scan-" + (++sessionCounter);
+        } while (sessions.containsKey(id));
+        return id;
+    }
+
+    /** Registers a new session. On {@link Admission#START} the caller must start it right away. */
+    synchronized Admission submit(ScanSession session, String policy) {
+        if (sessions.containsKey(session.id)) {
+            return Admission.DUPLICATE_ID;
+        }
+        if (scanningSession != null || !queue.isEmpty()) {
+            if (!POLICY_QUEUE.equals(policy)) {
+                return Admission.BUSY;
+            }
+            sessions.put(session.id, session);
+            queue.addLast(session);
+            return Admission.QUEUED;
+        }
+        sessions.put(session.id, session);
+        scanningSession = session;
+        session.setState(ScanSession.State.SCANNING);
+        return Admission.START;
+    }
+
+    synchronized ScanSession get(String sessionId) {
+        return sessions.get(sessionId);
+    }
+
+    /** Every session that hasn't finished, whether queued, scanning or processing. */
+    synchronized List<ScanSession> getSessions() {
+        return new ArrayList<>(sessions.values());
+    }
+
+    synchronized ScanSession getScanningSession() {
+        return scanningSession;
+    }
+
+    /** Removes a session that never left the queue. Returns false if it already had. */
+    synchronized boolean dequeue(ScanSession session) {
+        if (!queue.remove(session)) {
+            return false;
+        }
+        sessions.remove(session.id);
+        session.setState(ScanSession.State.FINISHED);
+        return true;
+    }
+
+    /**
+     * Hands the scanner from {@code session}, whose scanner UI just closed, to the next
+     * queued session. Returns that session, already marked as scanning, or null.
+     */
+    synchronized ScanSession releaseScanner(ScanSession session) {
+        if (scanningSession != session) {
+            return null;
+        }
+        if (session.getState() == ScanSession.State.SCANNING) {
+            session.setState(ScanSession.State.PROCESSING);
+        }
+        scanningSession = queue.pollFirst();
+        if (scanningSession != null) {
+            scanningSession.setState(ScanSession.State.SCANNING);
+        }
+        return scanningSession;
+    }
+
+    /**
+     * Drops the scanning session and every queued one, for when the host activity goes away
+     * and their scanner results can no longer arrive. Returns them so they can be rejected.
+     */
+    synchronized List<ScanSession> abandonWaiting() {
+        List<ScanSession> abandoned = new ArrayList<>();
+        if (scanningSession != null) {
+            abandoned.add(scanningSession);
+            scanningSession = null;
+        }
+        abandoned.addAll(queue);
+        queue.clear();
+        for (ScanSession session : abandoned) {
+            sessions.remove(session.id);
+            session.setState(ScanSession.State.FINISHED);
+        }
+        return abandoned;
+    }
+
+    /** Unregisters a settled session. Returns the next session to start if it held the scanner. */
+    synchronized ScanSession finish(ScanSession session) {
+        ScanSession next = releaseScanner(session);
+        sessions.remove(session.id);
+        session.setState(ScanSession.State.FINISHED);
+        return next;
+    }
+}
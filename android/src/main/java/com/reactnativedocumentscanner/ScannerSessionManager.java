@@ -0,0 +1,166 @@
+package com.reactnativedocumentscanner;
+
+import android.app.Activity;
+import android.content.IntentSender;
+import android.os.SystemClock;
+
+import androidx.activity.ComponentActivity;
+import androidx.activity.result.ActivityResult;
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.IntentSenderRequest;
+import androidx.activity.result.contract.ActivityResultContracts;
+
+import com.facebook.react.bridge.ReadableMap;
+import com.google.android.gms.tasks.OnFailureListener;
+import com.google.mlkit.vision.documentscanner.GmsDocumentScanner;
+import com.google.mlkit.vision.documentscanner.GmsDocumentScannerOptions;
+import com.google.mlkit.vision.documentscanner.GmsDocumentScanning;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Caches ML Kit scanner clients by their options and keeps a single ActivityResultLauncher
+ * per host activity, instead of building both on every {@code scanDocument} call.
+ *
+ * The launcher is registered once and unregistered when the host activity changes or is
+ * destroyed; each launch just swaps in the listener that should receive its result.
+ */
+class ScannerSessionManager {
+    private static final String LAUNCHER_KEY = "document-scanner";
+
+    interface ResultListener {
+        void onResult(ActivityResult result);
+    }
+
+    interface StartIntentListener {
+        void onStartIntent(IntentSender intentSender, long latencyMs, boolean cold);
+    }
+
+    private final Map<String, GmsDocumentScanner> clients = new HashMap<>();
+    private final Set<String> warmedClients = new HashSet<>();
+
+    private ComponentActivity launcherActivity;
+    private ActivityResultLauncher<IntentSenderRequest> launcher;
+    private ResultListener pendingListener;
+
+    private long lastColdLatencyMs = -1;
+    private long lastWarmLatencyMs = -1;
+    private long warmLatencyTotalMs;
+    private int warmLaunchCount;
+
+    /** A stable key for the scanner options {@code scanDocument} was called with. */
+    static String clientKey(ReadableMap options) {
+        int pageLimit = options.hasKey("maxNumDocuments") ? options.getInt("maxNumDocuments") : 0;
+        return "full|jpeg|" + pageLimit;
+    }
+
+    synchronized GmsDocumentScanner getClient(ReadableMap options) {
+        String key = clientKey(options);
+        GmsDocumentScanner client = clients.get(key);
+        if (client == null) {
+            GmsDocumentScannerOptions.Builder documentScannerOptionsBuilder = new GmsDocumentScannerOptions.Builder()
+                .setResultFormats(GmsDocumentScannerOptions.RESULT_FORMAT_JPEG)
+                .setScannerMode(GmsDocumentScannerOptions.SCANNER_MODE_FULL);
+
+            if (options.hasKey("maxNumDocuments")) {
+                documentScannerOptionsBuilder.setPageLimit(options.getInt("maxNumDocuments"));
+            }
+
+            client = GmsDocumentScanning.getClient(documentScannerOptionsBuilder.build());
+            clients.put(key, client);
+        }
+        return client;
+    }
+
+    /**
+     * Asks the (cached) client for its start intent and reports how long that took. The
+     * first request per client is "cold"; it is the one {@code prewarm} is meant to absorb.
+     */
+    void requestStartIntent(Activity activity, ReadableMap options, StartIntentListener listener, OnFailureListener failureListener) {
+        String key = clientKey(options);
+        GmsDocumentScanner client = getClient(options);
+        long start = SystemClock.elapsedRealtime();
+        client.getStartScanIntent(activity)
+            .addOnSuccessListener(intentSender -> {
+                long latencyMs = SystemClock.elapsedRealtime() - start;
+                boolean cold = recordLatency(key, latencyMs);
+                listener.onStartIntent(intentSender, latencyMs, cold);
+            })
+            .addOnFailureListener(failureListener);
+    }
+
+    /** Launches the scanner UI, reusing this activity's launcher when it already has one. */
+    synchronized void launch(ComponentActivity activity, IntentSender intentSender, ResultListener listener) {
+        if (launcher == null || launcherActivity != activity) {
+            releaseLauncher();
+            launcherActivity = activity;
+            launcher = activity.getActivityResultRegistry().register(
+                LAUNCHER_KEY,
+                new ActivityResultContracts.StartIntentSenderForResult(),
+                this::dispatchResult
+            );
+        }
+        pendingListener = listener;
+        launcher.launch(new IntentSenderRequest.Builder(intentSender).build());
+    }
+
+    synchronized void releaseLauncher() {
+        if (launcher != null) {
+            launcher.unregister();
+        }
+        launcher = null;
+        launcherActivity = null;
+        pendingListener = null;
+    }
+
+    synchronized LaunchStats getLaunchStats() {
+        return new LaunchStats(
+            clients.size(),
+            lastColdLatencyMs,
+            lastWarmLatencyMs,
+            warmLaunchCount > 0 ? warmLatencyTotalMs / warmLaunchCount : -1,
+            warmLaunchCount
+        );
+    }
+
+    private void dispatchResult(ActivityResult result) {
+        ResultListener listener;
+        synchronized (this) {
+            listener = pendingListener;
+            pendingListener = null;
+        }
+        if (listener != null) {
+            listener.onResult(result);
+        }
+    }
+
+    private synchronized boolean recordLatency(String key, long latencyMs) {
+        if (warmedClients.add(key)) {
+            lastColdLatencyMs = latencyMs;
+            return true;
+        }
+        lastWarmLatencyMs = latencyMs;
+        warmLatencyTotalMs += latencyMs;
+        warmLaunchCount++;
+        return false;
+    }
+
+    static final class LaunchStats {
+        final int cachedClients;
+        final long lastColdLatencyMs;
+        final long lastWarmLatencyMs;
+        final long averageWarmLatencyMs;
+        final int warmLaunchCount;
+
+        LaunchStats(int cachedClients, long lastColdLatencyMs, long lastWarmLatencyMs, long averageWarmLatencyMs, int warmLaunchCount) {
+            this.cachedClients = cachedClients;
+            this.lastColdLatencyMs = lastColdLatencyMs;
+            this.lastWarmLatencyMs = lastWarmLatencyMs;
+            this.averageWarmLatencyMs = averageWarmLatencyMs;
+            this.warmLaunchCount = warmLaunchCount;
+        }
+    }
+}
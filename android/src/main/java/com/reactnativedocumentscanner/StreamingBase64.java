@@ -0,0 +1,155 @@
+package com.reactnativedocumentscanner;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Base64-encodes a byte stream in fixed-size chunks, appending straight into the result
+ * String's builder so the whole source never has to be buffered as a {@code byte[]}.
+ *
+ * Chunks are a whole number of 57-byte input lines, so the output is identical to calling
+ * {@code android.util.Base64.encodeToString(bytes, Base64.DEFAULT)} on the complete input:
+ * 76 character lines, each ending in {@code '\n'}, with {@code '='} padding. The encoding
+ * is done here rather than by {@code android.util.Base64}, which returns a new array per
+ * chunk, so it runs on a plain JVM too and allocates nothing beyond the result.
+ */
+final class StreamingBase64 {
+    // 57 input bytes encode to exactly one 76 character Base64.DEFAULT line
+    private static final int LINE_BYTES = 57;
+    private static final int LINE_CHARS = 76;
+    private static final char[] ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+    static final int CHUNK_BYTES = LINE_BYTES * 144;
+
+    private StreamingBase64() {}
+
+    /**
+     * Encodes everything left in {@code input}. {@code sizeHint} is the expected number of
+     * input bytes, or a negative value when unknown; it only pre-sizes the output.
+     * {@code chunk} is scratch space of {@link #CHUNK_BYTES} bytes that callers may reuse.
+     */
+    static String encode(InputStream input, long sizeHint, byte[] chunk) throws IOException {
+        EncodingOutputStream output = new EncodingOutputStream(sizeHint, chunk);
+        int filled;
+        while ((filled = readFully(input, chunk)) > 0) {
+            output.count = filled;
+            output.flushChunk();
+        }
+        return output.finish();
+    }
+
+    /** The number of characters {@code Base64.DEFAULT} produces for {@code byteCount} input bytes. */
+    static long encodedLength(long byteCount) {
+        long lines = (byteCount + LINE_BYTES - 1) / LINE_BYTES;
+        return (byteCount + 2) / 3 * 4 + lines;
+    }
+
+    private static int readFully(InputStream input, byte[] buffer) throws IOException {
+        int filled = 0;
+        while (filled < buffer.length) {
+            int read = input.read(buffer, filled, buffer.length - filled);
+            if (read < 0) {
+                break;
+            }
+            filled += read;
+        }
+        return filled;
+    }
+
+    /**
+     * An OutputStream that encoders such as {@code Bitmap.compress} can write into directly.
+     * Call {@link #finish()} once to obtain the encoded String; the chunk buffer can be
+     * reused after that.
+     */
+    static final class EncodingOutputStream extends OutputStream {
+        private final byte[] chunk;
+        private final StringBuilder encoded;
+        private final char[] line = new char[LINE_CHARS + 1];
+        private int count;
+        private long byteCount;
+        private long encodeNanos;
+
+        EncodingOutputStream(long sizeHint, byte[] chunk) {
+            if (chunk.length != CHUNK_BYTES) {
+                throw new IllegalArgumentException("chunk must be " + CHUNK_BYTES + " bytes");
+            }
+            this.chunk = chunk;
+            long capacity = sizeHint > 0 ? encodedLength(sizeHint) : encodedLength(CHUNK_BYTES);
+            this.encoded = new StringBuilder((int) Math.min(capacity, Integer.MAX_VALUE - 8));
+        }
+
+        @Override
+        public void write(int b) {
+            chunk[count++] = (byte) b;
+            if (count == chunk.length) {
+                flushChunk();
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            while (len > 0) {
+                int copied = Math.min(len, chunk.length - count);
+                System.arraycopy(b, off, chunk, count, copied);
+                count += copied;
+                off += copied;
+                len -= copied;
+                if (count == chunk.length) {
+                    flushChunk();
+                }
+            }
+        }
+
+        /** The number of raw (pre-encoding) bytes written so far. */
+        long getByteCount() {
+            return byteCount + count;
+        }
+
+        /** Time spent base64-encoding so far, as opposed to producing the bytes. */
+        double getEncodeMs() {
+            return encodeNanos / 1_000_000d;
+        }
+
+        String finish() {
+            flushChunk();
+            return encoded.toString();
+        }
+
+        private void flushChunk() {
+            if (count == 0) {
+                return;
+            }
+            long start = System.nanoTime();
+            for (int offset = 0; offset < count; offset += LINE_BYTES) {
+                encodeLine(chunk, offset, Math.min(LINE_BYTES, count - offset), line, encoded);
+            }
+            encodeNanos += System.nanoTime() - start;
+            byteCount += count;
+            count = 0;
+        }
+    }
+
+    /** Encodes up to one line's worth of bytes, newline included, into {@code out}. */
+    static void encodeLine(byte[] input, int offset, int length, char[] line, StringBuilder out) {
+        int end = offset + length;
+        int c = 0;
+        int i = offset;
+        for (; i + 2 < end; i += 3) {
+            int bits = (input[i] & 0xFF) << 16 | (input[i + 1] & 0xFF) << 8 | (input[i + 2] & 0xFF);
+            line[c++] = ALPHABET[bits >>> 18];
+            line[c++] = ALPHABET[(bits >>> 12) & 0x3F];
+            line[c++] = ALPHABET[(bits >>> 6) & 0x3F];
+            line[c++] = ALPHABET[bits & 0x3F];
+        }
+        int tail = end - i;
+        if (tail > 0) {
+            int bits = (input[i] & 0xFF) << 16 | (tail == 2 ? (input[i + 1] & 0xFF) << 8 : 0);
+            line[c++] = ALPHABET[bits >>> 18];
+            line[c++] = ALPHABET[(bits >>> 12) & 0x3F];
+            line[c++] = tail == 2 ? ALPHABET[(bits >>> 6) & 0x3F] : '=';
+            line[c++] = '=';
+        }
+        line[c++] = '\n';
+        out.append(line, 0, c);
+    }
+}
@@ -0,0 +1,250 @@
+package com.reactnativedocumentscanner;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.database.Cursor;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+import android.util.LruCache;
+import android.widget.ImageView;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Loads the overlay strip's thumbnails at their display size through two cache levels:
+ * an in-memory LRU capped by bytes, and a disk cache of already-downscaled JPEGs keyed by
+ * URI and modification time, so reopening the scanner with the same thumbnails doesn't
+ * decode the full-size images again. The disk cache is trimmed back to its cap on start,
+ * whenever a write takes it over the cap and on memory pressure. Decoding never happens on
+ * the main thread.
+ */
+class ThumbnailLoader {
+    private static final String TAG = "DocumentScanner";
+    private static final String CACHE_DIRECTORY = "document-scanner-thumbnails";
+    private static final int DISK_CACHE_QUALITY = 80;
+    private static final long DISK_CACHE_MAX_BYTES = 16L * 1024 * 1024;
+
+    private final ContentResolver contentResolver;
+    private final File cacheDirectory;
+    private final LruCache<String, Bitmap> memoryCache;
+    private final ExecutorService executor;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Set<String> inFlight = new HashSet<>();
+    // Bytes on disk as of the last trim plus what was written since, guarded by this
+    private long diskCacheBytes;
+
+    ThumbnailLoader(Context context) {
+        this.contentResolver = context.getContentResolver();
+        this.cacheDirectory = new File(context.getCacheDir(), CACHE_DIRECTORY);
+        int maxBytes = (int) Math.min(Runtime.getRuntime().maxMemory() / 32, 8L * 1024 * 1024);
+        this.memoryCache = new LruCache<String, Bitmap>(maxBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                return bitmap.getByteCount();
+            }
+        };
+        this.executor = Executors.newFixedThreadPool(2, runnable -> {
+            Thread thread = new Thread(() -> {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                runnable.run();
+            }, "DocumentScanner-thumbnails");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.execute(this::trimDiskCache);
+    }
+
+    /**
+     * Shows the thumbnail for {@code uri} in {@code imageView}. Cached thumbnails bind
+     * immediately; others are decoded in the background and bound only if the view still
+     * wants the same URI. Must be called on the main thread.
+     */
+    void bind(ImageView imageView, String uri, int size) {
+        String memoryKey = uri + "@" + size;
+        imageView.setTag(memoryKey);
+
+        Bitmap cached = memoryCache.get(memoryKey);
+        if (cached != null) {
+            imageView.setImageBitmap(cached);
+            return;
+        }
+        if (!inFlight.add(memoryKey)) {
+            return;
+        }
+
+        executor.execute(() -> {
+            Bitmap thumbnail = null;
+            try {
+                thumbnail = load(Uri.parse(uri), size);
+            } catch (IOException | RuntimeException error) {
+                Log.w(TAG, "Unable to load thumbnail " + uri, error);
+            }
+            Bitmap loaded = thumbnail;
+            mainHandler.post(() -> {
+                inFlight.remove(memoryKey);
+                if (loaded == null) {
+                    return;
+                }
+                memoryCache.put(memoryKey, loaded);
+                if (memoryKey.equals(imageView.getTag())) {
+                    imageView.setImageBitmap(loaded);
+                }
+            });
+        });
+    }
+
+    void trimMemory(boolean clear) {
+        if (clear) {
+            memoryCache.evictAll();
+            if (!executor.isShutdown()) {
+                executor.execute(this::trimDiskCache);
+            }
+        } else {
+            memoryCache.trimToSize(memoryCache.maxSize() / 2);
+        }
+    }
+
+    void shutdown() {
+        executor.shutdownNow();
+        memoryCache.evictAll();
+    }
+
+    private Bitmap load(Uri uri, int size) throws IOException {
+        File diskFile = new File(cacheDirectory, diskKey(uri, size) + ".jpg");
+        if (diskFile.isFile()) {
+            Bitmap bitmap = BitmapFactory.decodeFile(diskFile.getPath(), null);
+            if (bitmap != null) {
+                diskFile.setLastModified(System.currentTimeMillis());
+                return bitmap;
+            }
+        }
+
+        Bitmap thumbnail = decodeCenterCropped(uri, size);
+        writeToDisk(thumbnail, diskFile);
+        return thumbnail;
+    }
+
+    private Bitmap decodeCenterCropped(Uri uri, int size) throws IOException {
+        BitmapFactory.Options bounds = PageDecoder.readBounds(contentResolver, uri);
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) {
+            throw new IOException("Unable to read image bounds of " + uri);
+        }
+
+        BitmapFactory.Options decodeOptions = new BitmapFactory.Options();
+        decodeOptions.inSampleSize = PageDecoder.calculateInSampleSize(bounds.outWidth, bounds.outHeight, size, size);
+        Bitmap sampled;
+        try (InputStream inputStream = PageDecoder.open(contentResolver, uri)) {
+            sampled = BitmapFactory.decodeStream(inputStream, null, decodeOptions);
+        }
+        if (sampled == null) {
+            throw new IOException("Unable to decode image " + uri);
+        }
+
+        int cropSize = Math.min(sampled.getWidth(), sampled.getHeight());
+        int left = (sampled.getWidth() - cropSize) / 2;
+        int top = (sampled.getHeight() - cropSize) / 2;
+        Bitmap thumbnail = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+        new Canvas(thumbnail).drawBitmap(
+            sampled,
+            new Rect(left, top, left + cropSize, top + cropSize),
+            new Rect(0, 0, size, size),
+            new Paint(Paint.FILTER_BITMAP_FLAG)
+        );
+        sampled.recycle();
+        return thumbnail;
+    }
+
+    private void writeToDisk(Bitmap thumbnail, File diskFile) {
+        if (!cacheDirectory.isDirectory() && !cacheDirectory.mkdirs()) {
+            return;
+        }
+        File temporaryFile = new File(cacheDirectory, diskFile.getName() + ".tmp");
+        try (OutputStream outputStream = new FileOutputStream(temporaryFile)) {
+            thumbnail.compress(Bitmap.CompressFormat.JPEG, DISK_CACHE_QUALITY, outputStream);
+        } catch (IOException error) {
+            Log.w(TAG, "Unable to cache thumbnail", error);
+            temporaryFile.delete();
+            return;
+        }
+        if (!temporaryFile.renameTo(diskFile)) {
+            temporaryFile.delete();
+            return;
+        }
+        boolean overCap;
+        synchronized (this) {
+            diskCacheBytes += diskFile.length();
+            overCap = diskCacheBytes > DISK_CACHE_MAX_BYTES;
+        }
+        if (overCap) {
+            trimDiskCache();
+        }
+    }
+
+    /** Deletes the least recently used disk thumbnails beyond {@link #DISK_CACHE_MAX_BYTES}. */
+    private synchronized void trimDiskCache() {
+        File[] files = cacheDirectory.listFiles();
+        if (files == null) {
+            diskCacheBytes = 0;
+            return;
+        }
+        long totalBytes = 0;
+        for (File file : files) {
+            totalBytes += file.length();
+        }
+        diskCacheBytes = totalBytes;
+        if (totalBytes <= DISK_CACHE_MAX_BYTES) {
+            return;
+        }
+        Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (File file : files) {
+            if (totalBytes <= DISK_CACHE_MAX_BYTES) {
+                break;
+            }
+            long length = file.length();
+            if (file.delete()) {
+                totalBytes -= length;
+            }
+        }
+        diskCacheBytes = totalBytes;
+    }
+
+    private String diskKey(Uri uri, int size) {
+        return Digests.sha1(uri.toString() + "|" + lastModified(uri) + "|" + size);
+    }
+
+    private long lastModified(Uri uri) {
+        if ("file".equals(uri.getScheme()) && uri.getPath() != null) {
+            return new File(uri.getPath()).lastModified();
+        }
+        try (Cursor cursor = contentResolver.query(uri, null, null, null, null)) {
+            if (cursor != null && cursor.moveToFirst()) {
+                for (String column : new String[] { "last_modified", "date_modified" }) {
+                    int columnIndex = cursor.getColumnIndex(column);
+                    if (columnIndex >= 0 && !cursor.isNull(columnIndex)) {
+                        return cursor.getLong(columnIndex);
+                    }
+                }
+            }
+        } catch (RuntimeException error) {
+            // Providers that don't support queries just don't get modification-aware keys
+        }
+        return 0;
+    }
+}
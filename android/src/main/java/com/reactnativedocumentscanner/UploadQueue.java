@@ -0,0 +1,754 @@
+package com.reactnativedocumentscanner;
+
+import android.content.ContentResolver;
+import android.net.Uri;
+import android.os.Process;
+import android.util.Log;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Uploads processed pages to an HTTP endpoint in the background, surviving process death.
+ *
+ * Pages are copied into the app's files directory when they are enqueued, so the upload
+ * never depends on cache files that may be evicted, and their bytes never pass through JS.
+ * Every state change is appended to a journal before it takes effect; on start the journal
+ * is replayed, and uploads resume from the last byte the server confirmed.
+ *
+ * Each page is sent as a series of {@code PUT} requests of at most {@code chunkBytes}, with
+ * a {@code Content-Range} header and an {@code Upload-Id} that stays the same across
+ * chunks, retries and restarts. A 2xx or 308 response confirms the chunk; if it carries a
+ * {@code Range: bytes=0-N} header, upload continues after byte N instead. Network errors,
+ * 408, 429 and 5xx responses are retried with exponential backoff; other responses fail the
+ * page, which keeps its file until {@link #retryFailed()} or the next clean-up.
+ *
+ * Pages enqueued together (one scan) form a batch. Its pages are queued in page order, but
+ * with more than one worker they upload side by side and can finish in any order. The
+ * batch reports exactly once when every page of it has either been uploaded or failed.
+ *
+ * The configuration is saved for the next launch without its credential headers
+ * ({@code Authorization}, {@code Proxy-Authorization}, {@code Cookie}). If it had any,
+ * uploads left from an earlier launch wait until {@link #configure} supplies them again.
+ */
+class UploadQueue {
+    static final String DIRECTORY = "document-scanner-uploads";
+    static final int DEFAULT_PARALLELISM = 2;
+    static final int DEFAULT_CHUNK_BYTES = 1024 * 1024;
+    static final int DEFAULT_MAX_RETRIES = 5;
+
+    private static final String TAG = "DocumentScanner";
+    private static final String JOURNAL_FILE = "journal.log";
+    private static final String CONFIG_FILE = "config.properties";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final long BASE_RETRY_DELAY_MS = 1000;
+    private static final long MAX_RETRY_DELAY_MS = 60_000;
+    private static final int CONNECT_TIMEOUT_MS = 15_000;
+    private static final int READ_TIMEOUT_MS = 30_000;
+    private static final String[] CREDENTIAL_HEADERS = { "Authorization", "Proxy-Authorization", "Cookie" };
+
+    enum Status { PENDING, UPLOADING, DONE, FAILED }
+
+    static final class Config {
+        final String url;
+        final Map<String, String> headers;
+        final int parallelism;
+        final int chunkBytes;
+        final int maxRetries;
+
+        Config(String url, Map<String, String> headers, int parallelism, int chunkBytes, int maxRetries) {
+            this.url = url;
+            this.headers = headers;
+            this.parallelism = Math.max(1, parallelism);
+            this.chunkBytes = Math.max(1, chunkBytes);
+            this.maxRetries = Math.max(0, maxRetries);
+        }
+    }
+
+    /** One page to enqueue: where to copy it from and what to send it as. */
+    static final class Source {
+        final int index;
+        final Uri uri;
+        final String mimeType;
+
+        Source(int index, Uri uri, String mimeType) {
+            this.index = index;
+            this.uri = uri;
+            this.mimeType = mimeType;
+        }
+    }
+
+    static final class Entry {
+        final String id;
+        final String batchId;
+        final int index;
+        final String mimeType;
+        final File file;
+        final long size;
+        volatile long confirmedBytes;
+        volatile Status status = Status.PENDING;
+        volatile String error;
+        // Consecutive failed attempts; reset whenever a chunk gets through
+        int attempts;
+
+        Entry(String id, String batchId, int index, String mimeType, File file, long size) {
+            this.id = id;
+            this.batchId = batchId;
+            this.index = index;
+            this.mimeType = mimeType;
+            this.file = file;
+            this.size = size;
+        }
+    }
+
+    /** How many pages of a batch are still unfinished, and whether it was reported. */
+    private static final class Batch {
+        int remaining;
+        int failed;
+        boolean completed;
+    }
+
+    interface Listener {
+        void onUploadProgress(Entry entry);
+
+        void onBatchFinished(String batchId, int failed);
+    }
+
+    /** A response the server gave for a chunk, other than success. */
+    private static final class UploadException extends IOException {
+        final boolean retryable;
+
+        UploadException(int responseCode) {
+            super("Upload endpoint responded with HTTP " + responseCode);
+            this.retryable = responseCode == 408 || responseCode == 429 || responseCode >= 500;
+        }
+    }
+
+    private final File directory;
+    private final Listener listener;
+    private final ScheduledThreadPoolExecutor executor;
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+    private final Map<String, Batch> batches = new LinkedHashMap<>();
+    private final ArrayDeque<Entry> pending = new ArrayDeque<>();
+    private final long baseRetryDelayMs;
+    private Config config;
+    private int active;
+    private boolean loaded;
+    private boolean shutdown;
+
+    UploadQueue(File directory, Listener listener) {
+        this(directory, listener, BASE_RETRY_DELAY_MS);
+    }
+
+    UploadQueue(File directory, Listener listener, long baseRetryDelayMs) {
+        this.directory = directory;
+        this.listener = listener;
+        this.baseRetryDelayMs = baseRetryDelayMs;
+        this.executor = new ScheduledThreadPoolExecutor(DEFAULT_PARALLELISM, new WorkerThreadFactory());
+        this.executor.setKeepAliveTime(30, TimeUnit.SECONDS);
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /** Replays the journal off the calling thread and resumes whatever was left unfinished. */
+    void start() {
+        executor.execute(() -> {
+            synchronized (this) {
+                try {
+                    load();
+                } catch (IOException | RuntimeException error) {
+                    Log.w(TAG, "Unable to restore the upload queue", error);
+                }
+                loaded = true;
+                notifyAll();
+                pump();
+            }
+        });
+    }
+
+    synchronized Config getConfig() {
+        return config;
+    }
+
+    /** Sets the endpoint and limits, persists them for the next launch and starts uploading. */
+    synchronized void configure(Config config) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("url", config.url);
+        properties.setProperty("parallelism", String.valueOf(config.parallelism));
+        properties.setProperty("chunkBytes", String.valueOf(config.chunkBytes));
+        properties.setProperty("maxRetries", String.valueOf(config.maxRetries));
+        StringBuilder credentialHeaders = new StringBuilder();
+        for (Map.Entry<String, String> header : config.headers.entrySet()) {
+            if (isCredentialHeader(header.getKey())) {
+                // Kept in memory only; the files directory is no place for secrets
+                credentialHeaders.append(credentialHeaders.length() > 0 ? "," : "").append(header.getKey());
+            } else {
+                properties.setProperty("header." + header.getKey(), header.getValue());
+            }
+        }
+        if (credentialHeaders.length() > 0) {
+            properties.setProperty("credentialHeaders", credentialHeaders.toString());
+        }
+        ensureDirectory();
+        File temporaryFile = new File(directory, CONFIG_FILE + ".tmp");
+        try (FileOutputStream outputStream = new FileOutputStream(temporaryFile)) {
+            properties.store(outputStream, null);
+            outputStream.getFD().sync();
+        }
+        if (!temporaryFile.renameTo(new File(directory, CONFIG_FILE))) {
+            temporaryFile.delete();
+            throw new IOException("Unable to save the upload configuration");
+        }
+
+        this.config = config;
+        executor.setCorePoolSize(config.parallelism);
+        pump();
+    }
+
+    /**
+     * Copies the pages into the queue's directory and journals them as one batch. Either the
+     * whole batch is enqueued or, on failure, none of it.
+     */
+    void enqueueBatch(ContentResolver contentResolver, String batchId, List<Source> sources) throws IOException {
+        // Until the journal is replayed, new copies would look like orphans and be deleted
+        awaitLoaded();
+        ensureDirectory();
+        List<Entry> batch = new ArrayList<>();
+        try {
+            for (Source source : sources) {
+                String id = UUID.randomUUID().toString();
+                File file = new File(directory, id);
+                long size = copy(contentResolver, source.uri, file);
+                batch.add(new Entry(id, batchId, source.index, source.mimeType, file, size));
+            }
+
+            StringBuilder records = new StringBuilder();
+            for (Entry entry : batch) {
+                records.append(record("A", entry.id, entry.batchId, String.valueOf(entry.index), entry.mimeType, String.valueOf(entry.size)));
+            }
+            synchronized (this) {
+                appendToJournal(records.toString());
+                for (Entry entry : batch) {
+                    entries.put(entry.id, entry);
+                    pending.addLast(entry);
+                    batch(entry.batchId).remaining++;
+                }
+                pump();
+            }
+        } catch (IOException | RuntimeException error) {
+            for (Entry entry : batch) {
+                entry.file.delete();
+            }
+            throw error;
+        }
+    }
+
+    /** Waits until {@link #start()} has replayed the journal. */
+    synchronized void awaitLoaded() throws IOException {
+        while (!loaded) {
+            if (shutdown) {
+                throw new IOException("The upload queue was shut down");
+            }
+            try {
+                wait();
+            } catch (InterruptedException error) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while the upload queue was loading");
+            }
+        }
+    }
+
+    /** Puts every failed page back in line. Returns how many there were. */
+    synchronized int retryFailed() throws IOException {
+        StringBuilder records = new StringBuilder();
+        List<Entry> failed = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            if (entry.status == Status.FAILED) {
+                records.append(record("R", entry.id));
+                failed.add(entry);
+            }
+        }
+        if (failed.isEmpty()) {
+            return 0;
+        }
+        appendToJournal(records.toString());
+        for (Entry entry : failed) {
+            entry.status = Status.PENDING;
+            entry.error = null;
+            entry.attempts = 0;
+            pending.addLast(entry);
+            Batch batch = batch(entry.batchId);
+            batch.failed--;
+            batch.remaining++;
+            // The batch reports again once the retried pages are done
+            batch.completed = false;
+        }
+        pump();
+        return failed.size();
+    }
+
+    synchronized List<Entry> getEntries() {
+        return new ArrayList<>(entries.values());
+    }
+
+    /**
+     * Stops uploading and reporting. Uploads already in flight still finish their current
+     * chunk and journal it, so they resume from there on the next launch.
+     */
+    void shutdown() {
+        synchronized (this) {
+            // Checked under the lock before anything is handed to the executor
+            shutdown = true;
+            notifyAll();
+        }
+        executor.shutdownNow();
+    }
+
+    /** Waits for uploads still in flight after {@link #shutdown()}. */
+    boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return executor.awaitTermination(timeout, unit);
+    }
+
+    // ✅ UPLOADING
+    private synchronized void pump() {
+        if (shutdown || !loaded || config == null) {
+            return;
+        }
+        while (active < config.parallelism && !pending.isEmpty()) {
+            Entry entry = pending.pollFirst();
+            entry.status = Status.UPLOADING;
+            active++;
+            Config uploadConfig = config;
+            executor.execute(() -> upload(entry, uploadConfig));
+        }
+    }
+
+    private void upload(Entry entry, Config uploadConfig) {
+        Exception failure = null;
+        try (RandomAccessFile file = new RandomAccessFile(entry.file, "r")) {
+            byte[] chunk = new byte[(int) Math.min(uploadConfig.chunkBytes, Math.max(1, entry.size))];
+            do {
+                long offset = entry.confirmedBytes;
+                int length = (int) Math.min(chunk.length, entry.size - offset);
+                file.seek(offset);
+                file.readFully(chunk, 0, length);
+                long confirmed = sendChunk(entry, uploadConfig, chunk, offset, length);
+                synchronized (this) {
+                    appendToJournal(record("P", entry.id, String.valueOf(confirmed)));
+                    entry.confirmedBytes = confirmed;
+                    entry.attempts = 0;
+                    if (shutdown) {
+                        // The journal has the progress; the next launch carries on from it
+                        return;
+                    }
+                }
+                listener.onUploadProgress(entry);
+            } while (entry.confirmedBytes < entry.size);
+        } catch (IOException | RuntimeException error) {
+            // Anything left uncaught would keep the page UPLOADING and its worker slot taken
+            failure = error;
+        }
+
+        if (failure == null) {
+            onUploaded(entry);
+        } else {
+            onUploadFailed(entry, uploadConfig, failure);
+        }
+    }
+
+    /** Sends one chunk and returns how many bytes of the page the server now has. */
+    private static long sendChunk(Entry entry, Config uploadConfig, byte[] chunk, long offset, int length) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(uploadConfig.url).openConnection();
+        try {
+            connection.setRequestMethod("PUT");
+            connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+            connection.setReadTimeout(READ_TIMEOUT_MS);
+            connection.setDoOutput(true);
+            connection.setFixedLengthStreamingMode(length);
+            for (Map.Entry<String, String> header : uploadConfig.headers.entrySet()) {
+                connection.setRequestProperty(header.getKey(), header.getValue());
+            }
+            connection.setRequestProperty("Content-Type", entry.mimeType);
+            connection.setRequestProperty("Content-Range", length > 0
+                ? String.format(Locale.US, "bytes %d-%d/%d", offset, offset + length - 1, entry.size)
+                : "bytes */" + entry.size);
+            connection.setRequestProperty("Upload-Id", entry.id);
+            connection.setRequestProperty("Upload-Batch-Id", entry.batchId);
+            connection.setRequestProperty("Upload-Page-Index", String.valueOf(entry.index));
+
+            try (OutputStream outputStream = connection.getOutputStream()) {
+                outputStream.write(chunk, 0, length);
+            }
+            int responseCode = connection.getResponseCode();
+            boolean accepted = (responseCode >= 200 && responseCode < 300) || responseCode == 308;
+            drain(accepted ? connection.getInputStream() : connection.getErrorStream());
+            if (!accepted) {
+                throw new UploadException(responseCode);
+            }
+            return confirmedBytes(connection.getHeaderField("Range"), offset + length, entry.size);
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /** Reads a {@code Range: bytes=0-N} response header, falling back to what was sent. */
+    static long confirmedBytes(String range, long sent, long size) {
+        if (range == null || !range.startsWith("bytes=0-")) {
+            return sent;
+        }
+        try {
+            return Math.min(size, Long.parseLong(range.substring("bytes=0-".length()).trim()) + 1);
+        } catch (NumberFormatException error) {
+            return sent;
+        }
+    }
+
+    /** Lets the connection be reused for the next chunk. */
+    private static void drain(InputStream inputStream) throws IOException {
+        if (inputStream == null) {
+            return;
+        }
+        try (InputStream stream = inputStream) {
+            byte[] buffer = new byte[1024];
+            while (stream.read(buffer) != -1) {
+                // Discard
+            }
+        }
+    }
+
+    private void onUploaded(Entry entry) {
+        int batchFailed;
+        boolean report;
+        synchronized (this) {
+            try {
+                appendToJournal(record("D", entry.id));
+            } catch (IOException error) {
+                // At worst the page is uploaded again after a restart
+                Log.w(TAG, "Unable to journal a finished upload", error);
+            }
+            entry.status = Status.DONE;
+            entries.remove(entry.id);
+            entry.file.delete();
+            active--;
+            batchFailed = finishInBatch(entry.batchId, false);
+            report = !shutdown;
+        }
+        if (!report) {
+            return;
+        }
+        listener.onUploadProgress(entry);
+        if (batchFailed >= 0) {
+            listener.onBatchFinished(entry.batchId, batchFailed);
+        }
+        synchronized (this) {
+            if (entries.isEmpty()) {
+                compactJournal();
+            }
+            pump();
+        }
+    }
+
+    private void onUploadFailed(Entry entry, Config uploadConfig, Exception error) {
+        // A RuntimeException (a malformed header, a denied permission) won't go away on retry
+        boolean retryable = error instanceof UploadException
+            ? ((UploadException) error).retryable
+            : error instanceof IOException;
+        boolean giveUp;
+        int batchFailed = -1;
+        synchronized (this) {
+            if (shutdown) {
+                // Likely the interruption itself; the page stays pending for the next launch
+                return;
+            }
+            entry.attempts++;
+            entry.error = error.getMessage() != null ? error.getMessage() : error.toString();
+            giveUp = !retryable || entry.attempts > uploadConfig.maxRetries;
+            active--;
+            if (giveUp) {
+                try {
+                    appendToJournal(record("F", entry.id));
+                } catch (IOException journalError) {
+                    Log.w(TAG, "Unable to journal a failed upload", journalError);
+                }
+                entry.status = Status.FAILED;
+                batchFailed = finishInBatch(entry.batchId, true);
+            } else {
+                entry.status = Status.PENDING;
+            }
+        }
+        listener.onUploadProgress(entry);
+
+        if (giveUp) {
+            if (batchFailed >= 0) {
+                listener.onBatchFinished(entry.batchId, batchFailed);
+            }
+            pump();
+            return;
+        }
+        long delay = Math.min(MAX_RETRY_DELAY_MS, baseRetryDelayMs << Math.min(entry.attempts - 1, 16));
+        synchronized (this) {
+            if (shutdown) {
+                return;
+            }
+            executor.schedule(() -> {
+                synchronized (this) {
+                    if (entry.status == Status.PENDING && entries.containsKey(entry.id)) {
+                        pending.addLast(entry);
+                    }
+                    pump();
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+        }
+        pump();
+    }
+
+    /**
+     * Counts one page of the batch as finished. Returns how many of its pages failed if this
+     * was its last unfinished page, so exactly one caller reports the batch, or -1 otherwise.
+     * Must hold the lock.
+     */
+    private int finishInBatch(String batchId, boolean failed) {
+        Batch batch = batch(batchId);
+        batch.remaining--;
+        if (failed) {
+            batch.failed++;
+        }
+        if (batch.remaining > 0 || batch.completed) {
+            return -1;
+        }
+        batch.completed = true;
+        if (batch.failed == 0) {
+            batches.remove(batchId);
+        }
+        return batch.failed;
+    }
+
+    private Batch batch(String batchId) {
+        Batch batch = batches.get(batchId);
+        if (batch == null) {
+            batch = new Batch();
+            batches.put(batchId, batch);
+        }
+        return batch;
+    }
+
+    static boolean isCredentialHeader(String name) {
+        for (String credentialHeader : CREDENTIAL_HEADERS) {
+            if (credentialHeader.equalsIgnoreCase(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // ✅ JOURNAL
+    private static String record(String type, String... fields) {
+        StringBuilder record = new StringBuilder(type);
+        for (String field : fields) {
+            record.append('\t').append(field.replace('\t', ' ').replace('\n', ' '));
+        }
+        return record.append('\n').toString();
+    }
+
+    private void appendToJournal(String records) throws IOException {
+        try (FileOutputStream outputStream = new FileOutputStream(new File(directory, JOURNAL_FILE), true)) {
+            outputStream.write(records.getBytes(UTF_8));
+            outputStream.getFD().sync();
+        }
+    }
+
+    /** Rebuilds the queue from the journal and the saved configuration. */
+    private void load() throws IOException {
+        File configFile = new File(directory, CONFIG_FILE);
+        Properties properties = new Properties();
+        // A configuration set while the journal was loading wins over the saved one
+        if (config == null && configFile.exists()) {
+            try (InputStream inputStream = new FileInputStream(configFile)) {
+                properties.load(inputStream);
+            }
+        }
+        if (properties.getProperty("credentialHeaders") != null) {
+            // Resuming without the credentials would only get every page rejected
+            Log.i(TAG, "Uploads wait for configureUploadQueue to supply " + properties.getProperty("credentialHeaders") + " again");
+        } else if (properties.getProperty("url") != null) {
+            Map<String, String> headers = new LinkedHashMap<>();
+            for (String name : properties.stringPropertyNames()) {
+                if (name.startsWith("header.")) {
+                    headers.put(name.substring("header.".length()), properties.getProperty(name));
+                }
+            }
+            config = new Config(
+                properties.getProperty("url"),
+                headers,
+                Integer.parseInt(properties.getProperty("parallelism", String.valueOf(DEFAULT_PARALLELISM))),
+                Integer.parseInt(properties.getProperty("chunkBytes", String.valueOf(DEFAULT_CHUNK_BYTES))),
+                Integer.parseInt(properties.getProperty("maxRetries", String.valueOf(DEFAULT_MAX_RETRIES)))
+            );
+            executor.setCorePoolSize(config.parallelism);
+        }
+
+        File journal = new File(directory, JOURNAL_FILE);
+        if (journal.exists()) {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(journal), UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    replay(line.split("\t"));
+                }
+            }
+        }
+        for (Entry entry : new ArrayList<>(entries.values())) {
+            if (!entry.file.exists()) {
+                entries.remove(entry.id);
+                continue;
+            }
+            Batch batch = batch(entry.batchId);
+            if (entry.status == Status.FAILED) {
+                batch.failed++;
+            } else {
+                batch.remaining++;
+                pending.addLast(entry);
+            }
+        }
+        for (Batch batch : batches.values()) {
+            // Batches that had already finished were reported by the process that finished them
+            batch.completed = batch.remaining == 0;
+        }
+        compactJournal();
+        deleteOrphanedFiles();
+    }
+
+    private void replay(String[] fields) {
+        try {
+            Entry entry = fields.length > 1 ? entries.get(fields[1]) : null;
+            switch (fields[0]) {
+                case "A":
+                    entries.put(fields[1], new Entry(fields[1], fields[2], Integer.parseInt(fields[3]), fields[4], new File(directory, fields[1]), Long.parseLong(fields[5])));
+                    break;
+                case "P":
+                    if (entry != null) {
+                        entry.confirmedBytes = Long.parseLong(fields[2]);
+                    }
+                    break;
+                case "F":
+                    if (entry != null) {
+                        entry.status = Status.FAILED;
+                    }
+                    break;
+                case "R":
+                    if (entry != null) {
+                        entry.status = Status.PENDING;
+                    }
+                    break;
+                case "D":
+                    if (entry != null) {
+                        entries.remove(entry.id);
+                        entry.file.delete();
+                    }
+                    break;
+                default:
+                    break;
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException error) {
+            // A record torn by a crash mid-write; everything it described is redone
+        }
+    }
+
+    /** Rewrites the journal as just the records the remaining entries need. */
+    private void compactJournal() {
+        StringBuilder records = new StringBuilder();
+        for (Entry entry : entries.values()) {
+            records.append(record("A", entry.id, entry.batchId, String.valueOf(entry.index), entry.mimeType, String.valueOf(entry.size)));
+            if (entry.confirmedBytes > 0) {
+                records.append(record("P", entry.id, String.valueOf(entry.confirmedBytes)));
+            }
+            if (entry.status == Status.FAILED) {
+                records.append(record("F", entry.id));
+            }
+        }
+        File temporaryFile = new File(directory, JOURNAL_FILE + ".tmp");
+        try {
+            ensureDirectory();
+            try (FileOutputStream outputStream = new FileOutputStream(temporaryFile)) {
+                outputStream.write(records.toString().getBytes(UTF_8));
+                outputStream.getFD().sync();
+            }
+            if (!temporaryFile.renameTo(new File(directory, JOURNAL_FILE))) {
+                temporaryFile.delete();
+            }
+        } catch (IOException error) {
+            // The uncompacted journal still replays to the same state
+            temporaryFile.delete();
+        }
+    }
+
+    /** Removes page copies whose batch never made it into the journal. */
+    private void deleteOrphanedFiles() {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            String name = file.getName();
+            if (!name.equals(JOURNAL_FILE) && !name.equals(CONFIG_FILE) && !entries.containsKey(name)) {
+                file.delete();
+            }
+        }
+    }
+
+    private void ensureDirectory() throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create " + directory);
+        }
+    }
+
+    private static long copy(ContentResolver contentResolver, Uri uri, File file) throws IOException {
+        long size = 0;
+        byte[] buffer = new byte[StreamingBase64.CHUNK_BYTES];
+        try (InputStream inputStream = PageDecoder.open(contentResolver, uri);
+             FileOutputStream outputStream = new FileOutputStream(file)) {
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, read);
+                size += read;
+            }
+            outputStream.getFD().sync();
+        }
+        return size;
+    }
+
+    private static final class WorkerThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(() -> {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                runnable.run();
+            }, "DocumentScanner-upload-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
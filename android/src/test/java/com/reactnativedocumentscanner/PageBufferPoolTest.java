@@ -0,0 +1,82 @@
+package com.reactnativedocumentscanner;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class PageBufferPoolTest {
+    @Test
+    public void reusesReleasedBuffersOfTheSameLength() {
+        PageBufferPool pool = new PageBufferPool(1000);
+        byte[] buffer = pool.acquireBuffer(100);
+        pool.releaseBuffer(buffer);
+        assertSame(buffer, pool.acquireBuffer(100));
+        assertNotSame(buffer, pool.acquireBuffer(100));
+        assertEquals(100, pool.acquireBuffer(100).length);
+
+        PageBufferPool.Stats stats = pool.getStats();
+        assertEquals(1, stats.bufferHits);
+        assertEquals(3, stats.bufferMisses);
+        assertEquals(0, stats.pooledBytes);
+    }
+
+    @Test
+    public void evictsTheLeastRecentlyReleasedBufferFirst() {
+        PageBufferPool pool = new PageBufferPool(100);
+        byte[] a = new byte[30];
+        byte[] b = new byte[40];
+        byte[] c = new byte[40];
+        pool.releaseBuffer(a);
+        pool.releaseBuffer(b);
+
+        // Taking a out and handing it back makes it the most recent
+        assertSame(a, pool.acquireBuffer(30));
+        pool.releaseBuffer(a);
+        pool.releaseBuffer(c);
+
+        PageBufferPool.Stats stats = pool.getStats();
+        assertEquals(1, stats.evictions);
+        assertEquals(70, stats.pooledBytes);
+        assertSame(c, pool.acquireBuffer(40));
+        assertSame(a, pool.acquireBuffer(30));
+        assertEquals(stats.bufferHits + 2, pool.getStats().bufferHits);
+        assertNotSame(b, pool.acquireBuffer(40));
+    }
+
+    @Test
+    public void doesNotPoolBuffersLargerThanTheCap() {
+        PageBufferPool pool = new PageBufferPool(100);
+        pool.releaseBuffer(new byte[50]);
+        pool.releaseBuffer(new byte[101]);
+        pool.releaseBuffer(null);
+        assertEquals(50, pool.getStats().pooledBytes);
+        assertEquals(0, pool.getStats().evictions);
+    }
+
+    @Test
+    public void trimsOldestFirstDownToTheTarget() {
+        PageBufferPool pool = new PageBufferPool(1000);
+        byte[] oldest = new byte[100];
+        byte[] middle = new byte[200];
+        byte[] newest = new byte[300];
+        pool.releaseBuffer(oldest);
+        pool.releaseBuffer(middle);
+        pool.releaseBuffer(newest);
+
+        pool.trimTo(350);
+        assertEquals(300, pool.getStats().pooledBytes);
+        assertSame(newest, pool.acquireBuffer(300));
+        pool.releaseBuffer(newest);
+
+        pool.setMaxBytes(200);
+        assertEquals(200, pool.getMaxBytes());
+        assertEquals(0, pool.getStats().pooledBytes);
+
+        pool.releaseBuffer(middle);
+        pool.clear();
+        assertEquals(0, pool.getStats().pooledBytes);
+        assertEquals(4, pool.getStats().evictions);
+    }
+}
@@ -0,0 +1,66 @@
+package com.reactnativedocumentscanner;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class PageHasherTest {
+    @Test
+    public void groupsPagesWithinTheDistanceOfAnEarlierPage() {
+        List<Long> hashes = Arrays.asList(
+            0L,
+            0xFFL,
+            0x1L,
+            0xFF00000000L,
+            0xFEL
+        );
+        assertEquals(
+            Arrays.asList(Arrays.asList(0, 2), Arrays.asList(1, 4)),
+            PageHasher.groupDuplicates(hashes, PageHasher.DEFAULT_MAX_DISTANCE)
+        );
+    }
+
+    @Test
+    public void joinsTheNearestGroupAndTheEarliestOnATie() {
+        List<Long> hashes = Arrays.asList(
+            0L,
+            0x3FL,
+            // Three bits from both: the earlier group wins
+            0x7L,
+            // Five bits from the first page, one from the second
+            0x1FL
+        );
+        assertEquals(
+            Arrays.asList(Arrays.asList(0, 2), Arrays.asList(1, 3)),
+            PageHasher.groupDuplicates(hashes, PageHasher.DEFAULT_MAX_DISTANCE)
+        );
+    }
+
+    @Test
+    public void comparesWithTheFirstPageOfAGroupOnly() {
+        // Each page is one bit from the last, but the third is two bits from the first
+        List<Long> hashes = Arrays.asList(0L, 0x1L, 0x3L);
+        assertEquals(
+            Collections.singletonList(Arrays.asList(0, 1)),
+            PageHasher.groupDuplicates(hashes, 1)
+        );
+    }
+
+    @Test
+    public void distinctPagesFormNoGroups() {
+        List<Long> hashes = Arrays.asList(0L, 0xFFFFL, 0xFFFF0000L, -1L);
+        assertEquals(Collections.emptyList(), PageHasher.groupDuplicates(hashes, PageHasher.DEFAULT_MAX_DISTANCE));
+        assertEquals(Collections.emptyList(), PageHasher.groupDuplicates(Collections.<Long>emptyList(), PageHasher.DEFAULT_MAX_DISTANCE));
+    }
+
+    @Test
+    public void distanceCountsDifferingBits() {
+        assertEquals(0, PageHasher.distance(0x1234L, 0x1234L));
+        assertEquals(64, PageHasher.distance(0L, -1L));
+        assertEquals(2, PageHasher.distance(0x8000000000000000L, 0x1L));
+    }
+}
@@ -0,0 +1,373 @@
+package com.reactnativedocumentscanner;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Benchmarks page processing on the JVM: {@link PageTranscoder} and {@link StreamingBase64}
+ * run as they do in the app, over a {@link SyntheticPages} corpus, with
+ * {@link RasterPageCodec} standing in for the Bitmap codec. Each scenario reports
+ * throughput, latency percentiles, the time spent per stage and the bytes allocated per
+ * page.
+ *
+ * Absolute times depend on the machine, so they are compared with a baseline relative to a
+ * fixed calibration workload timed on the same machine, while allocation is compared as
+ * is. Every scenario is measured in several independent runs, each with its own
+ * calibration, and the median run is what gets compared, so one noisy run can't fail the
+ * gate. A scenario that got slower or allocates more than the baseline allows fails the
+ * run, though times only count against a baseline recorded in the same environment (JVM,
+ * architecture and core count); elsewhere they are just reported.
+ *
+ * Only runs with {@code -Pbenchmark}; {@code -PupdateBenchmarkBaseline} rewrites the
+ * baseline from the current run and {@code -PbenchmarkReportOnly} never fails. Every run
+ * also writes the baseline it would record next to the report, so one taken on a CI
+ * executor can be committed from its artifacts. Until that happens the committed baseline
+ * only enforces times on the machine it came from, and CI runs report-only, so CI does
+ * not yet catch a slowdown. See android/build.gradle for the other knobs.
+ */
+public class PageTranscoderBenchmark {
+    private static final class Scenario {
+        final String name;
+        final PageProcessingOptions options;
+        final boolean passThrough;
+
+        Scenario(String name, PageProcessingOptions options, boolean passThrough) {
+            this.name = name;
+            this.options = options;
+            this.passThrough = passThrough;
+        }
+    }
+
+    private static final class Result {
+        final Scenario scenario;
+        final int pages;
+        final double totalMs;
+        final double[] latenciesMs;
+        final double decodeMs;
+        final double transformMs;
+        final double compressMs;
+        final double encodeMs;
+        final long allocatedBytesPerPage;
+        // The median of the runs' p50 latency over their calibration time
+        final double relativeCost;
+        // How far apart the fastest and slowest runs were, relative to the median
+        final double spread;
+
+        Result(Scenario scenario, double totalMs, double[] latenciesMs, double[] stageMs, long allocatedBytesPerPage, double[] runCosts) {
+            this.scenario = scenario;
+            this.pages = latenciesMs.length;
+            this.totalMs = totalMs;
+            this.latenciesMs = latenciesMs;
+            this.decodeMs = stageMs[0] / pages;
+            this.transformMs = stageMs[1] / pages;
+            this.compressMs = stageMs[2] / pages;
+            this.encodeMs = stageMs[3] / pages;
+            this.allocatedBytesPerPage = allocatedBytesPerPage;
+            double[] sorted = runCosts.clone();
+            Arrays.sort(sorted);
+            this.relativeCost = sorted.length % 2 == 1
+                ? sorted[sorted.length / 2]
+                : (sorted[sorted.length / 2 - 1] + sorted[sorted.length / 2]) / 2;
+            this.spread = (sorted[sorted.length - 1] - sorted[0]) / relativeCost;
+        }
+    }
+
+    private static final String JPEG = PageEncoder.FORMAT_JPEG;
+    private static final String BASE64 = PageProcessingOptions.RESPONSE_TYPE_BASE64;
+
+    private final int pageCount = Integer.getInteger("benchmark.pages", 6);
+    private final int pageWidth = Integer.getInteger("benchmark.pageWidth", 1654);
+    private final int pageHeight = Integer.getInteger("benchmark.pageHeight", 2339);
+    private final int warmupRounds = Integer.getInteger("benchmark.warmupRounds", 2);
+    private final int rounds = Integer.getInteger("benchmark.rounds", 5);
+    private final int runs = Math.max(1, Integer.getInteger("benchmark.runs", 5));
+    private final double timeTolerance = Double.parseDouble(System.getProperty("benchmark.timeTolerance", "1.5"));
+    private final double allocationTolerance = Double.parseDouble(System.getProperty("benchmark.allocationTolerance", "1.25"));
+
+    private final com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    // Keeps the JIT from discarding results nobody reads
+    private long sink;
+
+    @Test
+    public void pageProcessingIsNoSlowerThanBaseline() throws IOException {
+        List<Scenario> scenarios = Arrays.asList(
+            new Scenario("passThrough", new PageProcessingOptions(100, 0, 0, 0, BASE64), true),
+            new Scenario("color", new PageProcessingOptions(90, 0, 0, 0, BASE64, 0, JPEG, DocumentFilter.MODE_COLOR), false),
+            new Scenario("resized", new PageProcessingOptions(90, 0, 0, 1.0, BASE64, 0, JPEG, DocumentFilter.MODE_COLOR), false),
+            new Scenario("grayscale", new PageProcessingOptions(90, 0, 0, 0, BASE64, 0, JPEG, DocumentFilter.MODE_GRAYSCALE), false),
+            new Scenario("bilevel", new PageProcessingOptions(90, 1200, 0, 0, BASE64, 0, JPEG, DocumentFilter.MODE_BILEVEL), false)
+        );
+        List<SyntheticPages.Page> corpus = SyntheticPages.corpus(pageCount, pageWidth, pageHeight, 42);
+
+        List<Result> results = new ArrayList<>();
+        for (Scenario scenario : scenarios) {
+            results.add(run(scenario, corpus));
+        }
+
+        String report = report(results);
+        System.out.print(report);
+        String reportFile = System.getProperty("benchmark.reportFile");
+        if (reportFile != null) {
+            write(new File(reportFile), report);
+        }
+        String candidateBaselineFile = System.getProperty("benchmark.candidateBaselineFile");
+        if (candidateBaselineFile != null) {
+            saveBaseline(new File(candidateBaselineFile), results);
+        }
+
+        String baselineFile = System.getProperty("benchmark.baselineFile");
+        if (baselineFile == null) {
+            return;
+        }
+        if (Boolean.getBoolean("benchmark.updateBaseline")) {
+            saveBaseline(new File(baselineFile), results);
+            return;
+        }
+        List<String> regressions = compare(loadBaseline(new File(baselineFile)), results);
+        if (regressions.isEmpty()) {
+            return;
+        }
+        String message = "Page processing regressed against " + baselineFile + ":\n" + String.join("\n", regressions);
+        if (!Boolean.parseBoolean(System.getProperty("benchmark.enforce", "true"))) {
+            System.out.println(message);
+            return;
+        }
+        Assert.fail(message);
+    }
+
+    private Result run(Scenario scenario, List<SyntheticPages.Page> corpus) throws IOException {
+        RasterPageCodec codec = new RasterPageCodec();
+        PageTranscoder<RasterPageCodec.Raster> transcoder = new PageTranscoder<>(codec);
+        byte[] chunk = new byte[StreamingBase64.CHUNK_BYTES];
+        AtomicInteger qualityHint = new AtomicInteger();
+        PageTranscoder.Timings timings = new PageTranscoder.Timings();
+
+        for (int round = 0; round < warmupRounds; round++) {
+            for (SyntheticPages.Page page : corpus) {
+                process(scenario, transcoder, page, qualityHint, chunk, timings);
+            }
+        }
+
+        int pagesPerRun = rounds * corpus.size();
+        double[] latenciesMs = new double[runs * pagesPerRun];
+        double[] runCosts = new double[runs];
+        double[] stageMs = new double[4];
+        long allocatedBytes = 0;
+        double totalMs = 0;
+        for (int run = 0, n = 0; run < runs; run++) {
+            // Recalibrating per run keeps a slow patch on a shared machine from skewing one scenario
+            double calibrationMs = calibrate();
+            long runStart = System.nanoTime();
+            for (int round = 0; round < rounds; round++) {
+                for (SyntheticPages.Page page : corpus) {
+                    long allocatedBefore = threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+                    long start = System.nanoTime();
+                    process(scenario, transcoder, page, qualityHint, chunk, timings);
+                    latenciesMs[n++] = (System.nanoTime() - start) / 1_000_000d;
+                    allocatedBytes += threadBean.getThreadAllocatedBytes(Thread.currentThread().getId()) - allocatedBefore;
+                    stageMs[0] += timings.decodeMs;
+                    stageMs[1] += timings.transformMs;
+                    stageMs[2] += timings.compressMs;
+                    stageMs[3] += timings.encodeMs;
+                }
+            }
+            totalMs += (System.nanoTime() - runStart) / 1_000_000d;
+            runCosts[run] = percentile(Arrays.copyOfRange(latenciesMs, n - pagesPerRun, n), 50) / calibrationMs;
+        }
+        return new Result(scenario, totalMs, latenciesMs, stageMs, allocatedBytes / latenciesMs.length, runCosts);
+    }
+
+    private void process(
+        Scenario scenario,
+        PageTranscoder<RasterPageCodec.Raster> transcoder,
+        SyntheticPages.Page page,
+        AtomicInteger qualityHint,
+        byte[] chunk,
+        PageTranscoder.Timings timings
+    ) throws IOException {
+        ProcessedPage processedPage;
+        if (scenario.passThrough) {
+            processedPage = PageTranscoder.passThroughToBase64(0, page, page.bytes.length, chunk);
+            timings.decodeMs = 0;
+            timings.transformMs = 0;
+            timings.compressMs = 0;
+            timings.encodeMs = processedPage.encodeMs;
+        } else {
+            processedPage = transcoder.toBase64(0, page, scenario.options, qualityHint, chunk, timings);
+        }
+        sink += processedPage.payload.length();
+    }
+
+    /**
+     * Times a fixed mix of deflating, inflating and walking int arrays, the same kinds of
+     * work the scenarios do, so results can be compared across machines. Returns the
+     * median in milliseconds.
+     */
+    private double calibrate() {
+        Random random = new Random(7);
+        byte[] input = new byte[4 * 1024 * 1024];
+        for (int i = 0; i < input.length; i++) {
+            input[i] = (byte) (i % 97 < 80 ? 240 : random.nextInt(256));
+        }
+        int[] pixels = new int[1024 * 1024];
+        byte[] compressed = new byte[input.length + 1024];
+        byte[] inflated = new byte[input.length];
+        double[] samples = new double[9];
+        for (int run = -3; run < samples.length; run++) {
+            long start = System.nanoTime();
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            deflater.setInput(input);
+            deflater.finish();
+            int length = deflater.deflate(compressed);
+            deflater.end();
+            Inflater inflater = new Inflater();
+            inflater.setInput(compressed, 0, length);
+            try {
+                inflater.inflate(inflated);
+            } catch (DataFormatException error) {
+                throw new IllegalStateException(error);
+            } finally {
+                inflater.end();
+            }
+            for (int i = 0; i < pixels.length; i++) {
+                int value = inflated[i] & 0xFF;
+                pixels[i] = (pixels[i] >>> 1) + value * 77;
+            }
+            sink += pixels[random.nextInt(pixels.length)];
+            if (run >= 0) {
+                samples[run] = (System.nanoTime() - start) / 1_000_000d;
+            }
+        }
+        return percentile(samples, 50);
+    }
+
+    private String report(List<Result> results) {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format(Locale.US, "Page processing benchmark: %d pages of about %dx%d, %d runs of %d rounds on %s%n",
+            pageCount, pageWidth, pageHeight, runs, rounds, environment()));
+        report.append(String.format(Locale.US, "%-12s %9s %8s %8s %8s %8s %8s %8s %8s %10s %8s %7s%n",
+            "scenario", "pages/s", "p50 ms", "p90 ms", "p99 ms", "decode", "filter", "compress", "base64", "alloc KB", "relative", "spread"));
+        for (Result result : results) {
+            report.append(String.format(Locale.US, "%-12s %9.2f %8.2f %8.2f %8.2f %8.2f %8.2f %8.2f %8.2f %10d %8.3f %6.1f%%%n",
+                result.scenario.name,
+                result.pages * 1000d / result.totalMs,
+                percentile(result.latenciesMs, 50),
+                percentile(result.latenciesMs, 90),
+                percentile(result.latenciesMs, 99),
+                result.decodeMs,
+                result.transformMs,
+                result.compressMs,
+                result.encodeMs,
+                result.allocatedBytesPerPage / 1024,
+                result.relativeCost,
+                result.spread * 100));
+        }
+        return report.toString();
+    }
+
+    private List<String> compare(Properties baseline, List<Result> results) {
+        // Strings take twice the bytes before Java 9, so allocation only compares within one layout
+        String baselineJava = baseline.getProperty("javaVersion", "");
+        boolean compareAllocation = hasCompactStrings(baselineJava) == hasCompactStrings(System.getProperty("java.specification.version"));
+        if (!compareAllocation) {
+            System.out.println("Not comparing allocation with a baseline taken on Java " + baselineJava);
+        }
+        // Times from another JVM or machine say little about this change, so they are only reported
+        String baselineEnvironment = baseline.getProperty("environment");
+        boolean compareTime = environment().equals(baselineEnvironment);
+        if (!compareTime) {
+            System.out.println("Not enforcing times against a baseline recorded on " + baselineEnvironment + ", record one on " + environment() + " to do so");
+        }
+
+        List<String> regressions = new ArrayList<>();
+        for (Result result : results) {
+            String name = result.scenario.name;
+            String relativeCost = baseline.getProperty(name + ".relativeCost");
+            if (relativeCost != null && result.relativeCost > Double.parseDouble(relativeCost) * timeTolerance) {
+                String regression = String.format(Locale.US, "%s: relative cost %.3f, baseline %s (tolerance %.2fx)", name, result.relativeCost, relativeCost, timeTolerance);
+                if (compareTime) {
+                    regressions.add(regression);
+                } else {
+                    System.out.println(regression);
+                }
+            }
+            String allocated = baseline.getProperty(name + ".allocatedBytesPerPage");
+            if (compareAllocation && allocated != null && result.allocatedBytesPerPage > Long.parseLong(allocated) * allocationTolerance) {
+                regressions.add(String.format(Locale.US, "%s: %d bytes allocated per page, baseline %s (tolerance %.2fx)", name, result.allocatedBytesPerPage, allocated, allocationTolerance));
+            }
+        }
+        return regressions;
+    }
+
+    /** What a baseline's times are only comparable within. */
+    private static String environment() {
+        return System.getProperty("java.specification.version") + " " + System.getProperty("java.vm.name") + " "
+            + System.getProperty("os.arch") + " " + Runtime.getRuntime().availableProcessors() + " cores";
+    }
+
+    private static boolean hasCompactStrings(String javaSpecificationVersion) {
+        return !javaSpecificationVersion.isEmpty() && !javaSpecificationVersion.startsWith("1.");
+    }
+
+    private Properties loadBaseline(File file) throws IOException {
+        Properties baseline = new Properties();
+        if (file.isFile()) {
+            try (InputStream inputStream = new FileInputStream(file)) {
+                baseline.load(inputStream);
+            }
+        }
+        return baseline;
+    }
+
+    /** Writes the baseline in scenario order, so updates diff cleanly. */
+    private void saveBaseline(File file, List<Result> results) throws IOException {
+        StringBuilder baseline = new StringBuilder();
+        baseline.append("# Written by PageTranscoderBenchmark with -PupdateBenchmarkBaseline\n");
+        baseline.append("# relativeCost is the median over runs of the p50 page latency divided by the calibration workload's time\n");
+        baseline.append("javaVersion=").append(System.getProperty("java.specification.version")).append('\n');
+        baseline.append("environment=").append(environment()).append('\n');
+        for (Result result : results) {
+            baseline.append(result.scenario.name).append(".relativeCost=").append(String.format(Locale.US, "%.3f", result.relativeCost)).append('\n');
+            baseline.append(result.scenario.name).append(".allocatedBytesPerPage=").append(result.allocatedBytesPerPage).append('\n');
+        }
+        write(file, baseline.toString());
+    }
+
+    private static void write(File file, String text) throws IOException {
+        File directory = file.getParentFile();
+        if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create " + directory);
+        }
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            writer.write(text);
+        }
+    }
+
+    /** Nearest-rank percentile. */
+    private static double percentile(double[] values, int percentile) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(percentile / 100d * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))];
+    }
+}
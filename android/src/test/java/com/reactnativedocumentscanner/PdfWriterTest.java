@@ -0,0 +1,194 @@
+package com.reactnativedocumentscanner;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class PdfWriterTest {
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void readsTheFrameHeader() throws IOException {
+        PdfWriter.JpegInfo info = PdfWriter.readJpegInfo(new ByteArrayInputStream(jpeg(0xC0, 1200, 1600, 3)));
+        assertEquals(1600, info.width);
+        assertEquals(1200, info.height);
+        assertEquals(3, info.components);
+    }
+
+    @Test
+    public void skipsSegmentsLargerThanTheReadBuffer() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bytes.write(0xFF);
+        bytes.write(0xD8);
+        // An EXIF block with a thumbnail easily outgrows BufferedInputStream's 8 KB
+        segment(bytes, 0xE1, new byte[40_000]);
+        segment(bytes, 0xE2, new byte[3]);
+        // Fill bytes may precede any marker
+        bytes.write(0xFF);
+        bytes.write(frame(0xC2, 480, 640, 1));
+        PdfWriter.JpegInfo info = PdfWriter.readJpegInfo(new ByteArrayInputStream(bytes.toByteArray()));
+        assertEquals(640, info.width);
+        assertEquals(480, info.height);
+        assertEquals(1, info.components);
+    }
+
+    @Test
+    public void skipsStandaloneMarkersAndHuffmanTables() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bytes.write(0xFF);
+        bytes.write(0xD8);
+        bytes.write(0xFF);
+        bytes.write(0xD0);
+        segment(bytes, 0xC4, new byte[20]);
+        bytes.write(frame(0xC1, 10, 20, 4));
+        PdfWriter.JpegInfo info = PdfWriter.readJpegInfo(new ByteArrayInputStream(bytes.toByteArray()));
+        assertEquals(20, info.width);
+        assertEquals(4, info.components);
+    }
+
+    @Test
+    public void rejectsFramesThatLeaveTheHeightToADnlMarker() {
+        assertThrows(IOException.class, () -> PdfWriter.readJpegInfo(new ByteArrayInputStream(jpeg(0xC0, 0, 1600, 3))));
+    }
+
+    @Test
+    public void rejectsWhatIsNotAJpeg() {
+        byte[] png = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' };
+        assertThrows(IOException.class, () -> PdfWriter.readJpegInfo(new ByteArrayInputStream(png)));
+    }
+
+    @Test
+    public void rejectsScansWithoutAFrameHeader() {
+        byte[] bytes = { (byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xDA, 0, 2 };
+        assertThrows(EOFException.class, () -> PdfWriter.readJpegInfo(new ByteArrayInputStream(bytes)));
+    }
+
+    @Test
+    public void rejectsTruncatedSegments() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bytes.write(0xFF);
+        bytes.write(0xD8);
+        segment(bytes, 0xE1, new byte[20_000]);
+        byte[] truncated = Arrays.copyOf(bytes.toByteArray(), 10_000);
+        assertThrows(EOFException.class, () -> PdfWriter.readJpegInfo(new ByteArrayInputStream(truncated)));
+    }
+
+    @Test
+    public void crossReferencesPointAtTheirObjects() throws IOException {
+        File file = temporaryFolder.newFile("scan.pdf");
+        byte[][] pages = { jpeg(0xC0, 300, 200, 3), jpeg(0xC0, 100, 100, 1), jpeg(0xC0, 400, 300, 3) };
+        long size;
+        try (PdfWriter writer = new PdfWriter(file, pages.length)) {
+            // Workers finish out of order
+            for (int index : new int[] { 2, 0, 1 }) {
+                byte[] page = pages[index];
+                writer.writePage(index, PdfWriter.readJpegInfo(new ByteArrayInputStream(page)), outputStream -> outputStream.write(page));
+            }
+            size = writer.finish();
+        }
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        assertEquals(bytes.length, size);
+        String pdf = new String(bytes, StandardCharsets.ISO_8859_1);
+
+        Matcher startxref = Pattern.compile("startxref\n(\\d+)\n%%EOF\n$").matcher(pdf);
+        assertTrue(startxref.find());
+        int xref = Integer.parseInt(startxref.group(1));
+        assertTrue(pdf.startsWith("xref\n0 ", xref));
+
+        String[] lines = pdf.substring(xref).split("\n");
+        int objectCount = Integer.parseInt(lines[1].split(" ")[1]);
+        assertEquals(2 + 4 * pages.length + 1, objectCount);
+        assertEquals("0000000000 65535 f ", lines[2]);
+        for (int object = 1; object < objectCount; object++) {
+            String entry = lines[2 + object];
+            // Entries are exactly 20 bytes, newline included
+            assertEquals(19, entry.length());
+            int offset = Integer.parseInt(entry.substring(0, 10));
+            assertTrue("object " + object + " at " + offset, pdf.startsWith(object + " 0 obj\n", offset));
+        }
+
+        // The page tree lists pages in scan order, whatever order they were written in
+        assertTrue(pdf.contains("/Kids [ 3 0 R 7 0 R 11 0 R ] /Count 3"));
+    }
+
+    @Test
+    public void embedsTheJpegBytesUnchanged() throws IOException {
+        File file = temporaryFolder.newFile("scan.pdf");
+        byte[] page = jpeg(0xC0, 300, 200, 3);
+        try (PdfWriter writer = new PdfWriter(file, 1)) {
+            writer.writePage(0, PdfWriter.readJpegInfo(new ByteArrayInputStream(page)), outputStream -> outputStream.write(page));
+            writer.finish();
+        }
+        String pdf = new String(Files.readAllBytes(file.toPath()), StandardCharsets.ISO_8859_1);
+        assertTrue(pdf.contains("stream\n" + new String(page, StandardCharsets.ISO_8859_1) + "\nendstream"));
+        assertTrue(pdf.contains(" 0 obj\n" + page.length + "\nendobj"));
+    }
+
+    @Test
+    public void refusesToFinishWithPagesMissing() throws IOException {
+        File file = temporaryFolder.newFile("scan.pdf");
+        PdfWriter writer = new PdfWriter(file, 2);
+        byte[] page = jpeg(0xC0, 10, 10, 3);
+        writer.writePage(0, PdfWriter.readJpegInfo(new ByteArrayInputStream(page)), outputStream -> outputStream.write(page));
+        assertThrows(IllegalStateException.class, writer::finish);
+        assertThrows(IllegalArgumentException.class, () -> writer.writePage(0, new PdfWriter.JpegInfo(10, 10, 3), outputStream -> {}));
+
+        // Abandoning it leaves no half-written file behind
+        writer.close();
+        assertFalse(file.exists());
+    }
+
+    /** A minimal JPEG: SOI, a JFIF segment, the frame header and the start of a scan. */
+    private static byte[] jpeg(int frameMarker, int height, int width, int components) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bytes.write(0xFF);
+        bytes.write(0xD8);
+        segment(bytes, 0xE0, "JFIF\0\1\1\0\0\1\0\1\0\0".getBytes(StandardCharsets.ISO_8859_1));
+        byte[] frame = frame(frameMarker, height, width, components);
+        bytes.write(frame, 0, frame.length);
+        segment(bytes, 0xDA, new byte[10]);
+        bytes.write(0xFF);
+        bytes.write(0xD9);
+        return bytes.toByteArray();
+    }
+
+    /** A frame header segment, marker included. */
+    private static byte[] frame(int marker, int height, int width, int components) {
+        ByteArrayOutputStream frame = new ByteArrayOutputStream();
+        byte[] payload = new byte[6 + 3 * components];
+        payload[0] = 8;
+        payload[1] = (byte) (height >> 8);
+        payload[2] = (byte) height;
+        payload[3] = (byte) (width >> 8);
+        payload[4] = (byte) width;
+        payload[5] = (byte) components;
+        segment(frame, marker, payload);
+        return frame.toByteArray();
+    }
+
+    private static void segment(ByteArrayOutputStream bytes, int marker, byte[] payload) {
+        int length = payload.length + 2;
+        bytes.write(0xFF);
+        bytes.write(marker);
+        bytes.write(length >> 8);
+        bytes.write(length);
+        bytes.write(payload, 0, payload.length);
+    }
+}
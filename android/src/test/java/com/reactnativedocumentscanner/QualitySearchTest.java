@@ -0,0 +1,50 @@
+package com.reactnativedocumentscanner;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class QualitySearchTest {
+    @Test
+    public void spreadsThreeCandidatesEvenlyHighestFirst() {
+        assertEquals(Arrays.asList(77, 53, 28), QualitySearch.spread(4, 101));
+        assertEquals(Arrays.asList(85, 80, 75), QualitySearch.spread(70, 90));
+    }
+
+    @Test
+    public void spreadsOverEveryQualityWhenFewAreLeft() {
+        assertEquals(Collections.singletonList(51), QualitySearch.spread(50, 52));
+        assertEquals(Arrays.asList(52, 51), QualitySearch.spread(50, 53));
+        assertEquals(Arrays.asList(53, 52, 51), QualitySearch.spread(50, 54));
+    }
+
+    @Test
+    public void spreadsNothingWhenTheBoundsMeet() {
+        assertEquals(Collections.emptyList(), QualitySearch.spread(50, 51));
+        assertEquals(Collections.emptyList(), QualitySearch.spread(50, 50));
+        assertEquals(Collections.emptyList(), QualitySearch.spread(60, 50));
+    }
+
+    @Test
+    public void candidatesAreDistinctAndStrictlyBetweenTheBounds() {
+        for (int low = QualitySearch.MIN_QUALITY - 1; low <= 100; low++) {
+            for (int high = low + 1; high <= 101; high++) {
+                List<Integer> candidates = QualitySearch.spread(low, high);
+                String bounds = "(" + low + ", " + high + ")";
+                assertEquals(bounds, Math.min(3, high - low - 1), candidates.size());
+                assertEquals(bounds, candidates.size(), new HashSet<>(candidates).size());
+                for (int i = 0; i < candidates.size(); i++) {
+                    int quality = candidates.get(i);
+                    assertTrue(bounds, quality > low && quality < high);
+                    assertTrue(bounds, i == 0 || quality < candidates.get(i - 1));
+                }
+            }
+        }
+    }
+}
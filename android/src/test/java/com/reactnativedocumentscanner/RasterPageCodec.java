@@ -0,0 +1,188 @@
+package com.reactnativedocumentscanner;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * A pure-Java stand-in for {@link BitmapPageCodec}, so the pipeline can be measured
+ * without a device. Pages are held as ARGB int arrays and stored as an 8 byte header
+ * (width, height) followed by deflated RGB rows, which costs about what a JPEG decode and
+ * encode do and produces a comparable amount of output for Base64 to chew through.
+ *
+ * Decoding samples and scales the way {@link PageDecoder} does, and the document mode runs
+ * the real {@link DocumentFilter} kernels. Released rasters are reused like the buffer pool
+ * reuses bitmaps. Not thread safe: use one codec per thread.
+ */
+final class RasterPageCodec implements PageCodec<RasterPageCodec.Raster> {
+    static final class Raster {
+        int width;
+        int height;
+        int[] pixels;
+    }
+
+    private static final int HEADER_BYTES = 8;
+
+    private final Inflater inflater = new Inflater();
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private final byte[] inputBuffer = new byte[StreamingBase64.CHUNK_BYTES];
+    private final byte[] outputBuffer = new byte[StreamingBase64.CHUNK_BYTES];
+    private byte[] rowBytes = new byte[0];
+    // A decode needs at most two rasters at once, the sampled one and the scaled one
+    private final ArrayDeque<Raster> free = new ArrayDeque<>(2);
+
+    @Override
+    public Raster decode(PageSource source, PageProcessingOptions options) throws IOException {
+        try (InputStream inputStream = source.open()) {
+            DataInputStream header = new DataInputStream(inputStream);
+            int width = header.readInt();
+            int height = header.readInt();
+            int[] target = PageDecoder.computeTargetSize(width, height, options);
+            int inSampleSize = PageDecoder.calculateInSampleSize(width, height, target[0], target[1]);
+
+            Raster sampled = acquire((width + inSampleSize - 1) / inSampleSize, (height + inSampleSize - 1) / inSampleSize);
+            inflateSampled(inputStream, width, height, inSampleSize, sampled);
+            if (sampled.width == target[0] && sampled.height == target[1]) {
+                return sampled;
+            }
+            Raster scaled = scale(sampled, target[0], target[1]);
+            release(sampled);
+            return scaled;
+        }
+    }
+
+    @Override
+    public Raster transform(Raster page, String documentMode) {
+        DocumentFilter.apply(page.pixels, page.width, page.height, documentMode);
+        return page;
+    }
+
+    @Override
+    public int encode(Raster page, PageProcessingOptions options, AtomicInteger qualityHint, OutputStream outputStream) throws IOException {
+        if (rowBytes.length < page.width * 3) {
+            rowBytes = new byte[page.width * 3];
+        }
+        write(page.pixels, page.width, page.height, deflater, rowBytes, outputBuffer, outputStream);
+        return PageEncoder.isLossy(options.outputFormat) ? options.quality : 100;
+    }
+
+    @Override
+    public void release(Raster page) {
+        if (free.size() < 2) {
+            free.push(page);
+        }
+    }
+
+    /**
+     * Writes a page in the format {@link #decode} reads. {@code row} holds at least one row
+     * of RGB bytes and {@code output} is scratch space of any size.
+     */
+    static void write(int[] pixels, int width, int height, Deflater deflater, byte[] row, byte[] output, OutputStream outputStream) throws IOException {
+        byte[] header = {
+            (byte) (width >>> 24), (byte) (width >>> 16), (byte) (width >>> 8), (byte) width,
+            (byte) (height >>> 24), (byte) (height >>> 16), (byte) (height >>> 8), (byte) height
+        };
+        outputStream.write(header, 0, HEADER_BYTES);
+
+        deflater.reset();
+        for (int y = 0; y < height; y++) {
+            for (int x = 0, i = y * width; x < width; x++, i++) {
+                int pixel = pixels[i];
+                row[x * 3] = (byte) (pixel >> 16);
+                row[x * 3 + 1] = (byte) (pixel >> 8);
+                row[x * 3 + 2] = (byte) pixel;
+            }
+            deflater.setInput(row, 0, width * 3);
+            while (!deflater.needsInput()) {
+                int length = deflater.deflate(output);
+                outputStream.write(output, 0, length);
+            }
+        }
+        deflater.finish();
+        while (!deflater.finished()) {
+            int length = deflater.deflate(output);
+            outputStream.write(output, 0, length);
+        }
+    }
+
+    /** Inflates the page, keeping every {@code inSampleSize}-th pixel of every {@code inSampleSize}-th row. */
+    private void inflateSampled(InputStream inputStream, int width, int height, int inSampleSize, Raster sampled) throws IOException {
+        if (rowBytes.length < width * 3) {
+            rowBytes = new byte[width * 3];
+        }
+        inflater.reset();
+        int out = 0;
+        for (int y = 0; y < height; y++) {
+            inflateFully(inputStream, rowBytes, width * 3);
+            if (y % inSampleSize != 0) {
+                continue;
+            }
+            for (int x = 0; x < width; x += inSampleSize) {
+                int i = x * 3;
+                sampled.pixels[out++] = 0xFF000000 | (rowBytes[i] & 0xFF) << 16 | (rowBytes[i + 1] & 0xFF) << 8 | (rowBytes[i + 2] & 0xFF);
+            }
+        }
+    }
+
+    private void inflateFully(InputStream inputStream, byte[] buffer, int length) throws IOException {
+        int filled = 0;
+        try {
+            while (filled < length) {
+                int inflated = inflater.inflate(buffer, filled, length - filled);
+                filled += inflated;
+                if (inflated == 0 && inflater.finished()) {
+                    throw new EOFException("Truncated page");
+                }
+                if (inflated == 0 && inflater.needsInput()) {
+                    int read = inputStream.read(inputBuffer);
+                    if (read < 0) {
+                        throw new EOFException("Truncated page");
+                    }
+                    inflater.setInput(inputBuffer, 0, read);
+                }
+            }
+        } catch (DataFormatException error) {
+            throw new IOException("Corrupt page", error);
+        }
+    }
+
+    /** Nearest-neighbour scaling, standing in for the filtered Canvas draw. */
+    private Raster scale(Raster source, int width, int height) {
+        Raster scaled = acquire(width, height);
+        for (int y = 0; y < height; y++) {
+            int sourceRow = (int) ((long) y * source.height / height) * source.width;
+            for (int x = 0; x < width; x++) {
+                scaled.pixels[y * width + x] = source.pixels[sourceRow + (int) ((long) x * source.width / width)];
+            }
+        }
+        return scaled;
+    }
+
+    /** Reuses a released raster, preferring one that is already big enough. */
+    private Raster acquire(int width, int height) {
+        Raster raster = null;
+        for (Iterator<Raster> iterator = free.iterator(); iterator.hasNext();) {
+            Raster candidate = iterator.next();
+            if (candidate.pixels.length >= width * height) {
+                iterator.remove();
+                raster = candidate;
+                break;
+            }
+        }
+        if (raster == null) {
+            raster = free.isEmpty() ? new Raster() : free.pop();
+            raster.pixels = new int[width * height];
+        }
+        raster.width = width;
+        raster.height = height;
+        return raster;
+    }
+}
@@ -0,0 +1,151 @@
+package com.reactnativedocumentscanner;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class ResultFileCacheTest {
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private ResultFileCache cache;
+    private File directory;
+
+    @Before
+    public void setUp() {
+        cache = new ResultFileCache(temporaryFolder.getRoot());
+        directory = cache.getDirectory();
+        assertTrue(directory.mkdirs());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedFilesUntilUnderBudget() throws IOException {
+        File oldest = file("a.jpg", 100, 1_000_000);
+        File older = file("b.jpg", 100, 2_000_000);
+        File newer = file("c.jpg", 100, 3_000_000);
+        File newest = file("d.jpg", 100, 4_000_000);
+
+        cache.evict(250, Collections.<File>emptySet());
+        assertFalse(oldest.exists());
+        assertFalse(older.exists());
+        assertTrue(newer.exists());
+        assertTrue(newest.exists());
+    }
+
+    @Test
+    public void leavesTheDirectoryAloneWithinBudget() throws IOException {
+        File oldest = file("a.jpg", 100, 1_000_000);
+        File newest = file("b.jpg", 100, 2_000_000);
+
+        cache.evict(200, Collections.<File>emptySet());
+        assertTrue(oldest.exists());
+        assertTrue(newest.exists());
+    }
+
+    @Test
+    public void neverEvictsKeptOrTemporaryFiles() throws IOException {
+        File kept = file("a.jpg", 100, 1_000_000);
+        File temporary = file(".page-1-1.tmp", 100, 1_500_000);
+        File older = file("b.jpg", 100, 2_000_000);
+        File newest = file("c.jpg", 100, 3_000_000);
+        Set<File> keep = new HashSet<>(Collections.singletonList(kept));
+
+        cache.evict(150, keep);
+        assertTrue(kept.exists());
+        assertTrue(temporary.exists());
+        assertFalse(older.exists());
+        assertFalse(newest.exists());
+
+        // Still over budget, but nothing else may go
+        cache.evict(0, keep);
+        assertTrue(kept.exists());
+        assertTrue(temporary.exists());
+    }
+
+    @Test
+    public void neverEvictsReferencedFiles() throws IOException {
+        File referenced = file("a.jpg", 100, 1_000_000);
+        File older = file("b.jpg", 100, 2_000_000);
+        File newest = file("c.jpg", 100, 3_000_000);
+
+        cache.evict(100, files -> files.add(referenced));
+        assertTrue(referenced.exists());
+        assertFalse(older.exists());
+        assertFalse(newest.exists());
+    }
+
+    @Test
+    public void addsCommittedFilesToTheirOwner() throws IOException {
+        Set<File> owner = new HashSet<>();
+        ResultFileCache.Entry entry = cache.write(outputStream -> outputStream.write(bytes("page one")), "jpg", owner);
+        ResultFileCache.Entry again = cache.write(outputStream -> outputStream.write(bytes("page one")), "jpg", owner);
+        assertEquals(Collections.singleton(entry.file), owner);
+        assertEquals(entry.file, again.file);
+
+        // Only what the owner holds survives an eviction to nothing
+        cache.write(outputStream -> outputStream.write(bytes("page two")), "jpg");
+        cache.evict(0, files -> files.addAll(owner));
+        assertEquals(1, directory.list().length);
+        assertTrue(entry.file.exists());
+    }
+
+    @Test
+    public void namesFilesByTheirContent() throws Exception {
+        ResultFileCache.Entry entry = cache.write(outputStream -> outputStream.write(bytes("page one")), "jpg");
+        assertEquals(Digests.toHex(MessageDigest.getInstance("SHA-256").digest(bytes("page one"))), entry.hash);
+        assertEquals(new File(directory, entry.hash + ".jpg"), entry.file);
+        assertEquals(8, entry.size);
+    }
+
+    @Test
+    public void reusesTheFileOfAnIdenticalPage() throws IOException {
+        ResultFileCache.Entry first = cache.write(outputStream -> outputStream.write(bytes("page one")), "jpg");
+        assertTrue(first.file.setLastModified(1_000_000));
+
+        ResultFileCache.Entry again = cache.write(outputStream -> outputStream.write(bytes("page one")), "jpg");
+        ResultFileCache.Entry other = cache.write(outputStream -> outputStream.write(bytes("page two")), "jpg");
+        assertEquals(first.file, again.file);
+        assertFalse(first.file.equals(other.file));
+        // Re-scanning the page counts as using it
+        assertTrue(again.file.lastModified() > 1_000_000);
+
+        assertEquals(2, directory.list().length);
+    }
+
+    @Test
+    public void removesTheTemporaryFileWhenWritingFails() {
+        assertThrows(IOException.class, () -> cache.write(outputStream -> {
+            outputStream.write(bytes("half a page"));
+            throw new IOException("Encoder failed");
+        }, "jpg"));
+        assertEquals(0, directory.list().length);
+    }
+
+    private File file(String name, int size, long lastModified) throws IOException {
+        File file = new File(directory, name);
+        try (FileOutputStream outputStream = new FileOutputStream(file)) {
+            outputStream.write(new byte[size]);
+        }
+        assertTrue(file.setLastModified(lastModified));
+        return file;
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
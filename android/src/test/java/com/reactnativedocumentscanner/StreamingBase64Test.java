@@ -0,0 +1,109 @@
+package com.reactnativedocumentscanner;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+public class StreamingBase64Test {
+    private final byte[] chunk = new byte[StreamingBase64.CHUNK_BYTES];
+
+    @Test
+    public void matchesBase64DefaultForEveryLineLength() throws IOException {
+        for (int length = 0; length <= 300; length++) {
+            byte[] bytes = randomBytes(length, length);
+            String encoded = StreamingBase64.encode(new ByteArrayInputStream(bytes), length, chunk);
+            assertEquals("length " + length, base64Default(bytes), encoded);
+            assertEquals("length " + length, encoded.length(), StreamingBase64.encodedLength(length));
+        }
+    }
+
+    @Test
+    public void matchesBase64DefaultAcrossChunks() throws IOException {
+        int[] lengths = {
+            StreamingBase64.CHUNK_BYTES - 1,
+            StreamingBase64.CHUNK_BYTES,
+            StreamingBase64.CHUNK_BYTES + 1,
+            3 * StreamingBase64.CHUNK_BYTES + 100,
+        };
+        for (int length : lengths) {
+            byte[] bytes = randomBytes(length, length);
+            // Content providers hand out short reads; the chunks must still be whole lines
+            String encoded = StreamingBase64.encode(new TricklingInputStream(bytes, 1000), -1, chunk);
+            assertEquals("length " + length, base64Default(bytes), encoded);
+        }
+    }
+
+    @Test
+    public void outputStreamMatchesWhateverTheWriteSizes() {
+        byte[] bytes = randomBytes(2 * StreamingBase64.CHUNK_BYTES + 17, 7);
+        StreamingBase64.EncodingOutputStream outputStream = new StreamingBase64.EncodingOutputStream(bytes.length, chunk);
+        Random random = new Random(7);
+        int offset = 0;
+        while (offset < bytes.length) {
+            if (random.nextBoolean()) {
+                outputStream.write(bytes[offset++]);
+            } else {
+                int length = Math.min(bytes.length - offset, random.nextInt(3000));
+                outputStream.write(bytes, offset, length);
+                offset += length;
+            }
+        }
+        assertEquals(bytes.length, outputStream.getByteCount());
+        assertEquals(base64Default(bytes), outputStream.finish());
+    }
+
+    @Test
+    public void rejectsScratchSpaceOfTheWrongSize() {
+        assertThrows(IllegalArgumentException.class, () -> new StreamingBase64.EncodingOutputStream(-1, new byte[100]));
+    }
+
+    /** What {@code android.util.Base64.encodeToString(bytes, Base64.DEFAULT)} returns. */
+    private static String base64Default(byte[] bytes) {
+        if (bytes.length == 0) {
+            return "";
+        }
+        byte[] newline = { '\n' };
+        return new String(Base64.getMimeEncoder(76, newline).encode(bytes), StandardCharsets.US_ASCII) + "\n";
+    }
+
+    private static byte[] randomBytes(int length, long seed) {
+        byte[] bytes = new byte[length];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static final class TricklingInputStream extends InputStream {
+        private final byte[] bytes;
+        private final int maxRead;
+        private int position;
+
+        TricklingInputStream(byte[] bytes, int maxRead) {
+            this.bytes = bytes;
+            this.maxRead = maxRead;
+        }
+
+        @Override
+        public int read() {
+            return position < bytes.length ? bytes[position++] & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+            if (position == bytes.length) {
+                return -1;
+            }
+            int read = Math.min(Math.min(length, maxRead), bytes.length - position);
+            System.arraycopy(bytes, position, buffer, offset, read);
+            position += read;
+            return read;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.reactnativedocumentscanner;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.Deflater;
+
+/**
+ * A reproducible corpus of page images that look enough like scanned documents to give
+ * the filters and encoders realistic work: off-white paper under uneven lighting, lines
+ * of dark "words" with glyph-like stripes, the odd colour figure and some sensor noise.
+ * Pages are stored in the {@link RasterPageCodec} format.
+ */
+final class SyntheticPages {
+    static final class Page implements PageSource {
+        final int width;
+        final int height;
+        final byte[] bytes;
+
+        Page(int width, int height, byte[] bytes) {
+            this.width = width;
+            this.height = height;
+            this.bytes = bytes;
+        }
+
+        @Override
+        public InputStream open() {
+            return new ByteArrayInputStream(bytes);
+        }
+
+        @Override
+        public String toString() {
+            return width + "x" + height;
+        }
+    }
+
+    private SyntheticPages() {}
+
+    /** {@code count} pages of roughly {@code width} x {@code height}, the same for the same seed. */
+    static List<Page> corpus(int count, int width, int height, long seed) throws IOException {
+        Random random = new Random(seed);
+        List<Page> pages = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            // ML Kit crops every page a little differently
+            int pageWidth = width - random.nextInt(Math.max(1, width / 20));
+            int pageHeight = height - random.nextInt(Math.max(1, height / 20));
+            pages.add(encode(render(pageWidth, pageHeight, random), pageWidth, pageHeight));
+        }
+        return pages;
+    }
+
+    static int[] render(int width, int height, Random random) {
+        int[] pixels = new int[width * height];
+
+        // Paper, lit from a random point so one side is noticeably darker
+        double lightX = random.nextDouble() * width;
+        double lightY = random.nextDouble() * height;
+        double reach = Math.hypot(width, height);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                double light = 1 - 0.3 * Math.hypot(x - lightX, y - lightY) / reach;
+                int noise = random.nextInt(9) - 4;
+                pixels[y * width + x] = rgb(clamp((int) (246 * light) + noise), clamp((int) (243 * light) + noise), clamp((int) (236 * light) + noise));
+            }
+        }
+
+        int margin = width / 12;
+        int lineHeight = Math.max(4, height / 45);
+        int glyphHeight = lineHeight * 3 / 5;
+        int figureTop = random.nextBoolean() ? height / 3 + random.nextInt(height / 6) : -1;
+        int figureBottom = figureTop + height / 5;
+        for (int top = margin; top + lineHeight < height - margin; top += lineHeight) {
+            if (figureTop >= 0 && top + lineHeight > figureTop && top < figureBottom) {
+                continue;
+            }
+            int x = margin;
+            int lineEnd = width - margin - (random.nextInt(8) == 0 ? width / 3 : 0);
+            while (x < lineEnd) {
+                int wordWidth = Math.min(lineEnd - x, width / 40 + random.nextInt(width / 12));
+                for (int y = top; y < top + glyphHeight; y++) {
+                    for (int i = x; i < x + wordWidth; i++) {
+                        // Vertical strokes a couple of pixels wide, like letters at scan resolution
+                        if (((i - x) % 5) < 2 || y == top + glyphHeight / 2) {
+                            int ink = 25 + random.nextInt(30);
+                            pixels[y * width + i] = rgb(ink, ink, ink + 8);
+                        }
+                    }
+                }
+                x += wordWidth + width / 90 + 1;
+            }
+        }
+
+        if (figureTop >= 0) {
+            for (int y = figureTop; y < Math.min(figureBottom, height); y++) {
+                for (int x = margin; x < width - margin; x++) {
+                    pixels[y * width + x] = rgb(
+                        clamp(60 + 150 * x / width + random.nextInt(9)),
+                        clamp(90 + 120 * (y - figureTop) / (figureBottom - figureTop) + random.nextInt(9)),
+                        clamp(180 - 100 * x / width + random.nextInt(9))
+                    );
+                }
+            }
+        }
+        return pixels;
+    }
+
+    private static Page encode(int[] pixels, int width, int height) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        Deflater deflater = new Deflater();
+        try {
+            RasterPageCodec.write(pixels, width, height, deflater, new byte[width * 3], new byte[StreamingBase64.CHUNK_BYTES], outputStream);
+        } finally {
+            deflater.end();
+        }
+        return new Page(width, height, outputStream.toByteArray());
+    }
+
+    private static int rgb(int r, int g, int b) {
+        return 0xFF000000 | r << 16 | g << 8 | b;
+    }
+
+    private static int clamp(int value) {
+        return Math.max(0, Math.min(255, value));
+    }
+}
@@ -0,0 +1,511 @@
+package com.reactnativedocumentscanner;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class UploadQueueTest {
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final List<UploadQueue> queues = new ArrayList<>();
+    private final List<Request> requests = Collections.synchronizedList(new ArrayList<Request>());
+    private final Deque<Response> responses = new ArrayDeque<>();
+    private final BlockingQueue<String> finishedBatches = new LinkedBlockingQueue<>();
+    private File directory;
+    private HttpServer server;
+    private volatile CountDownLatch serverGate;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = temporaryFolder.newFolder(UploadQueue.DIRECTORY);
+    }
+
+    @After
+    public void tearDown() {
+        for (UploadQueue queue : queues) {
+            queue.shutdown();
+        }
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void replaysTheJournal() throws IOException {
+        page("e1", 200);
+        page("e2", 50);
+        page("e4", 20);
+        page("e5", 30);
+        page("stray", 10);
+        journal(
+            "A\te1\tb1\t0\timage/jpeg\t200",
+            "P\te1\t100",
+            "A\te2\tb1\t1\timage/jpeg\t50",
+            "F\te2",
+            // Its copy is gone, so there is nothing left to upload
+            "A\te3\tb1\t2\timage/jpeg\t10",
+            "A\te4\tb2\t0\timage/jpeg\t20",
+            "D\te4",
+            "A\te5\tb2\t1\tapplication/pdf\t30",
+            "F\te5",
+            "R\te5",
+            // Torn by a crash mid-write
+            "A\te6\tb3"
+        );
+
+        List<UploadQueue.Entry> entries = start().getEntries();
+        assertEquals(3, entries.size());
+        assertEntry(entries.get(0), "e1", "b1", 0, "image/jpeg", 200, 100, UploadQueue.Status.PENDING);
+        assertEntry(entries.get(1), "e2", "b1", 1, "image/jpeg", 50, 0, UploadQueue.Status.FAILED);
+        assertEntry(entries.get(2), "e5", "b2", 1, "application/pdf", 30, 0, UploadQueue.Status.PENDING);
+
+        assertFalse(new File(directory, "e4").exists());
+        assertFalse("orphaned copies are deleted", new File(directory, "stray").exists());
+        assertTrue(new File(directory, "e1").exists());
+    }
+
+    @Test
+    public void compactedJournalReplaysToTheSameQueue() throws IOException {
+        page("e1", 200);
+        page("e2", 50);
+        journal(
+            "A\te1\tb1\t0\timage/jpeg\t200",
+            "P\te1\t64",
+            "P\te1\t128",
+            "A\te2\tb1\t1\timage/png\t50",
+            "F\te2",
+            "A\te3\tb2\t0\timage/jpeg\t10",
+            "D\te3"
+        );
+        start().shutdown();
+
+        String journal = new String(Files.readAllBytes(new File(directory, "journal.log").toPath()), StandardCharsets.UTF_8);
+        assertEquals("A\te1\tb1\t0\timage/jpeg\t200\nP\te1\t128\nA\te2\tb1\t1\timage/png\t50\nF\te2\n", journal);
+
+        List<UploadQueue.Entry> entries = start().getEntries();
+        assertEquals(2, entries.size());
+        assertEntry(entries.get(0), "e1", "b1", 0, "image/jpeg", 200, 128, UploadQueue.Status.PENDING);
+        assertEntry(entries.get(1), "e2", "b1", 1, "image/png", 50, 0, UploadQueue.Status.FAILED);
+    }
+
+    @Test
+    public void retriedPagesStayPendingAcrossRestarts() throws IOException {
+        page("e1", 50);
+        journal(
+            "A\te1\tb1\t0\timage/jpeg\t50",
+            "F\te1"
+        );
+        UploadQueue queue = start();
+        assertEquals(1, queue.retryFailed());
+        assertEquals(UploadQueue.Status.PENDING, queue.getEntries().get(0).status);
+        assertEquals(0, queue.retryFailed());
+        queue.shutdown();
+
+        assertEquals(UploadQueue.Status.PENDING, start().getEntries().get(0).status);
+    }
+
+    @Test
+    public void savesTheConfigurationWithoutCredentials() throws IOException {
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put("Authorization", "Bearer secret");
+        headers.put("cookie", "session=secret");
+        headers.put("X-Client", "scanner");
+        start().configure(new UploadQueue.Config("http://127.0.0.1:9/upload", headers, 3, 4096, 2));
+
+        String saved = new String(Files.readAllBytes(new File(directory, "config.properties").toPath()), StandardCharsets.ISO_8859_1);
+        assertFalse(saved.contains("secret"));
+        assertTrue(saved.contains("header.X-Client=scanner"));
+        assertTrue(saved.contains("credentialHeaders=Authorization,cookie"));
+
+        // Without its credentials the saved configuration would only get pages rejected
+        assertNull(start().getConfig());
+    }
+
+    @Test
+    public void restoresAConfigurationWithoutCredentials() throws IOException {
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put("X-Client", "scanner");
+        start().configure(new UploadQueue.Config("http://127.0.0.1:9/upload", headers, 3, 4096, 2));
+
+        UploadQueue.Config config = start().getConfig();
+        assertNotNull(config);
+        assertEquals("http://127.0.0.1:9/upload", config.url);
+        assertEquals(headers, config.headers);
+        assertEquals(3, config.parallelism);
+        assertEquals(4096, config.chunkBytes);
+        assertEquals(2, config.maxRetries);
+    }
+
+    @Test
+    public void confirmedBytesFollowsTheRangeHeader() {
+        assertEquals(100, UploadQueue.confirmedBytes("bytes=0-99", 50, 1000));
+        assertEquals(100, UploadQueue.confirmedBytes("bytes=0- 99 ", 50, 1000));
+        // The server can't have more than the page
+        assertEquals(1000, UploadQueue.confirmedBytes("bytes=0-4999", 50, 1000));
+    }
+
+    @Test
+    public void confirmedBytesFallsBackToWhatWasSent() {
+        assertEquals(50, UploadQueue.confirmedBytes(null, 50, 1000));
+        assertEquals(50, UploadQueue.confirmedBytes("bytes=10-99", 50, 1000));
+        assertEquals(50, UploadQueue.confirmedBytes("bytes=0-", 50, 1000));
+        assertEquals(50, UploadQueue.confirmedBytes("bytes=0-abc", 50, 1000));
+    }
+
+    @Test
+    public void credentialHeadersIgnoreCase() {
+        assertTrue(UploadQueue.isCredentialHeader("authorization"));
+        assertTrue(UploadQueue.isCredentialHeader("Proxy-Authorization"));
+        assertTrue(UploadQueue.isCredentialHeader("COOKIE"));
+        assertFalse(UploadQueue.isCredentialHeader("X-Api-Version"));
+    }
+
+    @Test
+    public void uploadsAPageInChunks() throws Exception {
+        byte[] content = page("e1", 2500);
+        journal("A\te1\tb1\t3\timage/jpeg\t2500");
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put("X-Client", "scanner");
+        UploadQueue queue = start();
+        queue.configure(new UploadQueue.Config(serve(), headers, 1, 1000, 0));
+
+        assertEquals("b1:0", awaitBatch());
+        assertEquals(
+            Arrays.asList("bytes 0-999/2500", "bytes 1000-1999/2500", "bytes 2000-2499/2500"),
+            contentRanges()
+        );
+        ByteArrayOutputStream uploaded = new ByteArrayOutputStream();
+        for (Request request : requests) {
+            assertEquals("PUT", request.method);
+            assertEquals("e1", request.header("Upload-Id"));
+            assertEquals("b1", request.header("Upload-Batch-Id"));
+            assertEquals("3", request.header("Upload-Page-Index"));
+            assertEquals("image/jpeg", request.header("Content-Type"));
+            assertEquals("scanner", request.header("X-Client"));
+            uploaded.write(request.body);
+        }
+        assertArrayEquals(content, uploaded.toByteArray());
+        assertTrue(queue.getEntries().isEmpty());
+        assertFalse(new File(directory, "e1").exists());
+    }
+
+    @Test
+    public void resumesFromWhatTheServerConfirmed() throws Exception {
+        page("e1", 3000);
+        // Confirmed before the last launch ended
+        journal(
+            "A\te1\tb1\t0\timage/jpeg\t3000",
+            "P\te1\t1000"
+        );
+        // The server only kept half of the next chunk
+        responses.add(new Response(308, "bytes=0-1499"));
+        start().configure(new UploadQueue.Config(serve(), new LinkedHashMap<String, String>(), 1, 1000, 0));
+
+        assertEquals("b1:0", awaitBatch());
+        assertEquals(
+            Arrays.asList("bytes 1000-1999/3000", "bytes 1500-2499/3000", "bytes 2500-2999/3000"),
+            contentRanges()
+        );
+    }
+
+    @Test
+    public void retriesServerErrorsWithBackoff() throws Exception {
+        page("e1", 100);
+        journal("A\te1\tb1\t0\timage/jpeg\t100");
+        responses.add(new Response(503, null));
+        responses.add(new Response(500, null));
+        start(20).configure(new UploadQueue.Config(serve(), new LinkedHashMap<String, String>(), 1, 1000, 2));
+
+        assertEquals("b1:0", awaitBatch());
+        assertEquals(3, requests.size());
+        // 20 ms after the first failure, twice that after the second
+        assertTrue(requests.get(1).receivedNanos - requests.get(0).receivedNanos >= TimeUnit.MILLISECONDS.toNanos(20));
+        assertTrue(requests.get(2).receivedNanos - requests.get(1).receivedNanos >= TimeUnit.MILLISECONDS.toNanos(40));
+    }
+
+    @Test
+    public void failsAPageOnceItsRetriesRunOut() throws Exception {
+        page("e1", 100);
+        journal("A\te1\tb1\t0\timage/jpeg\t100");
+        responses.add(new Response(503, null));
+        responses.add(new Response(503, null));
+        UploadQueue queue = start(1);
+        queue.configure(new UploadQueue.Config(serve(), new LinkedHashMap<String, String>(), 1, 1000, 1));
+
+        assertEquals("b1:1", awaitBatch());
+        assertEquals(2, requests.size());
+        UploadQueue.Entry entry = queue.getEntries().get(0);
+        assertEquals(UploadQueue.Status.FAILED, entry.status);
+        assertEquals("Upload endpoint responded with HTTP 503", entry.error);
+        assertTrue("failed pages keep their copy", new File(directory, "e1").exists());
+    }
+
+    @Test
+    public void doesNotRetryClientErrors() throws Exception {
+        page("e1", 100);
+        journal("A\te1\tb1\t0\timage/jpeg\t100");
+        responses.add(new Response(403, null));
+        UploadQueue queue = start(1);
+        queue.configure(new UploadQueue.Config(serve(), new LinkedHashMap<String, String>(), 1, 1000, 5));
+
+        assertEquals("b1:1", awaitBatch());
+        assertEquals(1, requests.size());
+        assertEquals(UploadQueue.Status.FAILED, queue.getEntries().get(0).status);
+    }
+
+    @Test
+    public void failsAPageWhoseRequestCantBeBuilt() throws Exception {
+        page("e1", 100);
+        page("e2", 100);
+        journal(
+            "A\te1\tb1\t0\timage/jpeg\t100",
+            "A\te2\tb1\t1\timage/jpeg\t100"
+        );
+        Map<String, String> headers = new LinkedHashMap<>();
+        // HttpURLConnection rejects the line break with an IllegalArgumentException
+        headers.put("X-Client", "scanner\nInjected: header");
+        UploadQueue queue = start(1);
+        queue.configure(new UploadQueue.Config(serve(), headers, 1, 1000, 5));
+
+        assertEquals("b1:2", awaitBatch());
+        assertEquals(0, requests.size());
+        for (UploadQueue.Entry entry : queue.getEntries()) {
+            assertEquals(UploadQueue.Status.FAILED, entry.status);
+            assertNotNull(entry.error);
+        }
+    }
+
+    @Test
+    public void reportsEachBatchOnceWhenAllOfItsPagesAreDone() throws Exception {
+        for (String id : new String[] { "e1", "e2", "e3", "e4" }) {
+            page(id, 100);
+        }
+        journal(
+            "A\te1\tb1\t0\timage/jpeg\t100",
+            "A\te2\tb1\t1\timage/jpeg\t100",
+            "A\te3\tb1\t2\timage/jpeg\t100",
+            "A\te4\tb2\t0\timage/jpeg\t100"
+        );
+        UploadQueue queue = start();
+        queue.configure(new UploadQueue.Config(serve(), new LinkedHashMap<String, String>(), 2, 1000, 0));
+
+        List<String> batches = Arrays.asList(awaitBatch(), awaitBatch());
+        Collections.sort(batches);
+        assertEquals(Arrays.asList("b1:0", "b2:0"), batches);
+        assertNull("each batch reports once", finishedBatches.poll(200, TimeUnit.MILLISECONDS));
+        assertEquals(4, requests.size());
+        assertTrue(queue.getEntries().isEmpty());
+    }
+
+    @Test
+    public void stopsReportingAfterShutdown() throws Exception {
+        page("e1", 2000);
+        journal("A\te1\tb1\t0\timage/jpeg\t2000");
+        serverGate = new CountDownLatch(1);
+        List<String> reported = Collections.synchronizedList(new ArrayList<String>());
+        UploadQueue queue = new UploadQueue(directory, new UploadQueue.Listener() {
+            @Override
+            public void onUploadProgress(UploadQueue.Entry entry) {
+                reported.add(entry.id);
+            }
+
+            @Override
+            public void onBatchFinished(String batchId, int failed) {
+                reported.add(batchId);
+            }
+        });
+        queue.start();
+        queue.awaitLoaded();
+        queue.configure(new UploadQueue.Config(serve(), new LinkedHashMap<String, String>(), 1, 1000, 0));
+        while (requests.isEmpty()) {
+            Thread.sleep(5);
+        }
+
+        // The first chunk is still in flight when the queue goes away
+        queue.shutdown();
+        serverGate.countDown();
+        assertTrue(queue.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(Collections.emptyList(), reported);
+        assertEquals(1, requests.size());
+
+        // Its progress was journaled, so the next launch picks up after it
+        start();
+        assertEquals("b1:0", awaitBatch());
+        assertEquals(Arrays.asList("bytes 0-999/2000", "bytes 1000-1999/2000"), contentRanges());
+    }
+
+    private UploadQueue start() throws IOException {
+        return start(1000);
+    }
+
+    private UploadQueue start(long baseRetryDelayMs) throws IOException {
+        UploadQueue queue = new UploadQueue(directory, new UploadQueue.Listener() {
+            @Override
+            public void onUploadProgress(UploadQueue.Entry entry) {}
+
+            @Override
+            public void onBatchFinished(String batchId, int failed) {
+                finishedBatches.add(batchId + ":" + failed);
+            }
+        }, baseRetryDelayMs);
+        queues.add(queue);
+        queue.start();
+        queue.awaitLoaded();
+        return queue;
+    }
+
+    /**
+     * Starts a stub endpoint and returns its URL. It answers with the queued responses first
+     * and then like a well-behaved server: 308 until the last byte of a page, then 200.
+     */
+    private String serve() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/upload", exchange -> {
+            try {
+                requests.add(new Request(exchange));
+                CountDownLatch gate = serverGate;
+                if (gate != null) {
+                    gate.await(5, TimeUnit.SECONDS);
+                }
+                Response response;
+                synchronized (responses) {
+                    response = responses.pollFirst();
+                }
+                if (response == null) {
+                    response = new Response(isLastChunk(exchange.getRequestHeaders().getFirst("Content-Range")) ? 200 : 308, null);
+                }
+                if (response.range != null) {
+                    exchange.getResponseHeaders().set("Range", response.range);
+                }
+                exchange.sendResponseHeaders(response.code, -1);
+            } catch (InterruptedException error) {
+                Thread.currentThread().interrupt();
+            } finally {
+                exchange.close();
+            }
+        });
+        server.start();
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/upload";
+    }
+
+    private static boolean isLastChunk(String contentRange) {
+        // bytes first-last/size
+        String[] range = contentRange.substring("bytes ".length()).split("[-/]");
+        return Long.parseLong(range[1]) + 1 == Long.parseLong(range[2]);
+    }
+
+    private List<String> contentRanges() {
+        List<String> contentRanges = new ArrayList<>();
+        synchronized (requests) {
+            for (Request request : requests) {
+                contentRanges.add(request.header("Content-Range"));
+            }
+        }
+        return contentRanges;
+    }
+
+    private String awaitBatch() throws InterruptedException {
+        String batch = finishedBatches.poll(10, TimeUnit.SECONDS);
+        assertNotNull("no batch finished", batch);
+        return batch;
+    }
+
+    private byte[] page(String id, int size) throws IOException {
+        byte[] content = new byte[size];
+        new Random(size).nextBytes(content);
+        try (FileOutputStream outputStream = new FileOutputStream(new File(directory, id))) {
+            outputStream.write(content);
+        }
+        return content;
+    }
+
+    private void journal(String... records) throws IOException {
+        StringBuilder journal = new StringBuilder();
+        for (String record : records) {
+            journal.append(record).append('\n');
+        }
+        Files.write(new File(directory, "journal.log").toPath(), journal.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void assertEntry(UploadQueue.Entry entry, String id, String batchId, int index, String mimeType, long size, long confirmedBytes, UploadQueue.Status status) {
+        assertEquals(id, entry.id);
+        assertEquals(batchId, entry.batchId);
+        assertEquals(index, entry.index);
+        assertEquals(mimeType, entry.mimeType);
+        assertEquals(size, entry.size);
+        assertEquals(confirmedBytes, entry.confirmedBytes);
+        assertEquals(status, entry.status);
+    }
+
+    private static final class Request {
+        final String method;
+        final Map<String, String> headers = new LinkedHashMap<>();
+        final byte[] body;
+        final long receivedNanos = System.nanoTime();
+
+        Request(HttpExchange exchange) throws IOException {
+            method = exchange.getRequestMethod();
+            for (Map.Entry<String, List<String>> header : exchange.getRequestHeaders().entrySet()) {
+                headers.put(header.getKey().toLowerCase(), header.getValue().get(0));
+            }
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            try (InputStream inputStream = exchange.getRequestBody()) {
+                byte[] buffer = new byte[1024];
+                int read;
+                while ((read = inputStream.read(buffer)) != -1) {
+                    body.write(buffer, 0, read);
+                }
+            }
+            this.body = body.toByteArray();
+        }
+
+        String header(String name) {
+            return headers.get(name.toLowerCase());
+        }
+    }
+
+    private static final class Response {
+        final int code;
+        final String range;
+
+        Response(int code, String range) {
+            this.code = code;
+            this.range = range;
+        }
+    }
+}
@@ -17,6 +17,14 @@ const DocumentScanner = NativeModules.DocumentScanner
       }
     );
 
+// Calls a native method that only the Android module implements
+const callAndroidOnly = (method: string, ...args: any[]): Promise<any> => {
+  if (Platform.OS !== 'android') {
+    return Promise.reject(new Error(`${method} is only available on Android`));
+  }
+  return Promise.resolve(DocumentScanner[method](...args));
+};
+
 // ✅ NEW: Event emitter for native events
 const documentScannerEmitter = new NativeEventEmitter(DocumentScanner);
 
@@ -41,7 +49,9 @@ export interface CustomOverlayOptions {
   showPreviewButton?: boolean;
   
   /**
-   * Array of thumbnail data to display in the thumbnails strip
+   * Array of thumbnail data to display in the thumbnails strip. Images are
+   * decoded in the background at thumbnail size and cached in memory and on
+   * disk, keyed by uri and modification time.
    */
   thumbnails?: Array<{
     uri: string;
@@ -53,6 +63,7 @@ export interface CustomOverlayOptions {
 export interface ScanDocumentOptions {
   /**
    * The quality of the cropped image from 0 - 100. 100 is the best quality.
+   * On Android, 100 returns the scanner's original JPEG without re-compressing it.
    * @default: 100
    */
   croppedImageQuality?: number;
@@ -70,9 +81,154 @@ export interface ScanDocumentOptions {
    */
   responseType?: ResponseType;
 
+  /**
+   * Android only: The maximum total size in bytes of the cache directory used
+   * by `ResponseType.CachedFilePath`. Least recently used files beyond it are
+   * deleted after each scan, except those a scan still in progress or a live
+   * page handle refers to.
+   * @default: 209715200
+   */
+  resultCacheMaxBytes?: number;
+
+  /**
+   * Android only: The maximum width in pixels of each returned base64 or
+   * cached file page. Larger pages are downscaled, keeping their aspect ratio.
+   * @default: undefined
+   */
+  maxWidth?: number;
+
+  /**
+   * Android only: The maximum height in pixels of each returned base64 or
+   * cached file page. Larger pages are downscaled, keeping their aspect ratio.
+   * @default: undefined
+   */
+  maxHeight?: number;
+
+  /**
+   * Android only: The maximum resolution in megapixels of each returned
+   * base64 or cached file page. Larger pages are downscaled, keeping their
+   * aspect ratio.
+   * @default: undefined
+   */
+  targetMegapixels?: number;
+
+  /**
+   * Android only: The maximum number of scanned pages that are post-processed
+   * (decoded, compressed and encoded) at the same time. Lower this on low-RAM
+   * devices to limit how many full-size pages are held in memory at once.
+   * @default: the number of CPU cores
+   */
+  maxConcurrency?: number;
+
+  /**
+   * Android only: The maximum size in bytes of each returned base64 or cached
+   * file page. The highest JPEG quality up to `croppedImageQuality` that fits
+   * is searched for natively, and the quality used for each page is returned
+   * in `qualities`. Pages that don't fit even at the lowest quality are
+   * flagged in `overBudget`.
+   * @default: undefined
+   */
+  maxBytesPerPage?: number;
+
+  /**
+   * Android only: The image format of each returned base64 or cached file
+   * page.
+   * @default: OutputFormat.Jpeg
+   */
+  outputFormat?: OutputFormat;
+
+  /**
+   * Android only: Convert each returned base64 or cached file page to
+   * grayscale, or to pure black and white for text documents.
+   * @default: DocumentMode.Color
+   */
+  documentMode?: DocumentMode;
+
+  /**
+   * Android only: Emit an `onPageProcessed` event as soon as each page is
+   * ready, followed by an `onScanCompleted` event, instead of returning every
+   * page at once. When enabled the response has `pageCount` but no
+   * `scannedImages`.
+   * @default: false
+   */
+  streamPages?: boolean;
+
+  /**
+   * Android only: Emit an `onScanMetrics` event with the stage timings and
+   * memory figures of this scan once it finishes.
+   * @default: false
+   */
+  emitMetrics?: boolean;
+
+  /**
+   * Android only: Return a handle for each page in `pageHandles` that
+   * `readScannedPage` can read in slices, instead of having to move the whole
+   * page over the bridge at once. Release handles when you are done with
+   * them.
+   * @default: false
+   */
+  returnHandles?: boolean;
+
+  /**
+   * Android only: Resolve as soon as the scanner closes, with a handle per page
+   * in `pageHandles` that carries the page's `uri`, `width`, `height` and
+   * `size` read from its header only. No page is decoded or encoded until
+   * `materializePage` asks for it, so the processing options here are
+   * ignored. Can't be combined with `streamPages`, `upload`, `outputs` or
+   * `ResponseType.Pdf`.
+   * @default: false
+   */
+  lazy?: boolean;
+
+  /**
+   * Android only: An id for this scan session, returned as `sessionId` and
+   * accepted by `cancelProcessing`. Must not be in use by another session, nor
+   * by an earlier one whose page handles haven't been released.
+   * @default: a generated id
+   */
+  sessionId?: string;
+
+  /**
+   * Android only: What to do when `scanDocument` is called while another scan
+   * session has the scanner open. `reject` fails the new call with
+   * `SCAN_IN_PROGRESS`; `queue` opens the scanner for it once the other
+   * session's scanner closes.
+   * @default: 'reject'
+   */
+  concurrentScanPolicy?: 'reject' | 'queue';
+
+  /**
+   * Android only: Hash every page from a tiny decode and report pages that
+   * look the same as an earlier one in `duplicateGroups`, optionally dropping
+   * them.
+   * @default: undefined
+   */
+  duplicateDetection?: DuplicateDetectionOptions;
+
+  /**
+   * Android only: Produce several renditions of every page, such as a full
+   * page, a preview and a thumbnail, from a single decode. They come back
+   * together per page in `renditions`; the first one is also what
+   * `scannedImages` holds. Requires `ResponseType.Base64` or
+   * `ResponseType.CachedFilePath`.
+   * @default: undefined
+   */
+  outputs?: PageOutput[];
+
+  /**
+   * Android only: Hand the processed pages (or the PDF) to the native upload
+   * queue configured with `configureUploadQueue`, without their bytes
+   * passing through JS. The response carries the `uploadBatchId`. Not
+   * available with `ResponseType.Base64`.
+   * @default: false
+   */
+  upload?: boolean;
+
   // ✅ NEW: Custom overlay configuration
   /**
-   * Configuration for custom UI overlay on the scanner
+   * Configuration for custom UI overlay on the scanner. The overlay can only
+   * cover the scanner when it runs in the app's process; an out-of-process
+   * scanner hides it until the scanner closes.
    */
   customOverlay?: CustomOverlayOptions;
 }
@@ -87,6 +243,272 @@ export enum ResponseType {
    * Use this response type if you want document scan returned as inmage file paths.
    */
   ImageFilePath = 'imageFilePath',
+
+  /**
+   * Android only: Use this response type if you want each page copied into an
+   * app-owned cache directory and returned as a stable file path. Files are
+   * named by content hash, so re-scanning the same page reuses its file.
+   */
+  CachedFilePath = 'cachedFilePath',
+
+  /**
+   * Android only: Use this response type if you want all pages assembled
+   * natively into a single PDF file, returned in `pdf`. Pages are written to
+   * the file as they are processed and embed their JPEG data unchanged.
+   */
+  Pdf = 'pdf',
+}
+
+export enum OutputFormat {
+  Jpeg = 'jpeg',
+
+  Webp = 'webp',
+
+  /**
+   * Lossless WebP. Pages come back as PNG on Android 9 and below.
+   */
+  WebpLossless = 'webpLossless',
+
+  Png = 'png',
+}
+
+export enum DocumentMode {
+  /**
+   * Keep the page as scanned.
+   */
+  Color = 'color',
+
+  Grayscale = 'grayscale',
+
+  /**
+   * Pure black and white using an adaptive threshold that follows uneven
+   * lighting. Much smaller than color for text, especially as PNG.
+   */
+  Bilevel = 'bilevel',
+}
+
+export interface CachedFile {
+  /**
+   * The file:// path of the page in the app's cache directory.
+   */
+  path: string;
+
+  /**
+   * The size of the file in bytes.
+   */
+  size: number;
+
+  /**
+   * The SHA-256 hash of the file contents.
+   */
+  hash: string;
+}
+
+export interface PageHandle {
+  /**
+   * An opaque handle to pass to `readScannedPage`.
+   */
+  handle: string;
+
+  /**
+   * The size of the page file in bytes, or -1 if unknown.
+   */
+  size: number;
+
+  /**
+   * The page file the handle reads.
+   */
+  uri?: string;
+
+  /**
+   * The page's width in pixels, read from its header. Lazy scans only.
+   */
+  width?: number;
+
+  /**
+   * The page's height in pixels, read from its header. Lazy scans only.
+   */
+  height?: number;
+}
+
+export type MaterializePageOptions = Pick<
+  ScanDocumentOptions,
+  | 'responseType'
+  | 'croppedImageQuality'
+  | 'maxWidth'
+  | 'maxHeight'
+  | 'targetMegapixels'
+  | 'maxBytesPerPage'
+  | 'outputFormat'
+  | 'documentMode'
+  | 'resultCacheMaxBytes'
+>;
+
+export interface MaterializedPage {
+  /**
+   * The handle the page was produced from.
+   */
+  handle: string;
+
+  /**
+   * The base64 image or file path, depending on `responseType`.
+   */
+  payload: string;
+
+  /**
+   * The size of the encoded page in bytes.
+   */
+  size: number;
+
+  mimeType: string;
+
+  /**
+   * The quality the page was encoded at, 100 if it was returned untouched.
+   */
+  quality?: number;
+
+  /**
+   * True when the page is larger than `maxBytesPerPage` even at the lowest
+   * quality.
+   */
+  overBudget?: boolean;
+
+  /**
+   * The SHA-256 hash of the file with `ResponseType.CachedFilePath`.
+   */
+  hash?: string;
+
+  /**
+   * How long producing the page took in milliseconds.
+   */
+  durationMs: number;
+
+  /**
+   * Whether the page was produced by an earlier call with the same options.
+   */
+  memoized: boolean;
+}
+
+export interface PageSlice {
+  /**
+   * The bytes of the slice as base64.
+   */
+  data: string;
+
+  /**
+   * The offset of the slice in the page file.
+   */
+  offset: number;
+
+  /**
+   * How many bytes the slice holds. Less than requested at the end of the page.
+   */
+  length: number;
+
+  /**
+   * The size of the page file in bytes.
+   */
+  size: number;
+
+  /**
+   * Whether the slice reaches the end of the page.
+   */
+  eof: boolean;
+}
+
+export interface PageOutput {
+  /**
+   * The key of this rendition in `renditions`. Must be unique.
+   */
+  name: string;
+
+  /**
+   * The maximum width in pixels of this rendition.
+   */
+  maxWidth?: number;
+
+  /**
+   * The maximum height in pixels of this rendition.
+   */
+  maxHeight?: number;
+
+  /**
+   * The maximum resolution in megapixels of this rendition.
+   */
+  targetMegapixels?: number;
+
+  /**
+   * @default: the scan's `outputFormat`
+   */
+  outputFormat?: OutputFormat;
+
+  /**
+   * The quality from 0 - 100 for lossy formats.
+   * @default: the scan's `croppedImageQuality`
+   */
+  quality?: number;
+}
+
+export interface PageRendition {
+  /**
+   * The base64 image or the file:// path of the cached file, following the
+   * scan's `responseType`.
+   */
+  payload: string;
+
+  /**
+   * The size of the encoded image in bytes.
+   */
+  size: number;
+
+  width: number;
+
+  height: number;
+
+  mimeType: string;
+
+  /**
+   * The SHA-256 hash of the cached file with `ResponseType.CachedFilePath`.
+   */
+  hash?: string;
+}
+
+export type PageRenditions = { [name: string]: PageRendition };
+
+export interface DuplicateDetectionOptions {
+  /**
+   * How many of the 64 hash bits may differ for two pages to count as
+   * duplicates. Raise it to catch recaptures at a different angle, lower it
+   * for documents whose pages share one layout.
+   * @default: 5
+   */
+  maxDistance?: number;
+
+  /**
+   * Leave out every page of a duplicate group except its first from the
+   * result, and list them in `droppedPages`.
+   * @default: false
+   */
+  drop?: boolean;
+}
+
+export interface PdfResult {
+  /**
+   * The file:// path of the PDF in the app's cache directory.
+   */
+  path: string;
+
+  pageCount: number;
+
+  /**
+   * The size of the PDF in bytes.
+   */
+  size: number;
+
+  /**
+   * The SHA-256 hash of the PDF.
+   */
+  hash: string;
 }
 
 export interface ScanDocumentResponse {
@@ -96,6 +518,86 @@ export interface ScanDocumentResponse {
    */
   scannedImages?: string[];
 
+  /**
+   * Android only: The number of processed pages when `streamPages` is enabled.
+   */
+  pageCount?: number;
+
+  /**
+   * Android only: The size and hash of each page when `responseType` is
+   * `ResponseType.CachedFilePath`.
+   */
+  files?: CachedFile[];
+
+  /**
+   * Android only: The JPEG quality each page was encoded at when
+   * `maxBytesPerPage` is set. 100 means the page was returned untouched.
+   */
+  qualities?: number[];
+
+  /**
+   * Android only: Whether each page came out larger than `maxBytesPerPage`
+   * even at the lowest quality, when `maxBytesPerPage` is set.
+   */
+  overBudget?: boolean[];
+
+  /**
+   * Android only: The assembled PDF when `responseType` is `ResponseType.Pdf`.
+   */
+  pdf?: PdfResult;
+
+  /**
+   * Android only: The MIME type of the returned pages when `responseType` is
+   * `ResponseType.Base64` or `ResponseType.CachedFilePath`.
+   */
+  mimeType?: string;
+
+  /**
+   * Android only: The id of this scan session, which `cancelProcessing` and
+   * `releaseScanSession` take.
+   */
+  sessionId?: string;
+
+  /**
+   * Android only: The page handles when `returnHandles` or `lazy` is enabled
+   * and `streamPages` is not.
+   */
+  pageHandles?: PageHandle[];
+
+  /**
+   * Android only: The scanner page indices of each group of near-identical
+   * pages when `duplicateDetection` is set, earliest page first. These are
+   * positions in the scan as captured, before any page was dropped.
+   */
+  duplicateGroups?: number[][];
+
+  /**
+   * Android only: The renditions of each page, by output name, when
+   * `outputs` is set and `streamPages` is not.
+   */
+  renditions?: PageRenditions[];
+
+  /**
+   * Android only: The scanner page indices that were left out when
+   * `duplicateDetection.drop` is enabled, in the same index space as
+   * `duplicateGroups`.
+   */
+  droppedPages?: number[];
+
+  /**
+   * Android only: The scanner page index of each returned page when
+   * `duplicateDetection.drop` is enabled. `scannedImages`, `pageHandles`,
+   * `qualities` and the `index` of page events count kept pages only, so
+   * `keptPages[i]` is the scanner index of `scannedImages[i]`.
+   */
+  keptPages?: number[];
+
+  /**
+   * Android only: The batch the pages were queued for upload under when
+   * `upload` is enabled. Upload events carry it as `batchId`.
+   */
+  uploadBatchId?: string;
+
   /**
    * The status lets you know if the document scan completes successfully,
    * or if the user cancels before completing the document scan.
@@ -117,11 +619,306 @@ export enum ScanDocumentResponseStatus {
   Cancel = 'cancel',
 }
 
+export interface PrewarmResponse {
+  /**
+   * How long the scanner took to produce its start intent in milliseconds.
+   */
+  latencyMs: number;
+
+  /**
+   * Whether this was the first start intent requested for these options.
+   */
+  cold: boolean;
+}
+
+export interface ScannerLaunchStats {
+  /**
+   * The number of scanner clients cached by their options.
+   */
+  cachedClients: number;
+
+  /**
+   * The latency of the most recent first-time start intent, or -1.
+   */
+  lastColdLatencyMs: number;
+
+  /**
+   * The latency of the most recent repeated start intent, or -1.
+   */
+  lastWarmLatencyMs: number;
+
+  /**
+   * The average latency of repeated start intents, or -1.
+   */
+  averageWarmLatencyMs: number;
+
+  /**
+   * The number of repeated start intents measured.
+   */
+  warmLaunchCount: number;
+
+  /**
+   * How long the custom overlay of the most recent scan took to become
+   * visible after the scanner was launched, or -1, including when the scanner
+   * ran out of process and covered the overlay.
+   */
+  lastOverlayLatencyMs: number;
+}
+
+export interface ScanSessionMetrics {
+  /**
+   * 'success', 'cancel' or 'error'.
+   */
+  status: string;
+  startedAt: number;
+  startIntentLatencyMs: number;
+  overlayLatencyMs: number;
+  scannerUiMs: number;
+  processingMs: number;
+  pageCount: number;
+  outputBytes: number;
+  bridgePayloadBytes: number;
+  decodeMsPerPage: number;
+  compressMsPerPage: number;
+  encodeMsPerPage: number;
+  maxPageMs: number;
+  peakHeapDeltaBytes: number;
+}
+
+export interface MetricAggregate {
+  count: number;
+  min?: number;
+  mean?: number;
+  p50?: number;
+  p90?: number;
+  p99?: number;
+  max?: number;
+}
+
+export interface ScanMetricsResponse {
+  /**
+   * The metrics of the most recent scan sessions, oldest first. Stages a
+   * session never reached are -1.
+   */
+  sessions: ScanSessionMetrics[];
+
+  /**
+   * Aggregates of each metric over those sessions, skipping -1 values.
+   */
+  aggregates: {
+    [K in Exclude<keyof ScanSessionMetrics, 'status' | 'startedAt'>]: MetricAggregate;
+  };
+}
+
+export interface BufferPoolStats {
+  /**
+   * The maximum number of bytes the pool keeps around between pages.
+   */
+  maxBytes: number;
+
+  /**
+   * The number of bytes currently held by the pool.
+   */
+  pooledBytes: number;
+
+  /**
+   * How many page decodes reused a pooled bitmap.
+   */
+  bitmapHits: number;
+
+  /**
+   * How many page decodes had to allocate a new bitmap.
+   */
+  bitmapMisses: number;
+
+  /**
+   * How many encode buffers were reused from the pool.
+   */
+  bufferHits: number;
+
+  /**
+   * How many encode buffers had to be allocated.
+   */
+  bufferMisses: number;
+
+  /**
+   * How many pooled bitmaps or buffers were dropped to stay under maxBytes.
+   */
+  evictions: number;
+}
+
+export interface PageProcessedEvent {
+  sessionId: string;
+
+  /**
+   * The position of the page in the scan. Pages can arrive out of order.
+   */
+  index: number;
+
+  /**
+   * The total number of pages in the scan.
+   */
+  total: number;
+
+  /**
+   * The page as a file path or base64 image, depending on `responseType`.
+   * Empty for `ResponseType.Pdf`.
+   */
+  payload: string;
+
+  /**
+   * The size of the encoded page image in bytes, or -1 if unknown.
+   */
+  bytes: number;
+
+  /**
+   * How long processing this page took in milliseconds.
+   */
+  durationMs: number;
+
+  /**
+   * The SHA-256 hash of the page when `responseType` is
+   * `ResponseType.CachedFilePath`.
+   */
+  hash?: string;
+
+  /**
+   * The page handle when `returnHandles` is enabled.
+   */
+  handle?: string;
+
+  /**
+   * The JPEG quality the page was encoded at, if it was re-encoded or
+   * returned as base64.
+   */
+  quality?: number;
+
+  /**
+   * True when the page is larger than `maxBytesPerPage` even at the lowest
+   * quality.
+   */
+  overBudget?: boolean;
+
+  /**
+   * Every rendition of the page, by name, when `outputs` is set.
+   */
+  renditions?: PageRenditions;
+}
+
+export interface ScanCompletedEvent {
+  sessionId: string;
+  status: 'success' | 'error' | 'cancel';
+  total: number;
+  durationMs: number;
+  error?: string;
+}
+
+export interface UploadQueueConfig {
+  /**
+   * The endpoint every chunk is sent to with `PUT`.
+   */
+  url: string;
+
+  /**
+   * Extra request headers, such as authorization. `Authorization`,
+   * `Proxy-Authorization` and `Cookie` are kept in memory only, so after a
+   * restart uploads wait until this is called again.
+   */
+  headers?: { [name: string]: string };
+
+  /**
+   * How many pages upload at the same time.
+   * @default: 2
+   */
+  parallelism?: number;
+
+  /**
+   * The largest chunk sent in one request.
+   * @default: 1048576
+   */
+  chunkBytes?: number;
+
+  /**
+   * How many times in a row a page may fail with a network error, 408, 429
+   * or 5xx before it is marked as failed.
+   * @default: 5
+   */
+  maxRetries?: number;
+}
+
+export interface UploadEntry {
+  id: string;
+  batchId: string;
+  index: number;
+  status: 'pending' | 'uploading' | 'done' | 'failed';
+  bytesSent: number;
+  totalBytes: number;
+  error?: string;
+}
+
+export interface UploadQueueStatus {
+  /**
+   * Whether an endpoint is configured, in this or an earlier launch. An
+   * earlier launch's configuration doesn't count if it had credential headers.
+   */
+  configured: boolean;
+
+  /**
+   * Every page that hasn't finished uploading, failed pages included.
+   */
+  entries: UploadEntry[];
+}
+
+export interface UploadBatchCompletedEvent {
+  batchId: string;
+
+  /**
+   * How many pages of the batch failed. They stay queued for
+   * `retryFailedUploads`.
+   */
+  failed: number;
+}
+
+export interface ProcessingDegradedEvent {
+  sessionId: string;
+  index: number;
+  reason: 'resolution';
+  level: 'moderate' | 'critical';
+
+  /**
+   * The resolution the page would have been decoded at.
+   */
+  requestedMegapixels: number;
+
+  /**
+   * The resolution it was decoded at instead.
+   */
+  megapixels: number;
+
+  heapMaxBytes: number;
+  heapHeadroomBytes: number;
+
+  /**
+   * Available system memory, or -1 if unknown.
+   */
+  availableMemoryBytes: number;
+
+  lowMemory: boolean;
+  lowRamDevice: boolean;
+  memoryClassMb: number;
+}
+
 // ✅ NEW: Event listener types
 export interface DocumentScannerEvents {
   onHomeButtonPressed: () => void;
   onPreviewButtonPressed: () => void;
   onThumbnailPressed: (data: { index: number; uri: string }) => void;
+  onPageProcessed: (data: PageProcessedEvent) => void;
+  onScanCompleted: (data: ScanCompletedEvent) => void;
+  onScanMetrics: (data: ScanSessionMetrics) => void;
+  onUploadProgress: (data: UploadEntry) => void;
+  onUploadBatchCompleted: (data: UploadBatchCompletedEvent) => void;
+  onProcessingDegraded: (data: ProcessingDegradedEvent) => void;
 }
 
 // ✅ NEW: Event listener functions
@@ -147,6 +944,119 @@ export default {
     return DocumentScanner.scanDocument(options);
   },
   
+  /**
+   * Android only: Prepares the scanner for the given options so the next
+   * scanDocument call with the same options launches faster. Call it once
+   * at app start.
+   */
+  prewarm(options: ScanDocumentOptions = {}): Promise<PrewarmResponse> {
+    return callAndroidOnly('prewarm', options);
+  },
+
+  /**
+   * Android only: Returns cold and warm scanner launch latencies
+   */
+  getScannerLaunchStats(): Promise<ScannerLaunchStats> {
+    return callAndroidOnly('getScannerLaunchStats');
+  },
+
+  /**
+   * Android only: Returns the stage timings and memory figures of the most
+   * recent scan sessions along with histogram-style aggregates
+   */
+  getScanMetrics(): Promise<ScanMetricsResponse> {
+    return callAndroidOnly('getScanMetrics');
+  },
+
+  /**
+   * Android only: Returns the counters of the native bitmap and buffer pool
+   * that page processing reuses across pages and scans
+   */
+  getBufferPoolStats(): Promise<BufferPoolStats> {
+    return callAndroidOnly('getBufferPoolStats');
+  },
+
+  /**
+   * Android only: Caps how many bytes the native bitmap and buffer pool keeps
+   * between pages and scans. Set it to 0 to disable pooling.
+   */
+  setBufferPoolMaxBytes(maxBytes: number): Promise<void> {
+    return callAndroidOnly('setBufferPoolMaxBytes', maxBytes);
+  },
+
+  /**
+   * Android only: Reads up to `length` bytes (at most 4 MB) of a scanned page
+   * starting at `offset`
+   */
+  readScannedPage(
+    handle: string,
+    offset: number,
+    length: number
+  ): Promise<PageSlice> {
+    return callAndroidOnly('readScannedPage', handle, offset, length);
+  },
+
+  /**
+   * Android only: Produces the page behind a handle with `options`, as
+   * `scanDocument` would have. Results are kept per handle and options until
+   * the handle is released, so asking again is free.
+   */
+  materializePage(
+    handle: string,
+    options: MaterializePageOptions = {}
+  ): Promise<MaterializedPage> {
+    return callAndroidOnly('materializePage', handle, options);
+  },
+
+  /**
+   * Android only: Closes a page handle. Resolves to false if it was unknown.
+   */
+  releaseScannedPage(handle: string): Promise<boolean> {
+    return callAndroidOnly('releaseScannedPage', handle);
+  },
+
+  /**
+   * Android only: Cancels a scan session. A queued session is dropped, an
+   * open scanner's result is discarded, and page processing stops right away.
+   * The session's scanDocument call resolves with status `cancel`. Resolves
+   * to false if there is no such session.
+   */
+  cancelProcessing(sessionId: string): Promise<boolean> {
+    return callAndroidOnly('cancelProcessing', sessionId);
+  },
+
+  /**
+   * Android only: Closes every page handle of a scan and resolves to how many
+   * were released
+   */
+  releaseScanSession(sessionId: string): Promise<number> {
+    return callAndroidOnly('releaseScanSession', sessionId);
+  },
+
+  /**
+   * Android only: Sets the endpoint and limits of the background upload
+   * queue. They are saved, so uploads left over from an earlier launch resume
+   * on their own.
+   */
+  configureUploadQueue(config: UploadQueueConfig): Promise<void> {
+    return callAndroidOnly('configureUploadQueue', config);
+  },
+
+  /**
+   * Android only: Returns every page that is still queued for upload
+   */
+  getUploadQueueStatus(): Promise<UploadQueueStatus> {
+    return callAndroidOnly('getUploadQueueStatus');
+  },
+
+  /**
+   * Android only: Queues every failed upload again and resolves to how many
+   * there were
+   */
+  retryFailedUploads(): Promise<number> {
+    return callAndroidOnly('retryFailedUploads');
+  },
+
   /**
    * Add event listener for custom overlay events
    */